@@ -0,0 +1,205 @@
+package edu.brown.cs.student.main.csv;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * This is the ColumnarTable class, which stores CSV rows with a dictionary per column. Each column
+ * keeps each distinct value once, and each row keeps an int code per item pointing into its
+ * column's dictionary, so data that repeats the same values, like the census CSVs, takes a fraction
+ * of the memory of one String per cell. Rows may have different lengths, as in the parsed CSVs, and
+ * the codes of all rows are stored end to end, so a row longer than the rest only costs its own
+ * items.
+ *
+ * <p>The table cannot be changed once built. Its rows can be read through asRows, a List of List of
+ * String view that builds no Strings.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class ColumnarTable {
+
+  private static final String[][] NO_DICTIONARIES = new String[0][];
+
+  // The distinct values of each column, in order of first appearance
+  private final String[][] dictionaries;
+  // The code of each item of each row, one row after another
+  private final int[] codes;
+  // The index in codes of each row's first item, followed by the number of codes
+  private final int[] rowStarts;
+  private final Rows rows;
+
+  /**
+   * Constructor for the ColumnarTable class.
+   *
+   * @param dictionaries the distinct values of each column
+   * @param codes the code of each item of each row, one row after another
+   * @param rowStarts the index in codes of each row's first item, followed by the number of codes
+   */
+  private ColumnarTable(String[][] dictionaries, int[] codes, int[] rowStarts) {
+    this.dictionaries = dictionaries;
+    this.codes = codes;
+    this.rowStarts = rowStarts;
+    this.rows = new Rows();
+  }
+
+  /**
+   * A method that encodes CSV rows into a ColumnarTable.
+   *
+   * @param csvRows the rows to encode, which are copied
+   * @return a ColumnarTable holding the same rows
+   * @throws IllegalArgumentException if the rows have more items than an array can hold
+   */
+  public static ColumnarTable of(List<List<String>> csvRows) {
+    int rowCount = csvRows.size();
+    int[] rowStarts = new int[rowCount + 1];
+    int width = 0;
+    long itemCount = 0;
+    for (int row = 0; row < rowCount; row++) {
+      int length = csvRows.get(row).size();
+      itemCount += length;
+      if (itemCount > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Too many CSV items to store: " + itemCount);
+      }
+      rowStarts[row + 1] = (int) itemCount;
+      width = Math.max(width, length);
+    }
+    if (width == 0) {
+      return new ColumnarTable(NO_DICTIONARIES, new int[0], rowStarts);
+    }
+
+    List<Map<String, Integer>> codeByValue = new ArrayList<>(width);
+    for (int col = 0; col < width; col++) {
+      codeByValue.add(new HashMap<>());
+    }
+    int[] codes = new int[(int) itemCount];
+    for (int row = 0; row < rowCount; row++) {
+      List<String> items = csvRows.get(row);
+      for (int col = 0; col < items.size(); col++) {
+        Map<String, Integer> columnCodes = codeByValue.get(col);
+        Integer code = columnCodes.get(items.get(col));
+        if (code == null) {
+          code = columnCodes.size();
+          columnCodes.put(items.get(col), code);
+        }
+        codes[rowStarts[row] + col] = code;
+      }
+    }
+    String[][] dictionaries = new String[width][];
+    for (int col = 0; col < width; col++) {
+      String[] dictionary = new String[codeByValue.get(col).size()];
+      for (Map.Entry<String, Integer> entry : codeByValue.get(col).entrySet()) {
+        dictionary[entry.getValue()] = entry.getKey();
+      }
+      dictionaries[col] = dictionary;
+    }
+    return new ColumnarTable(dictionaries, codes, rowStarts);
+  }
+
+  /**
+   * A getter method for the number of rows in the table.
+   *
+   * @return the number of rows
+   */
+  public int getRowCount() {
+    return this.rowStarts.length - 1;
+  }
+
+  /**
+   * A getter method for the number of items in a row.
+   *
+   * @param row the row id
+   * @return the number of items in that row
+   */
+  public int getRowLength(int row) {
+    Objects.checkIndex(row, getRowCount());
+    return this.rowStarts[row + 1] - this.rowStarts[row];
+  }
+
+  /**
+   * A getter method for the number of columns, which is the length of the longest row.
+   *
+   * @return the number of columns
+   */
+  public int getColumnCount() {
+    return this.dictionaries.length;
+  }
+
+  /**
+   * A getter method for the distinct values of a column, which codes point into.
+   *
+   * @param col the column index
+   * @return a copy of the distinct values of that column
+   */
+  public String[] getDictionary(int col) {
+    return this.dictionaries[col].clone();
+  }
+
+  /**
+   * A getter method for the code of a row's value in a column.
+   *
+   * @param row the row id
+   * @param col the column index
+   * @return the code of the value, or -1 if the row is too short to have the column
+   */
+  public int getCode(int row, int col) {
+    int length = getRowLength(row);
+    if (col >= length) {
+      return -1;
+    }
+    return this.codes[this.rowStarts[row] + Objects.checkIndex(col, length)];
+  }
+
+  /**
+   * A method that gives the rows of the table as an unmodifiable List of List of String.
+   *
+   * @return a view of the rows, which reads from the table
+   */
+  public List<List<String>> asRows() {
+    return this.rows;
+  }
+
+  /** The unmodifiable view of the table's rows, returned by asRows. */
+  private class Rows extends AbstractList<List<String>> implements RandomAccess {
+    @Override
+    public List<String> get(int row) {
+      Objects.checkIndex(row, getRowCount());
+      return new Row(row);
+    }
+
+    @Override
+    public int size() {
+      return getRowCount();
+    }
+  }
+
+  /** The unmodifiable view of one row of the table. */
+  private class Row extends AbstractList<String> implements RandomAccess {
+    private final int row;
+
+    /**
+     * Constructor for the Row class.
+     *
+     * @param row the row id
+     */
+    Row(int row) {
+      this.row = row;
+    }
+
+    @Override
+    public String get(int col) {
+      Objects.checkIndex(col, size());
+      return dictionaries[col][codes[rowStarts[row] + col]];
+    }
+
+    @Override
+    public int size() {
+      return rowStarts[row + 1] - rowStarts[row];
+    }
+  }
+}
@@ -7,15 +7,19 @@ import edu.brown.cs.student.main.csv.parse.CsvParser;
 import edu.brown.cs.student.main.csv.parse.FactoryFailureException;
 import edu.brown.cs.student.main.csv.search.CsvSearcher;
 import edu.brown.cs.student.main.csv.search.SearchException;
+import edu.brown.cs.student.main.csv.search.StreamingCsvSearcher;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * The UtilitySearcher class of our project. This is where execution begins for the command line
- * tool.
+ * tool. With the --stream flag, rows are searched and printed as they are read, so files larger
+ * than memory can be searched.
  *
  * @author sarahridley juliazdzilowska prlakshm
  * @version 3.0
@@ -25,6 +29,7 @@ public final class UtilitySearcher {
   private final String searchValue;
   private final boolean hasHeaders;
   private final String colId;
+  private final boolean streaming;
 
   /**
    * Constructor of the UtilitySearcher class.
@@ -33,13 +38,19 @@ public final class UtilitySearcher {
    * @param searchValue String representing target item
    * @param hasHeaders boolean representing whether the file has headers
    * @param colId String representing the column(s) to search in
+   * @param streaming boolean representing whether to search rows as they are read
    */
   private UtilitySearcher(
-      FileReader dataFileReader, String searchValue, boolean hasHeaders, String colId) {
+      FileReader dataFileReader,
+      String searchValue,
+      boolean hasHeaders,
+      String colId,
+      boolean streaming) {
     this.dataFileReader = dataFileReader;
     this.searchValue = searchValue;
     this.hasHeaders = hasHeaders;
     this.colId = colId;
+    this.streaming = streaming;
   }
 
   /**
@@ -48,11 +59,15 @@ public final class UtilitySearcher {
    * @param args An array of command line arguments
    */
   public static void main(String[] args) {
+    List<String> argList = new ArrayList<>(Arrays.asList(args));
+    boolean streaming = argList.remove("--stream");
+    args = argList.toArray(new String[0]);
     if (args.length < 2) {
       System.err.println(
           "ERROR: Please provide all required arguments:\n"
               + "The CSV filepath, the value to search for, (optional) whether the CSV "
-              + "contains headers, (optional) the column identifier");
+              + "contains headers, (optional) the column identifier, (optional) --stream to "
+              + "search rows as they are read");
       exit(1);
     }
     String filePath = args[0];
@@ -62,7 +77,7 @@ public final class UtilitySearcher {
       String searchValue = args[1];
       boolean hasHeaders = args.length >= 3 && Boolean.parseBoolean(args[2]);
       String colId = args.length >= 4 ? args[3] : "*";
-      new UtilitySearcher(fileReader, searchValue, hasHeaders, colId).run();
+      new UtilitySearcher(fileReader, searchValue, hasHeaders, colId, streaming).run();
     } catch (FileNotFoundException e) {
       System.err.println("ERROR: No file found at path " + filePath);
       exit(1);
@@ -74,6 +89,10 @@ public final class UtilitySearcher {
    * results, whether they be error messages or rows found, to the console.
    */
   private void run() {
+    if (streaming) {
+      runStreaming();
+      return;
+    }
     try {
       CsvParser<List<String>> csvParser = new CsvParser<>(dataFileReader, new ListStringFromRow());
       csvParser.parseCsv();
@@ -81,8 +100,7 @@ public final class UtilitySearcher {
       CsvSearcher csvSearcher = new CsvSearcher(dataRows);
       List<List<String>> parsedResults = csvSearcher.search(hasHeaders, searchValue, colId);
       if (parsedResults.isEmpty()) {
-        String colRep = colId.equals("*") ? "any column" : "column " + colId;
-        System.err.println("ERROR: No rows found with value " + searchValue + " in " + colRep);
+        printNoRowsFound();
       }
       for (List<String> row : parsedResults) {
         System.out.println(row);
@@ -93,4 +111,31 @@ public final class UtilitySearcher {
       exit(1);
     }
   }
+
+  /**
+   * A method called by run in streaming mode, which searches each row as the CSVParser reads it and
+   * prints it to the console right away if it matches, keeping no rows in memory. Errors are the
+   * same as in run, though rows found before an error has been printed stay printed.
+   */
+  private void runStreaming() {
+    try {
+      CsvParser<List<String>> csvParser = new CsvParser<>(dataFileReader, new ListStringFromRow());
+      StreamingCsvSearcher csvSearcher =
+          new StreamingCsvSearcher(hasHeaders, searchValue, colId, System.out::println);
+      csvParser.parseCsv(csvSearcher);
+      if (csvSearcher.getMatchCount() == 0) {
+        printNoRowsFound();
+      }
+      exit(0);
+    } catch (FactoryFailureException | IOException | SearchException e) {
+      System.err.println(e.getMessage());
+      exit(1);
+    }
+  }
+
+  /** A helper method that prints the error for a search that found no rows to the console. */
+  private void printNoRowsFound() {
+    String colRep = colId.equals("*") ? "any column" : "column " + colId;
+    System.err.println("ERROR: No rows found with value " + searchValue + " in " + colRep);
+  }
 }
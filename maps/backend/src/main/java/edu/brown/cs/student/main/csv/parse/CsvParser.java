@@ -7,13 +7,13 @@ import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.regex.Pattern;
 
 /**
  * This class is the CSVParser class, which depends on a generic type T. Its fields include a
- * BufferedReader object, a CreatorFromRow of T object, a Pattern object, and a List of T. This
- * class has methods parseCSV, which parses the CSV from these fields and getStoreRows, which allows
- * a user to get the parsed CSV information.
+ * BufferedReader object, a CreatorFromRow of T object, and a List of T. This class has methods
+ * parseCSV, which parses the CSV from these fields and getStoreRows, which allows a user to get the
+ * parsed CSV information. ParseCSV can also hand each row to a RowVisitor instead of storing it.
+ * Rows are split into fields by the CsvTokenizer.
  *
  * @author sarahridley juliazdzilowska prlakshm
  * @version 3.0
@@ -21,8 +21,7 @@ import java.util.regex.Pattern;
 public class CsvParser<T> {
   private final BufferedReader buffReader;
   private final CreatorFromRow<T> creatorFromRow;
-  private final Pattern regexSplitCsvRow;
-  private final List<T> storeRows;
+  private List<T> storeRows;
 
   /**
    * Constructor for the CSVParser class.
@@ -33,7 +32,6 @@ public class CsvParser<T> {
   public CsvParser(Reader givenReader, CreatorFromRow<T> creatorFromRow) {
     this.buffReader = new BufferedReader(givenReader);
     this.creatorFromRow = creatorFromRow;
-    this.regexSplitCsvRow = Pattern.compile(",(?=([^\\\"]*\\\"[^\\\"]*\\\")*(?![^\\\"]*\\\"))");
     this.storeRows = new ArrayList<>();
   }
 
@@ -46,23 +44,80 @@ public class CsvParser<T> {
    */
   public void parseCsv() throws FactoryFailureException, IOException {
     List<T> csvData = new ArrayList<>();
+    parseCsv(csvData::add);
+    storeRows = csvData;
+  }
+
+  /**
+   * A method that parses the CSV data and hands each row to the visitor as soon as it is turned
+   * into an object of type T, without storing the rows, so memory does not grow with the CSV.
+   *
+   * @param visitor the RowVisitor that processes each row, in order
+   * @param <E> the type of exception the visitor may throw
+   * @throws FactoryFailureException when the create method of the CreatorFromRow of T fails
+   * @throws IOException when there is an issue reading the CSV from the given Reader object
+   * @throws E when the visitor fails on a row, which stops the parse
+   */
+  public <E extends Exception> void parseCsv(RowVisitor<? super T, E> visitor)
+      throws FactoryFailureException, IOException, E {
+    String record = nextRecord();
+    while (record != null) {
+      visitor.visit(createRow(record));
+      record = nextRecord();
+    }
+  }
+
+  /**
+   * A helper method that splits a record into fields and turns them into an object of type T.
+   *
+   * @param record the record to turn into an object
+   * @return the object created from the record
+   * @throws FactoryFailureException when the create method of the CreatorFromRow of T fails
+   */
+  private T createRow(String record) throws FactoryFailureException {
     try {
-      String line = buffReader.readLine();
-      while (line != null) {
-        String[] result = regexSplitCsvRow.split(line);
-        T dataCreated = creatorFromRow.create(List.of(result));
-        csvData.add(dataCreated);
-        line = buffReader.readLine();
-      }
-      storeRows.clear();
-      storeRows.addAll(csvData);
+      return creatorFromRow.create(List.of(CsvTokenizer.split(record)));
     } catch (FactoryFailureException ffe) {
       throw new FactoryFailureException(ffe.getMessage(), ffe.row);
+    }
+  }
+
+  /**
+   * A helper method that reads the next record, reporting any failure as an issue with the Reader.
+   *
+   * @return the next record, or null at the end of the Reader
+   * @throws IOException when there is an issue reading from the BufferedReader
+   */
+  private String nextRecord() throws IOException {
+    try {
+      return readRecord();
     } catch (IOException ioe) {
       throw new IOException("Issue while reading the given Reader");
     }
   }
 
+  /**
+   * A helper method that reads the next record, which is usually one line. A line that ends inside
+   * a quoted field is joined with the lines after it, keeping the line breaks, until the quote is
+   * closed or the Reader runs out.
+   *
+   * @return the next record, or null at the end of the Reader
+   * @throws IOException when there is an issue reading from the BufferedReader
+   */
+  private String readRecord() throws IOException {
+    String line = buffReader.readLine();
+    if (line == null || !CsvTokenizer.isOpen(line)) {
+      return line;
+    }
+    StringBuilder record = new StringBuilder(line);
+    boolean open = true;
+    while (open && (line = buffReader.readLine()) != null) {
+      record.append('\n').append(line);
+      open = CsvTokenizer.isOpen(line) != open;
+    }
+    return record.toString();
+  }
+
   /**
    * A getter method with no arguments that allows access to the storeRows field, which stores the
    * rows of the CSV as a List of type T.
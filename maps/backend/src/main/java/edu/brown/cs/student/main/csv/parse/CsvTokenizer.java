@@ -0,0 +1,80 @@
+package edu.brown.cs.student.main.csv.parse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is the CsvTokenizer class, which splits one CSV record into its fields in linear time. A
+ * comma separates two fields when an even number of quotes follows it in the record, so commas
+ * inside quoted fields are kept. Quotes are left in the fields, escaped quotes ("") need no special
+ * handling since they do not change that count, and trailing empty fields are dropped. These are
+ * the same splits that the lookahead regex ,(?=([^"]*"[^"]*")*(?![^"]*")) used to produce, without
+ * rescanning the rest of the record for every comma.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class CsvTokenizer {
+
+  private static final String[] NO_FIELDS = new String[0];
+
+  /** Private constructor, since the CsvTokenizer only has static methods. */
+  private CsvTokenizer() {}
+
+  /**
+   * A method that splits a CSV record into its fields.
+   *
+   * @param record the record to split, which may contain newlines inside quoted fields
+   * @return the fields of the record, with trailing empty fields dropped
+   */
+  public static String[] split(String record) {
+    int quotesAfter = countQuotes(record);
+    List<String> fields = new ArrayList<>();
+    int fieldStart = 0;
+    for (int i = 0; i < record.length(); i++) {
+      char c = record.charAt(i);
+      if (c == '"') {
+        quotesAfter--;
+      } else if (c == ',' && (quotesAfter & 1) == 0) {
+        fields.add(record.substring(fieldStart, i));
+        fieldStart = i + 1;
+      }
+    }
+    if (fields.isEmpty()) {
+      // A record without a separator is one field, even when it is empty
+      return new String[] {record};
+    }
+    fields.add(record.substring(fieldStart));
+
+    int size = fields.size();
+    while (size > 0 && fields.get(size - 1).isEmpty()) {
+      size--;
+    }
+    return size == 0 ? NO_FIELDS : fields.subList(0, size).toArray(NO_FIELDS);
+  }
+
+  /**
+   * A method that checks whether a record ends inside a quoted field, which means that the line
+   * break after it belongs to that field and the record continues on the next line.
+   *
+   * @param record the record read so far
+   * @return true if the record has an odd number of quotes
+   */
+  public static boolean isOpen(String record) {
+    return (countQuotes(record) & 1) == 1;
+  }
+
+  /**
+   * A helper method that counts the quotes in a record.
+   *
+   * @param record the record to count in
+   * @return the number of quote characters
+   */
+  private static int countQuotes(String record) {
+    int count = 0;
+    for (int i = record.indexOf('"'); i >= 0; i = record.indexOf('"', i + 1)) {
+      count++;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,303 @@
+package edu.brown.cs.student.main.csv.parse;
+
+import edu.brown.cs.student.main.creator.CreatorFromRow;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This is the ParallelCsvParser class, which parses large UTF-8 CSV data on several threads. The
+ * bytes are cut into chunks right after line breaks that are outside of quoted fields, so every
+ * chunk holds whole records. Each chunk is parsed by its own CsvParser on a ForkJoinPool, and the
+ * rows are concatenated in order, so the result is the same as parsing all of the data with one
+ * CsvParser.
+ *
+ * <p>The data is either a ByteBuffer or a FileChannel. A file is never read onto the heap: offsets
+ * into it are longs, chunk starts are found by scanning it through mapped windows of at most
+ * windowBytes, and each chunk is mapped on its own and decoded straight from the mapping as it is
+ * parsed. Chunks aim for at most windowBytes too, but always end on a record boundary, so one
+ * chunk can only grow past 2 GB, which cannot be mapped at once, if a single record is longer
+ * than about 1 GB.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class ParallelCsvParser<T> {
+  // The most bytes mapped at once while finding chunk starts, and the largest chunk aimed for
+  static final int DEFAULT_WINDOW_BYTES = 1 << 30;
+  // Exactly one of csvBytes and channel holds the data
+  private final ByteBuffer csvBytes;
+  private final FileChannel channel;
+  private final long length;
+  private final CreatorFromRow<T> creatorFromRow;
+  private final ForkJoinPool pool;
+  private final int chunkCount;
+  private final int windowBytes;
+  private final List<T> storeRows;
+
+  /**
+   * Constructor for the ParallelCsvParser class, which parses on the common ForkJoinPool with a few
+   * chunks per thread.
+   *
+   * @param csvBytes the UTF-8 CSV data, such as a wrapped byte array
+   * @param creatorFromRow an object that defines how each row is converted into an object, which
+   *     is called from several threads at once
+   */
+  public ParallelCsvParser(ByteBuffer csvBytes, CreatorFromRow<T> creatorFromRow) {
+    this(
+        csvBytes,
+        creatorFromRow,
+        ForkJoinPool.commonPool(),
+        ForkJoinPool.commonPool().getParallelism() * 4);
+  }
+
+  /**
+   * Constructor for the ParallelCsvParser class.
+   *
+   * @param csvBytes the UTF-8 CSV data, such as a wrapped byte array
+   * @param creatorFromRow an object that defines how each row is converted into an object, which
+   *     is called from several threads at once
+   * @param pool the ForkJoinPool that parses the chunks
+   * @param chunkCount the number of chunks to aim for, fewer if records are long
+   */
+  public ParallelCsvParser(
+      ByteBuffer csvBytes, CreatorFromRow<T> creatorFromRow, ForkJoinPool pool, int chunkCount) {
+    this(
+        csvBytes.slice(), null, csvBytes.remaining(), creatorFromRow, pool, chunkCount,
+        DEFAULT_WINDOW_BYTES);
+  }
+
+  /**
+   * Constructor for the ParallelCsvParser class that parses a file, on the common ForkJoinPool
+   * with a few chunks per thread.
+   *
+   * @param channel the open FileChannel of the UTF-8 CSV file, which the caller closes after
+   *     parsing
+   * @param creatorFromRow an object that defines how each row is converted into an object, which
+   *     is called from several threads at once
+   * @throws IOException if the size of the file cannot be read
+   */
+  public ParallelCsvParser(FileChannel channel, CreatorFromRow<T> creatorFromRow)
+      throws IOException {
+    this(
+        channel,
+        creatorFromRow,
+        ForkJoinPool.commonPool(),
+        ForkJoinPool.commonPool().getParallelism() * 4,
+        DEFAULT_WINDOW_BYTES);
+  }
+
+  /**
+   * Constructor for the ParallelCsvParser class that parses a file.
+   *
+   * @param channel the open FileChannel of the UTF-8 CSV file, which the caller closes after
+   *     parsing
+   * @param creatorFromRow an object that defines how each row is converted into an object, which
+   *     is called from several threads at once
+   * @param pool the ForkJoinPool that parses the chunks
+   * @param chunkCount the number of chunks to aim for, fewer if records are long
+   * @param windowBytes the most bytes of the file mapped at once while finding chunk starts
+   * @throws IOException if the size of the file cannot be read
+   */
+  public ParallelCsvParser(
+      FileChannel channel,
+      CreatorFromRow<T> creatorFromRow,
+      ForkJoinPool pool,
+      int chunkCount,
+      int windowBytes)
+      throws IOException {
+    this(null, channel, channel.size(), creatorFromRow, pool, chunkCount, windowBytes);
+  }
+
+  /**
+   * Constructor for the ParallelCsvParser class, from either a buffer or a file.
+   *
+   * @param csvBytes the UTF-8 CSV data, or null to parse the file
+   * @param channel the FileChannel of the UTF-8 CSV file, or null to parse the buffer
+   * @param length the number of bytes of CSV data
+   * @param creatorFromRow an object that defines how each row is converted into an object
+   * @param pool the ForkJoinPool that parses the chunks
+   * @param chunkCount the number of chunks to aim for
+   * @param windowBytes the most bytes mapped at once while finding chunk starts
+   */
+  private ParallelCsvParser(
+      ByteBuffer csvBytes,
+      FileChannel channel,
+      long length,
+      CreatorFromRow<T> creatorFromRow,
+      ForkJoinPool pool,
+      int chunkCount,
+      int windowBytes) {
+    this.csvBytes = csvBytes;
+    this.channel = channel;
+    this.length = length;
+    this.creatorFromRow = creatorFromRow;
+    this.pool = pool;
+    this.chunkCount = Math.max(1, chunkCount);
+    this.windowBytes = Math.max(1, windowBytes);
+    this.storeRows = new ArrayList<>();
+  }
+
+  /**
+   * A method that parses the CSV data into objects of type T, on several threads, and stores them
+   * in the storeRows field as a list of T.
+   *
+   * @throws FactoryFailureException when the create method of the CreatorFromRow of T fails, for
+   *     the first such row in the data
+   * @throws IOException when the data cannot be read, a chunk of it is too long to map, or parsing
+   *     is interrupted
+   */
+  public void parseCsv() throws FactoryFailureException, IOException {
+    List<Callable<List<T>>> tasks = new ArrayList<>();
+    long[] bounds = findChunkBounds();
+    for (int i = 0; i + 1 < bounds.length; i++) {
+      long start = bounds[i];
+      long end = bounds[i + 1];
+      tasks.add(() -> parseChunk(start, end));
+    }
+
+    List<T> csvData = new ArrayList<>();
+    try {
+      for (Future<List<T>> chunkRows : pool.invokeAll(tasks)) {
+        csvData.addAll(chunkRows.get());
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while parsing the given data");
+    } catch (ExecutionException ee) {
+      // The pool wraps checked exceptions of its tasks in a RuntimeException
+      for (Throwable cause = ee.getCause(); cause != null; cause = cause.getCause()) {
+        if (cause instanceof FactoryFailureException ffe) {
+          throw new FactoryFailureException(ffe.getMessage(), ffe.row);
+        }
+        if (cause instanceof IOException ioe) {
+          throw new IOException(ioe.getMessage(), ioe);
+        }
+      }
+      throw new IOException("Issue while parsing the given data");
+    }
+    storeRows.clear();
+    storeRows.addAll(csvData);
+  }
+
+  /**
+   * A helper method that finds where chunks start. A chunk may only start right after a line feed
+   * with an even number of quotes before it, which is where a CsvParser starts a new record. The
+   * data is scanned one window at a time, with the quote state carried from one to the next.
+   *
+   * @return the ascending chunk starts, followed by the end of the data
+   * @throws IOException if a window of the file cannot be mapped
+   */
+  private long[] findChunkBounds() throws IOException {
+    long targetSize = Math.max(1, Math.min(length / chunkCount, windowBytes));
+    List<Long> bounds = new ArrayList<>();
+    bounds.add(0L);
+    long nextCut = targetSize;
+    boolean inQuotes = false;
+    for (long windowStart = 0; windowStart < length; windowStart += windowBytes) {
+      ByteBuffer window = window(windowStart, Math.min(windowBytes, length - windowStart));
+      int windowLength = window.limit();
+      for (int i = 0; i < windowLength; i++) {
+        byte b = window.get(i);
+        long next = windowStart + i + 1;
+        if (b == '"') {
+          inQuotes = !inQuotes;
+        } else if (b == '\n' && !inQuotes && next >= nextCut && next < length) {
+          bounds.add(next);
+          nextCut = next + targetSize;
+        }
+      }
+    }
+    bounds.add(length);
+    return bounds.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  /**
+   * A helper method that parses one chunk of the data with a CsvParser, decoding it straight from
+   * its buffer.
+   *
+   * @param start the byte offset of the chunk
+   * @param end the byte offset after the chunk
+   * @return the parsed rows of the chunk, in order
+   * @throws FactoryFailureException when the create method of the CreatorFromRow of T fails
+   * @throws IOException when the chunk is too long to map or there is an issue reading it
+   */
+  private List<T> parseChunk(long start, long end) throws FactoryFailureException, IOException {
+    if (end - start > Integer.MAX_VALUE) {
+      throw new IOException("A record of the CSV data is too long to parse: over 2 GB");
+    }
+    InputStream chunk = new ByteBufferInputStream(window(start, end - start));
+    CsvParser<T> parser =
+        new CsvParser<>(new InputStreamReader(chunk, StandardCharsets.UTF_8), creatorFromRow);
+    parser.parseCsv();
+    return parser.getStoreRows();
+  }
+
+  /**
+   * A helper method that gets a window of the data, as a slice of the buffer or a read-only mapping
+   * of the file. The window has its own position, so each thread reads its own.
+   *
+   * @param start the byte offset of the window
+   * @param size the number of bytes in the window, at most Integer.MAX_VALUE
+   * @return the bytes of the window
+   * @throws IOException if the window of the file cannot be mapped
+   */
+  private ByteBuffer window(long start, long size) throws IOException {
+    if (channel != null) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+    }
+    return csvBytes.slice((int) start, (int) size);
+  }
+
+  /**
+   * A getter method with no arguments that allows access to the storeRows field, which stores the
+   * rows of the CSV as a List of type T.
+   *
+   * @return a list of type T representing the rows read from the CSV
+   */
+  public List<T> getStoreRows() {
+    return Collections.unmodifiableList(storeRows);
+  }
+
+  /** An InputStream over the remaining bytes of a ByteBuffer, which it reads from. */
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructor for the ByteBufferInputStream class.
+     *
+     * @param buffer the bytes to read
+     */
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int count) {
+      if (count == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int read = Math.min(count, buffer.remaining());
+      buffer.get(bytes, offset, read);
+      return read;
+    }
+  }
+}
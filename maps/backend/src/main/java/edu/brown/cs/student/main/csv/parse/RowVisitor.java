@@ -0,0 +1,21 @@
+package edu.brown.cs.student.main.csv.parse;
+
+/**
+ * This is the RowVisitor interface, which is handed each row of a CSV as soon as a CsvParser has
+ * created it, so that rows can be processed without storing the whole CSV.
+ *
+ * @param <T> the type of object each row is created as
+ * @param <E> the type of exception the visitor may throw to stop parsing
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+@FunctionalInterface
+public interface RowVisitor<T, E extends Exception> {
+  /**
+   * Processes one row of the CSV.
+   *
+   * @param row the object created from the row
+   * @throws E if processing fails, which stops the parse
+   */
+  void visit(T row) throws E;
+}
@@ -0,0 +1,304 @@
+package edu.brown.cs.student.main.csv.search;
+
+import edu.brown.cs.student.main.csv.ColumnarTable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class is a read-only index over the values of one column of CSV data, or of every column at
+ * once, built in one pass over the rows. It answers exact matches from a HashMap from value to row
+ * ids, and prefix and range queries from the values kept in sorted order, so a query costs time
+ * proportional to its matches rather than to the number of rows.
+ *
+ * <p>Row ids are indices into the rows the index was built from, header row included, and every
+ * query takes the first row to consider so the same index serves searches with and without
+ * headers. An all-columns index lists a row once per matching item, just like
+ * CsvSearcher's linear scan.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class ColumnIndex {
+
+  private static final int[] NO_ROWS = new int[0];
+
+  // Ascending row ids for each value
+  private final Map<String, int[]> rowsByValue;
+  // Every (value, row) pair, sorted by value and then by row
+  private final String[] sortedValues;
+  private final int[] sortedRows;
+  // First row too short to have the column, or -1 if every row has it
+  private final int firstShortRow;
+
+  /**
+   * Constructor for the ColumnIndex class, which indexes the given (value, row) pairs.
+   *
+   * @param values the value of each pair
+   * @param rows the row id of each pair, in ascending order
+   * @param firstShortRow the first row too short to have the column, or -1
+   */
+  private ColumnIndex(List<String> values, List<Integer> rows, int firstShortRow) {
+    this.firstShortRow = firstShortRow;
+
+    Map<String, List<Integer>> building = new HashMap<>();
+    for (int i = 0; i < values.size(); i++) {
+      building.computeIfAbsent(values.get(i), v -> new ArrayList<>()).add(rows.get(i));
+    }
+    this.rowsByValue = new HashMap<>(building.size());
+    for (Map.Entry<String, List<Integer>> entry : building.entrySet()) {
+      this.rowsByValue.put(
+          entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    // Sort the pairs by value, keeping rows in order within a value (the sort is stable)
+    Integer[] order = new Integer[values.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> values.get(a).compareTo(values.get(b)));
+    this.sortedValues = new String[order.length];
+    this.sortedRows = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      this.sortedValues[i] = values.get(order[i]);
+      this.sortedRows[i] = rows.get(order[i]);
+    }
+  }
+
+  /**
+   * A method that builds an index over one column of the CSV data.
+   *
+   * @param csvRows the CSV data, header row included
+   * @param colIndex the index of the column to index
+   * @return the index of that column
+   */
+  public static ColumnIndex ofColumn(List<List<String>> csvRows, int colIndex) {
+    List<String> values = new ArrayList<>();
+    List<Integer> rows = new ArrayList<>();
+    int firstShortRow = -1;
+    for (int row = 0; row < csvRows.size(); row++) {
+      List<String> items = csvRows.get(row);
+      if (colIndex >= items.size()) {
+        if (firstShortRow == -1) {
+          firstShortRow = row;
+        }
+      } else if (items.get(colIndex) != null) {
+        values.add(items.get(colIndex));
+        rows.add(row);
+      }
+    }
+    return new ColumnIndex(values, rows, firstShortRow);
+  }
+
+  /**
+   * Constructor for the ColumnIndex class, from parts that are already built.
+   *
+   * @param rowsByValue the ascending row ids for each value
+   * @param sortedValues the value of every pair, sorted
+   * @param sortedRows the row id of every pair, in the same order
+   * @param firstShortRow the first row too short to have the column, or -1
+   */
+  private ColumnIndex(
+      Map<String, int[]> rowsByValue, String[] sortedValues, int[] sortedRows, int firstShortRow) {
+    this.rowsByValue = rowsByValue;
+    this.sortedValues = sortedValues;
+    this.sortedRows = sortedRows;
+    this.firstShortRow = firstShortRow;
+  }
+
+  /**
+   * A method that builds an index over one column of a ColumnarTable. Rows are grouped by their int
+   * codes, so each distinct value is hashed and sorted only once.
+   *
+   * @param table the CSV data, header row included
+   * @param colIndex the index of the column to index
+   * @return the index of that column, the same as ofColumn over the table's rows
+   */
+  public static ColumnIndex ofColumn(ColumnarTable table, int colIndex) {
+    int rowCount = table.getRowCount();
+    String[] dictionary =
+        colIndex < table.getColumnCount() ? table.getDictionary(colIndex) : new String[0];
+
+    // Count the rows of each code, then lay the rows out grouped by code, ascending in each group
+    int[] starts = new int[dictionary.length + 1];
+    int firstShortRow = -1;
+    for (int row = 0; row < rowCount; row++) {
+      if (colIndex >= table.getRowLength(row)) {
+        if (firstShortRow == -1) {
+          firstShortRow = row;
+        }
+      } else {
+        starts[table.getCode(row, colIndex) + 1]++;
+      }
+    }
+    for (int code = 0; code < dictionary.length; code++) {
+      starts[code + 1] += starts[code];
+    }
+    int[] groupedRows = new int[starts[dictionary.length]];
+    int[] next = Arrays.copyOf(starts, dictionary.length);
+    for (int row = 0; row < rowCount; row++) {
+      if (colIndex < table.getRowLength(row)) {
+        groupedRows[next[table.getCode(row, colIndex)]++] = row;
+      }
+    }
+
+    Map<String, int[]> rowsByValue = new HashMap<>(dictionary.length * 2);
+    List<Integer> codes = new ArrayList<>(dictionary.length);
+    for (int code = 0; code < dictionary.length; code++) {
+      if (dictionary[code] != null) {
+        rowsByValue.put(
+            dictionary[code], Arrays.copyOfRange(groupedRows, starts[code], starts[code + 1]));
+        codes.add(code);
+      }
+    }
+    codes.sort((a, b) -> dictionary[a].compareTo(dictionary[b]));
+    int pairCount = 0;
+    for (int code : codes) {
+      pairCount += starts[code + 1] - starts[code];
+    }
+    String[] sortedValues = new String[pairCount];
+    int[] sortedRows = new int[pairCount];
+    int pair = 0;
+    for (int code : codes) {
+      for (int i = starts[code]; i < starts[code + 1]; i++) {
+        sortedValues[pair] = dictionary[code];
+        sortedRows[pair++] = groupedRows[i];
+      }
+    }
+    return new ColumnIndex(rowsByValue, sortedValues, sortedRows, firstShortRow);
+  }
+
+  /**
+   * A method that builds an index over every column of the CSV data, with one entry per item.
+   *
+   * @param csvRows the CSV data, header row included
+   * @return the index of every item
+   */
+  public static ColumnIndex ofAllColumns(List<List<String>> csvRows) {
+    List<String> values = new ArrayList<>();
+    List<Integer> rows = new ArrayList<>();
+    for (int row = 0; row < csvRows.size(); row++) {
+      for (String item : csvRows.get(row)) {
+        if (item != null) {
+          values.add(item);
+          rows.add(row);
+        }
+      }
+    }
+    return new ColumnIndex(values, rows, -1);
+  }
+
+  /**
+   * A method that finds the rows whose value equals the search value exactly.
+   *
+   * @param searchValue the value to match, case sensitive
+   * @param start the first row to consider
+   * @return the ascending row ids of the matches, from start on
+   */
+  public int[] rowsEqualTo(String searchValue, int start) {
+    int[] rows = rowsByValue.getOrDefault(searchValue, NO_ROWS);
+    int from = lowerBound(rows, start);
+    return from == 0 ? rows.clone() : Arrays.copyOfRange(rows, from, rows.length);
+  }
+
+  /**
+   * A method that finds the rows whose value starts with the given prefix.
+   *
+   * @param prefix the prefix to match, case sensitive
+   * @param start the first row to consider
+   * @return the ascending row ids of the matches, from start on
+   */
+  public int[] rowsWithPrefix(String prefix, int start) {
+    int from = firstValueAtLeast(prefix);
+    int to = from;
+    while (to < sortedValues.length && sortedValues[to].startsWith(prefix)) {
+      to++;
+    }
+    return rowsBetween(from, to, start);
+  }
+
+  /**
+   * A method that finds the rows whose value is in the range [from, to) in String order.
+   *
+   * @param from the smallest value to match
+   * @param to the value after the largest to match
+   * @param start the first row to consider
+   * @return the ascending row ids of the matches, from start on
+   */
+  public int[] rowsInRange(String from, String to, int start) {
+    return rowsBetween(firstValueAtLeast(from), firstValueAtLeast(to), start);
+  }
+
+  /**
+   * A getter method for the first row that is too short to have this index's column.
+   *
+   * @return the row id, or -1 if every row has the column
+   */
+  public int getFirstShortRow() {
+    return this.firstShortRow;
+  }
+
+  /**
+   * A helper method that collects the rows of the sorted pairs in [from, to) into ascending order.
+   *
+   * @param from the first sorted pair
+   * @param to the sorted pair after the last
+   * @param start the first row to consider
+   * @return the ascending row ids of those pairs, from start on
+   */
+  private int[] rowsBetween(int from, int to, int start) {
+    int[] rows = new int[Math.max(0, to - from)];
+    int size = 0;
+    for (int i = from; i < to; i++) {
+      if (sortedRows[i] >= start) {
+        rows[size++] = sortedRows[i];
+      }
+    }
+    int[] result = Arrays.copyOf(rows, size);
+    Arrays.sort(result);
+    return result;
+  }
+
+  /**
+   * A helper method that binary searches the sorted values for the first one at least the key.
+   *
+   * @param key the value to search for
+   * @return the index of the first sorted value not less than key
+   */
+  private int firstValueAtLeast(String key) {
+    int low = 0;
+    int high = sortedValues.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sortedValues[mid].compareTo(key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * A helper method that binary searches ascending row ids for the first one at least start.
+   *
+   * @param rows the ascending row ids
+   * @param start the row to search for
+   * @return the index of the first row id not less than start
+   */
+  private static int lowerBound(int[] rows, int start) {
+    int low = 0;
+    int high = rows.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (rows[mid] < start) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
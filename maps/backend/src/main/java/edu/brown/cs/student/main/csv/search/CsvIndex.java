@@ -0,0 +1,68 @@
+package edu.brown.cs.student.main.csv.search;
+
+import edu.brown.cs.student.main.csv.ColumnarTable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class holds the ColumnIndexes of one set of loaded CSV data. Each column's index, and the
+ * index over every column, is built the first time a search needs it and then reused by every later
+ * search, until new data is loaded and a new CsvIndex replaces this one.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class CsvIndex {
+
+  private final List<List<String>> csvRows;
+  private final ColumnarTable table;
+  private final Map<Integer, ColumnIndex> columns = new ConcurrentHashMap<>();
+  private ColumnIndex allColumns;
+
+  /**
+   * Constructor for the CsvIndex class. No index is built until it is first asked for.
+   *
+   * @param csvRows the CSV data to index, header row included, which must not change afterwards
+   */
+  public CsvIndex(List<List<String>> csvRows) {
+    this.csvRows = csvRows;
+    this.table = null;
+  }
+
+  /**
+   * Constructor for the CsvIndex class over a ColumnarTable, whose column indexes are built from
+   * the table's int codes. No index is built until it is first asked for.
+   *
+   * @param table the CSV data to index, header row included
+   */
+  public CsvIndex(ColumnarTable table) {
+    this.csvRows = table.asRows();
+    this.table = table;
+  }
+
+  /**
+   * A method that gets the index of one column, building it on first use.
+   *
+   * @param colIndex the index of the column
+   * @return the ColumnIndex of that column
+   */
+  public ColumnIndex getColumn(int colIndex) {
+    if (table != null) {
+      return columns.computeIfAbsent(colIndex, col -> ColumnIndex.ofColumn(table, col));
+    }
+    return columns.computeIfAbsent(colIndex, col -> ColumnIndex.ofColumn(csvRows, col));
+  }
+
+  /**
+   * A method that gets the index over every column, building it on first use.
+   *
+   * @return the ColumnIndex of every item
+   */
+  public synchronized ColumnIndex getAllColumns() {
+    if (allColumns == null) {
+      allColumns = ColumnIndex.ofAllColumns(csvRows);
+    }
+    return allColumns;
+  }
+}
@@ -9,12 +9,16 @@ import java.util.List;
  * CsvParser object, an object of the CsvSearcher class can search the csvRows from the CsvParser's
  * methods parseCsv and getStoreRows to find rows with the given search criteria.
  *
+ * <p>When constructed with a CsvIndex over the same data, searches are answered from that index
+ * instead of by scanning every row, with exactly the same results.
+ *
  * @author sarahridley juliazdzilowska prlakshm
  * @version 3.0
  */
 public class CsvSearcher {
 
   private final List<List<String>> csvRows;
+  private final CsvIndex index;
 
   /**
    * Constructor for the CsvSearcher class.
@@ -22,7 +26,18 @@ public class CsvSearcher {
    * @param csvData List of List of String, representing the CSV data
    */
   public CsvSearcher(List<List<String>> csvData) {
+    this(csvData, null);
+  }
+
+  /**
+   * Constructor for the CsvSearcher class that searches with an index.
+   *
+   * @param csvData List of List of String, representing the CSV data
+   * @param index CsvIndex built over csvData, or null to scan every row
+   */
+  public CsvSearcher(List<List<String>> csvData, CsvIndex index) {
     this.csvRows = csvData;
+    this.index = index;
   }
 
   /**
@@ -36,25 +51,39 @@ public class CsvSearcher {
    * @throws IndexOutOfBoundsException if the target column is not found or is out of range
    */
   private int findColIndex(boolean colIdIsNum, String colId) throws IndexOutOfBoundsException {
+    return findColIndex(csvRows.get(0), colIdIsNum, colId);
+  }
+
+  /**
+   * A method that uses the String colID to find the numeric index of the target column in the first
+   * row of a CSV, which holds the headers if there are any.
+   *
+   * @param firstRow List of String representing the first row of the CSV
+   * @param colIdIsNum boolean representing whether the colID is a number
+   * @param colId String representing the name or index of column to be searched
+   * @return integer representing the index of column to be searched
+   * @throws IndexOutOfBoundsException if the target column is not found or is out of range
+   */
+  static int findColIndex(List<String> firstRow, boolean colIdIsNum, String colId)
+      throws IndexOutOfBoundsException {
     int colIndex;
     if (!colIdIsNum) {
       // If the column ID is not numeric, treat it as a column name and find its index
-      List<String> headers = csvRows.get(0);
-      colIndex = headers.indexOf(colId);
+      colIndex = firstRow.indexOf(colId);
       if (colIndex == -1) {
         throw new IndexOutOfBoundsException(
             "Column identifier "
                 + colId
                 + " not found. Valid column identifiers include "
-                + headers
+                + firstRow
                 + " and numbers between 0 and "
-                + (headers.size() - 1)
+                + (firstRow.size() - 1)
                 + " inclusive.");
       }
     } else {
       // Otherwise, use convert the column ID into a number
       colIndex = Integer.parseInt(colId);
-      int firstRowLength = csvRows.get(0).size();
+      int firstRowLength = firstRow.size();
       if (colIndex >= firstRowLength) {
         throw new IndexOutOfBoundsException(
             "Column index "
@@ -68,18 +97,49 @@ public class CsvSearcher {
   }
 
   /**
-   * A method that searches all columns of each row of the CSV for the desired searchValue. NOTE:
-   * the searchValue much match an item in the row exactly (case matters).
+   * A helper method that builds the exception for a non-numeric column identifier in a CSV without
+   * headers.
+   *
+   * @param firstRow List of String representing the first row of the CSV
+   * @param colId String representing the column identifier given
+   * @return SearchException describing the column identifiers that can be searched
+   */
+  static SearchException nonNumericWithoutHeaders(List<String> firstRow, String colId) {
+    int maxIndex = firstRow.size() - 1;
+    return new SearchException(
+        "Cannot search non-numeric column "
+            + colId
+            + " if no headers. Can search numeric column identifiers between 0 and "
+            + maxIndex
+            + " inclusive.");
+  }
+
+  /**
+   * A helper method that checks whether a column identifier is a number.
+   *
+   * @param colId String representing the column identifier given
+   * @return true if colId is an optionally negative integer
+   */
+  static boolean isNumericColId(String colId) {
+    return colId.matches("^-?\\d+$");
+  }
+
+  /**
+   * A method that searches all columns of each row of the CSV for items the matcher matches. A row
+   * is found once for every item of it that matches.
    *
-   * @param searchValue String representing the value to find in any column of a row
-   * @return List of String containing the rows where the searchValue is found exactly
+   * @param matcher ValueMatcher deciding which items to find in any column of a row
+   * @return List of String containing the rows where a matching item is found
    */
-  private List<List<String>> searchAllCols(boolean hasHeaders, String searchValue) {
+  private List<List<String>> searchAllCols(boolean hasHeaders, ValueMatcher matcher) {
     int start = hasHeaders ? 1 : 0;
+    if (index != null) {
+      return rowsById(matcher.rowsIn(index.getAllColumns(), start));
+    }
     List<List<String>> resultsData = new ArrayList<>();
     for (List<String> row : csvRows.subList(start, csvRows.size())) {
       for (String item : row) {
-        if (item.equals(searchValue)) {
+        if (matcher.matches(item)) {
           resultsData.add(row);
         }
       }
@@ -88,26 +148,32 @@ public class CsvSearcher {
   }
 
   /**
-   * A method that searches only one column, with index colIndex, and returns all rows where
-   * searchValue is found in the column with that index.
+   * A method that searches only one column, with index colIndex, and returns all rows where the
+   * item in the column with that index matches.
    *
-   * @param searchValue String representing the value to be found in its exact form
+   * @param matcher ValueMatcher deciding which items to find
    * @param colIdIsNum boolean representing whether column ID is numeric
    * @param colId String which the method includes in an error message if exception is thrown
-   * @return List of String of rows where searchValue in its exact form is found in the column with
-   *     index colIndex, or a List only containing an error String if fails
+   * @return List of String of rows where the item in the column with index colIndex matches
    */
   private List<List<String>> searchOneCol(
-      boolean hasHeaders, String searchValue, boolean colIdIsNum, String colId)
+      boolean hasHeaders, ValueMatcher matcher, boolean colIdIsNum, String colId)
       throws SearchException {
     int start = hasHeaders ? 1 : 0;
     List<List<String>> resultsData = new ArrayList<>();
     try {
       int colIndex = findColIndex(colIdIsNum, colId);
-      // For each row, get the item at the colIndex and check if it matches searchValue
+      if (index != null && colIndex >= 0) {
+        ColumnIndex column = index.getColumn(colIndex);
+        // A row without the column makes the scan below throw, so only use the index without one
+        if (column.getFirstShortRow() < start) {
+          return rowsById(matcher.rowsIn(column, start));
+        }
+      }
+      // For each row, get the item at the colIndex and check if it matches
       for (List<String> row : csvRows.subList(start, csvRows.size())) {
         String item = row.get(colIndex);
-        if (item.equals(searchValue)) {
+        if (matcher.matches(item)) {
           resultsData.add(row);
         }
       }
@@ -117,6 +183,20 @@ public class CsvSearcher {
     }
   }
 
+  /**
+   * A helper method that looks up the rows with the given ids.
+   *
+   * @param rowIds the row ids, in the order the rows should be returned
+   * @return List of the rows with those ids
+   */
+  private List<List<String>> rowsById(int[] rowIds) {
+    List<List<String>> resultsData = new ArrayList<>(rowIds.length);
+    for (int rowId : rowIds) {
+      resultsData.add(csvRows.get(rowId));
+    }
+    return resultsData;
+  }
+
   /**
    * A public method, which is called by the Main runner, which searches for searchValue in the
    * column(s) specified by colID, and returns a list of matching rows or a list containing an error
@@ -131,27 +211,36 @@ public class CsvSearcher {
    */
   public List<List<String>> search(boolean hasHeaders, String searchValue, String colId)
       throws SearchException {
-    boolean colIdIsNum = colId.matches("^-?\\d+$");
+    return search(hasHeaders, ValueMatcher.exact(searchValue), colId);
+  }
+
+  /**
+   * A method which searches the column(s) specified by colID for the items the matcher matches,
+   * such as those starting with a prefix or within a range, and returns a list of matching rows.
+   *
+   * @param hasHeaders boolean representing whether the CSV has a row of headers
+   * @param matcher ValueMatcher deciding which items to find
+   * @param colId String representing the column(s) to search, or * to search every column
+   * @return List of String containing the matching rows
+   * @throws SearchException if there is an issue with the search criteria given
+   */
+  public List<List<String>> search(boolean hasHeaders, ValueMatcher matcher, String colId)
+      throws SearchException {
+    boolean colIdIsNum = isNumericColId(colId);
     if (csvRows.isEmpty()) {
       // If there is no data, return an empty list
       return List.of();
     } else if (colId.equals("*")) {
       // Search all columns for the search value
-      List<List<String>> rowsFound = searchAllCols(hasHeaders, searchValue);
+      List<List<String>> rowsFound = searchAllCols(hasHeaders, matcher);
       return Collections.unmodifiableList(rowsFound);
     } else if (colIdIsNum || hasHeaders) {
       // Search the specified column for the search value
-      List<List<String>> rowsFound = searchOneCol(hasHeaders, searchValue, colIdIsNum, colId);
+      List<List<String>> rowsFound = searchOneCol(hasHeaders, matcher, colIdIsNum, colId);
       return Collections.unmodifiableList(rowsFound);
     } else {
       // Return list with error message to be passed along to main
-      int maxIndex = csvRows.get(0).size() - 1;
-      throw new SearchException(
-          "Cannot search non-numeric column "
-              + colId
-              + " if no headers. Can search numeric column identifiers between 0 and "
-              + maxIndex
-              + " inclusive.");
+      throw nonNumericWithoutHeaders(csvRows.get(0), colId);
     }
   }
 }
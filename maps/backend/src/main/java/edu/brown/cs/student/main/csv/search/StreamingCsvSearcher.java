@@ -0,0 +1,119 @@
+package edu.brown.cs.student.main.csv.search;
+
+import edu.brown.cs.student.main.csv.parse.RowVisitor;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * This is the StreamingCsvSearcher class, which searches CSV rows one at a time as a CsvParser
+ * reads them, so that a CSV can be searched without keeping its rows. The column to search is found
+ * from the first row, and every matching row after the headers is handed on to a Consumer right
+ * away. The rows found, and the errors thrown, are the same as those of CsvSearcher's search.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class StreamingCsvSearcher implements RowVisitor<List<String>, SearchException> {
+  private final boolean hasHeaders;
+  private final String searchValue;
+  private final String colId;
+  private final Consumer<List<String>> onMatch;
+  private boolean allColumns;
+  private int colIndex;
+  private boolean seenFirstRow;
+  private long matchCount;
+
+  /**
+   * Constructor for the StreamingCsvSearcher class.
+   *
+   * @param hasHeaders boolean representing whether the CSV has a row of headers
+   * @param searchValue String representing the value to be matched exactly in the CSV data
+   * @param colId String representing the column(s) to search for the exact appearance of
+   *     searchValue
+   * @param onMatch the Consumer given each matching row, once per matching item like search
+   */
+  public StreamingCsvSearcher(
+      boolean hasHeaders,
+      String searchValue,
+      String colId,
+      Consumer<List<String>> onMatch) {
+    this.hasHeaders = hasHeaders;
+    this.searchValue = searchValue;
+    this.colId = colId;
+    this.onMatch = onMatch;
+  }
+
+  /**
+   * A method that searches the next row of the CSV, finding the column to search from it first if
+   * it is the first row.
+   *
+   * @param row List of String representing the next row of the CSV
+   * @throws SearchException if there is an issue with the search criteria given
+   */
+  @Override
+  public void visit(List<String> row) throws SearchException {
+    if (!seenFirstRow) {
+      seenFirstRow = true;
+      allColumns = colId.equals("*");
+      if (!allColumns) {
+        colIndex = findColIndex(row);
+      }
+      if (hasHeaders) {
+        return;
+      }
+    }
+    if (allColumns) {
+      for (String item : row) {
+        if (item.equals(searchValue)) {
+          match(row);
+        }
+      }
+    } else {
+      try {
+        if (row.get(colIndex).equals(searchValue)) {
+          match(row);
+        }
+      } catch (IndexOutOfBoundsException ibe) {
+        throw new SearchException(ibe.getMessage());
+      }
+    }
+  }
+
+  /**
+   * A getter method for the number of matches handed on so far.
+   *
+   * @return the number of matches, counting a row once per matching item
+   */
+  public long getMatchCount() {
+    return this.matchCount;
+  }
+
+  /**
+   * A helper method that finds the column to search from the first row of the CSV.
+   *
+   * @param firstRow List of String representing the first row of the CSV
+   * @return the index of the column to search
+   * @throws SearchException if the column identifier does not fit the first row
+   */
+  private int findColIndex(List<String> firstRow) throws SearchException {
+    boolean colIdIsNum = CsvSearcher.isNumericColId(colId);
+    if (!colIdIsNum && !hasHeaders) {
+      throw CsvSearcher.nonNumericWithoutHeaders(firstRow, colId);
+    }
+    try {
+      return CsvSearcher.findColIndex(firstRow, colIdIsNum, colId);
+    } catch (IndexOutOfBoundsException ibe) {
+      throw new SearchException(ibe.getMessage());
+    }
+  }
+
+  /**
+   * A helper method that hands a matching row on.
+   *
+   * @param row List of String representing the matching row
+   */
+  private void match(List<String> row) {
+    matchCount++;
+    onMatch.accept(row);
+  }
+}
@@ -0,0 +1,90 @@
+package edu.brown.cs.student.main.csv.search;
+
+/**
+ * This is an interface that represents which values of a CSV column a search matches. A
+ * CsvSearcher asks a ValueMatcher both to check single items, when it scans the rows, and to find
+ * the matching rows in a ColumnIndex, when it has one, and both give the same rows.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public interface ValueMatcher {
+
+  /**
+   * A method that checks whether one item of a row matches.
+   *
+   * @param item the item to check, possibly null
+   * @return true if the item matches, false otherwise
+   */
+  boolean matches(String item);
+
+  /**
+   * A method that finds the matching rows in an index.
+   *
+   * @param index the ColumnIndex to look the rows up in
+   * @param start the first row to consider
+   * @return the ascending row ids of the matches, from start on
+   */
+  int[] rowsIn(ColumnIndex index, int start);
+
+  /**
+   * A method that matches items equal to a value, case sensitive.
+   *
+   * @param value the value to match
+   * @return the ValueMatcher for that value
+   */
+  static ValueMatcher exact(String value) {
+    return new ValueMatcher() {
+      @Override
+      public boolean matches(String item) {
+        return value.equals(item);
+      }
+
+      @Override
+      public int[] rowsIn(ColumnIndex index, int start) {
+        return index.rowsEqualTo(value, start);
+      }
+    };
+  }
+
+  /**
+   * A method that matches items starting with a prefix, case sensitive.
+   *
+   * @param prefix the prefix to match
+   * @return the ValueMatcher for that prefix
+   */
+  static ValueMatcher prefix(String prefix) {
+    return new ValueMatcher() {
+      @Override
+      public boolean matches(String item) {
+        return item != null && item.startsWith(prefix);
+      }
+
+      @Override
+      public int[] rowsIn(ColumnIndex index, int start) {
+        return index.rowsWithPrefix(prefix, start);
+      }
+    };
+  }
+
+  /**
+   * A method that matches items in the range [from, to) in String order.
+   *
+   * @param from the smallest value to match
+   * @param to the value after the largest to match
+   * @return the ValueMatcher for that range
+   */
+  static ValueMatcher range(String from, String to) {
+    return new ValueMatcher() {
+      @Override
+      public boolean matches(String item) {
+        return item != null && item.compareTo(from) >= 0 && item.compareTo(to) < 0;
+      }
+
+      @Override
+      public int[] rowsIn(ColumnIndex index, int start) {
+        return index.rowsInRange(from, to, start);
+      }
+    };
+  }
+}
@@ -0,0 +1,47 @@
+package edu.brown.cs.student.main.maps.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * This class holds the operations on posting lists that the indexes of this package share. A
+ * posting list is a sorted int array of the ids of the documents containing some term or trigram.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+final class PostingLists {
+
+  private PostingLists() {}
+
+  /**
+   * A helper method that intersects sorted posting lists, starting from the shortest list so the
+   * result only ever shrinks. The given lists are not changed.
+   *
+   * @param lists the posting lists to intersect, at least one
+   * @return the sorted ids contained in every list
+   */
+  static int[] intersect(List<int[]> lists) {
+    List<int[]> sorted = new ArrayList<>(lists);
+    sorted.sort(Comparator.comparingInt(list -> list.length));
+    int[] result = sorted.get(0).clone();
+    int size = result.length;
+    for (int i = 1; i < sorted.size() && size > 0; i++) {
+      int[] other = sorted.get(i);
+      int kept = 0;
+      int j = 0;
+      for (int k = 0; k < size; k++) {
+        while (j < other.length && other[j] < result[k]) {
+          j++;
+        }
+        if (j < other.length && other[j] == result[k]) {
+          result[kept++] = result[k];
+        }
+      }
+      size = kept;
+    }
+    return Arrays.copyOf(result, size);
+  }
+}
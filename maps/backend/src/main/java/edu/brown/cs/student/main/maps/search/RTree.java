@@ -0,0 +1,281 @@
+package edu.brown.cs.student.main.maps.search;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * This class is a packed, read-only R-tree over a fixed set of axis-aligned bounding boxes, built
+ * once with the Sort-Tile-Recursive (STR) bulk loading algorithm. Each box is identified by its
+ * index in the arrays passed to the constructor, so for map data the ids are feature indices.
+ *
+ * <p>The leaves are the item boxes themselves, sorted into STR order, and every internal node covers
+ * NODE_CAPACITY consecutive nodes of the level below. All node boxes are kept in one flat buffer
+ * of doubles, with no node objects, so a query is a walk over primitive values that only descends
+ * into nodes whose box intersects the query box. A tree can be written out once and read back as
+ * views of a mapped file, in which case its nodes are never copied onto the heap.
+ *
+ * <p>Boxes with a minimum greater than their maximum (e.g. a geometry with no points) have no
+ * extent, are not stored in the tree, and are never returned by search.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class RTree {
+
+  // Maximum number of children of each node
+  static final int NODE_CAPACITY = 16;
+
+  // Node boxes for every level, leaves first, stored as minX, minY, maxX, maxY
+  private final DoubleBuffer boxes;
+  // Item id of each leaf, in STR order
+  private final IntBuffer ids;
+  // Index of the first node of each level, plus the total node count at the end
+  private final int[] levelStarts;
+
+  /**
+   * Constructor for the RTree class, which bulk loads the tree from parallel arrays of item boxes.
+   * All four arrays must have the same length.
+   *
+   * @param minX the minimum x (longitude) of each item
+   * @param minY the minimum y (latitude) of each item
+   * @param maxX the maximum x (longitude) of each item
+   * @param maxY the maximum y (latitude) of each item
+   */
+  public RTree(double[] minX, double[] minY, double[] maxX, double[] maxY) {
+    int n = 0;
+    int[] nonEmpty = new int[minX.length];
+    for (int i = 0; i < minX.length; i++) {
+      if (minX[i] <= maxX[i] && minY[i] <= maxY[i]) {
+        nonEmpty[n++] = i;
+      }
+    }
+    int[] ids = sortTileRecursive(Arrays.copyOf(nonEmpty, n), minX, minY, maxX, maxY);
+    this.ids = IntBuffer.wrap(ids);
+
+    // Count the nodes on every level, from the leaves up to a single root
+    int levels = 1;
+    int total = n;
+    for (int count = n; count > 1; count = ceilDiv(count, NODE_CAPACITY)) {
+      levels++;
+      total += ceilDiv(count, NODE_CAPACITY);
+    }
+    this.levelStarts = new int[levels + 1];
+    this.boxes = DoubleBuffer.wrap(new double[4 * total]);
+
+    // Leaves are copies of the item boxes in STR order
+    for (int i = 0; i < n; i++) {
+      int id = ids[i];
+      setBox(i, minX[id], minY[id], maxX[id], maxY[id]);
+    }
+    levelStarts[1] = n;
+
+    // Each parent covers NODE_CAPACITY consecutive nodes of the level below
+    for (int level = 1; level < levels; level++) {
+      int childStart = levelStarts[level - 1];
+      int childEnd = levelStarts[level];
+      int node = childEnd;
+      for (int child = childStart; child < childEnd; child += NODE_CAPACITY, node++) {
+        double nodeMinX = Double.POSITIVE_INFINITY;
+        double nodeMinY = Double.POSITIVE_INFINITY;
+        double nodeMaxX = Double.NEGATIVE_INFINITY;
+        double nodeMaxY = Double.NEGATIVE_INFINITY;
+        for (int c = child; c < Math.min(child + NODE_CAPACITY, childEnd); c++) {
+          nodeMinX = Math.min(nodeMinX, boxes.get(4 * c));
+          nodeMinY = Math.min(nodeMinY, boxes.get(4 * c + 1));
+          nodeMaxX = Math.max(nodeMaxX, boxes.get(4 * c + 2));
+          nodeMaxY = Math.max(nodeMaxY, boxes.get(4 * c + 3));
+        }
+        setBox(node, nodeMinX, nodeMinY, nodeMaxX, nodeMaxY);
+      }
+      levelStarts[level + 1] = node;
+    }
+  }
+
+  /**
+   * Constructor for the RTree class, which wraps the nodes of a tree that was already built.
+   *
+   * @param boxes the node boxes of every level, leaves first
+   * @param ids the item id of each leaf
+   * @param levelStarts the index of the first node of each level, plus the total node count
+   */
+  private RTree(DoubleBuffer boxes, IntBuffer ids, int[] levelStarts) {
+    this.boxes = boxes;
+    this.ids = ids;
+    this.levelStarts = levelStarts;
+  }
+
+  /**
+   * A method that writes the tree, to be read back by read: the level count and level starts, the
+   * leaf count and leaf ids, then the node boxes.
+   *
+   * @param out the stream to write to
+   * @throws IOException if writing fails
+   */
+  public void write(DataOutputStream out) throws IOException {
+    out.writeInt(levelStarts.length);
+    for (int levelStart : levelStarts) {
+      out.writeInt(levelStart);
+    }
+    out.writeInt(ids.limit());
+    for (int i = 0; i < ids.limit(); i++) {
+      out.writeInt(ids.get(i));
+    }
+    for (int i = 0; i < boxes.limit(); i++) {
+      out.writeDouble(boxes.get(i));
+    }
+  }
+
+  /**
+   * A method that reads a tree written by write from a buffer, such as a mapped file, and moves the
+   * buffer past it. The leaf ids and node boxes are views of the buffer rather than copies, so
+   * reading takes the same time however many items the tree holds.
+   *
+   * @param buffer the buffer, positioned at the tree
+   * @return the tree
+   */
+  public static RTree read(ByteBuffer buffer) {
+    int[] levelStarts = new int[buffer.getInt()];
+    for (int level = 0; level < levelStarts.length; level++) {
+      levelStarts[level] = buffer.getInt();
+    }
+    int leafCount = buffer.getInt();
+    IntBuffer ids = buffer.slice(buffer.position(), 4 * leafCount).asIntBuffer();
+    buffer.position(buffer.position() + 4 * leafCount);
+    int nodeCount = levelStarts[levelStarts.length - 1];
+    DoubleBuffer boxes = buffer.slice(buffer.position(), 32 * nodeCount).asDoubleBuffer();
+    buffer.position(buffer.position() + 32 * nodeCount);
+    return new RTree(boxes, ids, levelStarts);
+  }
+
+  /**
+   * A method that finds every item whose box intersects the given query box (touching edges count
+   * as intersecting).
+   *
+   * @param minX the minimum x (longitude) of the query box
+   * @param minY the minimum y (latitude) of the query box
+   * @param maxX the maximum x (longitude) of the query box
+   * @param maxY the maximum y (latitude) of the query box
+   * @return the ids of the intersecting items, in ascending order
+   */
+  public int[] search(double minX, double minY, double maxX, double maxY) {
+    if (ids.limit() == 0) {
+      return new int[0];
+    }
+    int[] found = new int[16];
+    int foundCount = 0;
+    int levels = levelStarts.length - 1;
+
+    // Stack of (node, level) pairs still to visit, starting at the root
+    int[] stack = new int[2 * NODE_CAPACITY * levels + 2];
+    int top = 0;
+    stack[top++] = levelStarts[levels - 1];
+    stack[top++] = levels - 1;
+    while (top > 0) {
+      int level = stack[--top];
+      int node = stack[--top];
+      if (!intersects(node, minX, minY, maxX, maxY)) {
+        continue;
+      }
+      if (level == 0) {
+        if (foundCount == found.length) {
+          found = Arrays.copyOf(found, 2 * foundCount);
+        }
+        found[foundCount++] = ids.get(node);
+        continue;
+      }
+      int firstChild = levelStarts[level - 1] + (node - levelStarts[level]) * NODE_CAPACITY;
+      int lastChild = Math.min(firstChild + NODE_CAPACITY, levelStarts[level]);
+      for (int child = firstChild; child < lastChild; child++) {
+        stack[top++] = child;
+        stack[top++] = level - 1;
+      }
+    }
+    int[] result = Arrays.copyOf(found, foundCount);
+    Arrays.sort(result);
+    return result;
+  }
+
+  /**
+   * A getter method for the number of items stored in the tree.
+   *
+   * @return the number of items with a non-empty box
+   */
+  public int size() {
+    return ids.limit();
+  }
+
+  /**
+   * A helper method that checks whether the box of the given node intersects the query box.
+   *
+   * @param node the index of the node in the boxes array
+   * @param minX the minimum x of the query box
+   * @param minY the minimum y of the query box
+   * @param maxX the maximum x of the query box
+   * @param maxY the maximum y of the query box
+   * @return true if the boxes intersect, false otherwise
+   */
+  private boolean intersects(int node, double minX, double minY, double maxX, double maxY) {
+    return boxes.get(4 * node) <= maxX
+        && boxes.get(4 * node + 1) <= maxY
+        && boxes.get(4 * node + 2) >= minX
+        && boxes.get(4 * node + 3) >= minY;
+  }
+
+  /**
+   * A helper method that stores the box of the given node.
+   *
+   * @param node the index of the node in the boxes array
+   * @param minX the minimum x of the box
+   * @param minY the minimum y of the box
+   * @param maxX the maximum x of the box
+   * @param maxY the maximum y of the box
+   */
+  private void setBox(int node, double minX, double minY, double maxX, double maxY) {
+    boxes.put(4 * node, minX);
+    boxes.put(4 * node + 1, minY);
+    boxes.put(4 * node + 2, maxX);
+    boxes.put(4 * node + 3, maxY);
+  }
+
+  /**
+   * A helper method that orders the items with the STR algorithm: sort by x center, cut into
+   * vertical slices of whole leaves, then sort each slice by y center, so that each run of
+   * NODE_CAPACITY items is spatially close together.
+   *
+   * @param items the ids of the items to order
+   * @param minX the minimum x of each item
+   * @param minY the minimum y of each item
+   * @param maxX the maximum x of each item
+   * @param maxY the maximum y of each item
+   * @return the item ids in STR order
+   */
+  private static int[] sortTileRecursive(
+      int[] items, double[] minX, double[] minY, double[] maxX, double[] maxY) {
+    Integer[] order = Arrays.stream(items).boxed().toArray(Integer[]::new);
+    Arrays.sort(order, Comparator.comparingDouble(i -> minX[i] + maxX[i]));
+    int leafCount = ceilDiv(items.length, NODE_CAPACITY);
+    int sliceCount = (int) Math.ceil(Math.sqrt(leafCount));
+    int sliceSize = sliceCount * NODE_CAPACITY;
+    for (int start = 0; start < order.length; start += sliceSize) {
+      int end = Math.min(start + sliceSize, order.length);
+      Arrays.sort(order, start, end, Comparator.comparingDouble(i -> minY[i] + maxY[i]));
+    }
+    return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * A helper method for integer division rounding up.
+   *
+   * @param a the dividend
+   * @param b the divisor
+   * @return a divided by b, rounded up
+   */
+  private static int ceilDiv(int a, int b) {
+    return (a + b - 1) / b;
+  }
+}
@@ -0,0 +1,147 @@
+package edu.brown.cs.student.main.maps.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class is a read-only inverted index from words to the documents containing them, built
+ * once from a fixed list of texts. Each document is identified by its index in that list, so for
+ * map data the ids are feature indices.
+ *
+ * <p>Texts are split into terms on every character that is not a letter or digit, and terms are
+ * lowercased. Each term maps to a sorted int array of the ids containing it, so queries only touch
+ * the posting lists of the query terms, and cost time proportional to those lists rather than to
+ * the number of documents.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TermIndex {
+
+  private static final int[] NO_IDS = new int[0];
+
+  // Sorted ids of the documents containing each term
+  private final Map<String, int[]> postings;
+
+  /**
+   * Constructor for the TermIndex class, which tokenizes and indexes every document.
+   *
+   * @param documents the text of each document; a null text has no terms
+   */
+  public TermIndex(List<String> documents) {
+    Map<String, List<Integer>> building = new HashMap<>();
+    for (int id = 0; id < documents.size(); id++) {
+      for (String term : tokenize(documents.get(id))) {
+        building.computeIfAbsent(term, t -> new ArrayList<>()).add(id);
+      }
+    }
+    this.postings = new HashMap<>(building.size());
+    for (Map.Entry<String, List<Integer>> entry : building.entrySet()) {
+      // Ids were added in increasing order, so each list is already sorted
+      this.postings.put(
+          entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+    }
+  }
+
+  /**
+   * A method that splits text into its distinct lowercased terms, in order of first appearance.
+   *
+   * @param text the text to split, possibly null
+   * @return the distinct terms of the text, empty if it has none
+   */
+  public static List<String> tokenize(String text) {
+    if (text == null) {
+      return List.of();
+    }
+    LinkedHashSet<String> terms = new LinkedHashSet<>();
+    for (String term : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+      if (!term.isEmpty()) {
+        terms.add(term);
+      }
+    }
+    return new ArrayList<>(terms);
+  }
+
+  /**
+   * A method that finds the documents containing a single term.
+   *
+   * @param term the term to look up, which is lowercased first
+   * @return the sorted ids of the documents containing the term
+   */
+  public int[] search(String term) {
+    return postings.getOrDefault(term.toLowerCase(), NO_IDS).clone();
+  }
+
+  /**
+   * A method that finds the documents containing every term of the query (an AND query). A query
+   * with no terms matches nothing.
+   *
+   * @param query the query text, which is tokenized like the documents
+   * @return the sorted ids of the documents containing all of the query's terms
+   */
+  public int[] searchAll(String query) {
+    List<int[]> lists = postingLists(query);
+    if (lists.isEmpty()) {
+      return NO_IDS;
+    }
+    return PostingLists.intersect(lists);
+  }
+
+  /**
+   * A method that finds the documents containing at least one term of the query (an OR query).
+   *
+   * @param query the query text, which is tokenized like the documents
+   * @return the sorted ids of the documents containing any of the query's terms
+   */
+  public int[] searchAny(String query) {
+    int[] result = NO_IDS;
+    for (int[] list : postingLists(query)) {
+      // Merge the two sorted lists, dropping duplicates
+      int[] merged = new int[result.length + list.length];
+      int size = 0;
+      int i = 0;
+      int j = 0;
+      while (i < result.length || j < list.length) {
+        int next;
+        if (j == list.length || (i < result.length && result[i] <= list[j])) {
+          next = result[i++];
+        } else {
+          next = list[j++];
+        }
+        if (size == 0 || merged[size - 1] != next) {
+          merged[size++] = next;
+        }
+      }
+      result = Arrays.copyOf(merged, size);
+    }
+    return result;
+  }
+
+  /**
+   * A getter method for the number of distinct terms in the index.
+   *
+   * @return the number of terms
+   */
+  public int size() {
+    return postings.size();
+  }
+
+  /**
+   * A helper method that looks up the posting list of every term of a query. A term with no
+   * documents gives an empty list.
+   *
+   * @param query the query text
+   * @return the posting lists of the query's terms
+   */
+  private List<int[]> postingLists(String query) {
+    List<int[]> lists = new ArrayList<>();
+    for (String term : tokenize(query)) {
+      lists.add(postings.getOrDefault(term, NO_IDS));
+    }
+    return lists;
+  }
+}
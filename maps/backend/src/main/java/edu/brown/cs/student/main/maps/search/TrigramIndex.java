@@ -0,0 +1,124 @@
+package edu.brown.cs.student.main.maps.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class is a read-only trigram index over a fixed list of texts, for finding the texts that
+ * contain a substring, ignoring case. Each document is identified by its index in that list, so
+ * for map data the ids are feature indices.
+ *
+ * <p>Every run of three characters of each lowercased text maps to a sorted int array of the ids
+ * containing it. Any text containing a query also contains every trigram of the query, so a search
+ * intersects the query's posting lists to get a small set of candidates, then checks each one with
+ * String.contains. Results are therefore exactly those of calling contains on every text, and
+ * queries shorter than three characters fall back to doing just that.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TrigramIndex {
+
+  private static final int[] NO_IDS = new int[0];
+
+  // The lowercased text of each document, null for documents with no text
+  private final String[] texts;
+  // Sorted ids of the documents containing each trigram
+  private final Map<Long, int[]> postings;
+
+  /**
+   * Constructor for the TrigramIndex class, which lowercases and indexes every document.
+   *
+   * @param documents the text of each document; a null text never matches
+   */
+  public TrigramIndex(List<String> documents) {
+    this.texts = new String[documents.size()];
+    Map<Long, List<Integer>> building = new HashMap<>();
+    for (int id = 0; id < documents.size(); id++) {
+      if (documents.get(id) == null) {
+        continue;
+      }
+      texts[id] = documents.get(id).toLowerCase();
+      for (long trigram : trigrams(texts[id])) {
+        building.computeIfAbsent(trigram, t -> new ArrayList<>()).add(id);
+      }
+    }
+    this.postings = new HashMap<>(building.size());
+    for (Map.Entry<Long, List<Integer>> entry : building.entrySet()) {
+      // Ids were added in increasing order, so each list is already sorted
+      this.postings.put(
+          entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+    }
+  }
+
+  /**
+   * A method that finds the documents whose text contains the query, ignoring case.
+   *
+   * @param query the substring to search for
+   * @return the sorted ids of the documents containing the query
+   */
+  public int[] search(String query) {
+    String lowerQuery = query.toLowerCase();
+    int[] candidates = lowerQuery.length() < 3 ? null : candidates(lowerQuery);
+
+    // Check every candidate, or every document if the query was too short to use the index
+    int count = candidates == null ? texts.length : candidates.length;
+    int[] result = new int[count];
+    int size = 0;
+    for (int i = 0; i < count; i++) {
+      int id = candidates == null ? i : candidates[i];
+      if (texts[id] != null && texts[id].contains(lowerQuery)) {
+        result[size++] = id;
+      }
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  /**
+   * A getter method for the number of distinct trigrams in the index.
+   *
+   * @return the number of trigrams
+   */
+  public int size() {
+    return postings.size();
+  }
+
+  /**
+   * A helper method that intersects the posting lists of every trigram of a query, starting from
+   * the shortest list.
+   *
+   * @param lowerQuery the lowercased query, at least three characters long
+   * @return the sorted ids of the documents containing every trigram of the query
+   */
+  private int[] candidates(String lowerQuery) {
+    List<int[]> lists = new ArrayList<>();
+    for (long trigram : trigrams(lowerQuery)) {
+      int[] list = postings.get(trigram);
+      if (list == null) {
+        return NO_IDS;
+      }
+      lists.add(list);
+    }
+    return PostingLists.intersect(lists);
+  }
+
+  /**
+   * A helper method that finds the distinct trigrams of a text, each packed into a long as three
+   * 16-bit chars.
+   *
+   * @param text the text to split
+   * @return the distinct trigrams of the text
+   */
+  private static LinkedHashSet<Long> trigrams(String text) {
+    LinkedHashSet<Long> trigrams = new LinkedHashSet<>();
+    for (int i = 0; i + 3 <= text.length(); i++) {
+      trigrams.add(
+          ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+    }
+    return trigrams;
+  }
+}
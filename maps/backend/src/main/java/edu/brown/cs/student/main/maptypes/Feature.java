@@ -1,5 +1,6 @@
 package edu.brown.cs.student.main.maptypes;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -17,6 +18,13 @@ public class Feature {
   private Geometry geometry;
   private Properties properties;
 
+  // Constructor used by FeatureSnapshot when decoding a feature from a binary snapshot.
+  Feature(String type, Geometry geometry, Properties properties) {
+    this.type = type;
+    this.geometry = geometry;
+    this.properties = properties;
+  }
+
   // Getter methods for fields
   public String getType(String type) {
     return this.type;
@@ -29,18 +37,73 @@ public class Feature {
   public Properties getProperties() {
     return this.properties;
   }
+  /*
+   * The Geometry class stores a MultiPolygon in packed form instead of as nested lists of boxed
+   * Doubles. Every point is two doubles (longitude, latitude) in one flat array, ringStarts holds
+   * the index of the first point of each ring, and polygonStarts holds the index of the first ring
+   * of each polygon; both end with one extra entry marking the end. GeometryAdapter reads GEOJSON
+   * straight into this form and writes it back out as the usual nested coordinates.
+   */
   public static class Geometry {
-    private String type;
-    private List<List<List<List<Double>>>> coordinates;
+    private final String type;
+    private final double[] points;
+    private final int[] ringStarts;
+    private final int[] polygonStarts;
+
+    // Constructor used by GeometryAdapter once it has packed the coordinates.
+    Geometry(String type, double[] points, int[] ringStarts, int[] polygonStarts) {
+      this.type = type;
+      this.points = points;
+      this.ringStarts = ringStarts;
+      this.polygonStarts = polygonStarts;
+    }
 
     // Accessor method for retrieving the type of geometry.
     public String getType() {
       return type;
     }
 
-    // Accessor method for retrieving the immutable list of coordinates.
+    // Accessor methods for the packed points, without boxing.
+    public int getPointCount() {
+      return points.length / 2;
+    }
+
+    public double getLng(int point) {
+      return points[2 * point];
+    }
+
+    public double getLat(int point) {
+      return points[2 * point + 1];
+    }
+
+    // Accessor methods for the ring and polygon structure of the packed points.
+    public int getPolygonCount() {
+      return polygonStarts.length - 1;
+    }
+
+    public int getRingStart(int ring) {
+      return ringStarts[ring];
+    }
+
+    public int getPolygonStart(int polygon) {
+      return polygonStarts[polygon];
+    }
+
+    // Accessor method for retrieving an immutable copy of the coordinates as nested lists.
     public List<List<List<List<Double>>>> getCoordinates() {
-      return Collections.unmodifiableList(coordinates);
+      List<List<List<List<Double>>>> polygons = new ArrayList<>(getPolygonCount());
+      for (int polygon = 0; polygon < getPolygonCount(); polygon++) {
+        List<List<List<Double>>> rings = new ArrayList<>();
+        for (int ring = polygonStarts[polygon]; ring < polygonStarts[polygon + 1]; ring++) {
+          List<List<Double>> ringPoints = new ArrayList<>();
+          for (int point = ringStarts[ring]; point < ringStarts[ring + 1]; point++) {
+            ringPoints.add(List.of(getLng(point), getLat(point)));
+          }
+          rings.add(Collections.unmodifiableList(ringPoints));
+        }
+        polygons.add(Collections.unmodifiableList(rings));
+      }
+      return Collections.unmodifiableList(polygons);
     }
   }
 
@@ -54,6 +117,18 @@ public class Feature {
     private int neighborhood_id;
     private Map<String,String> area_description_data;
 
+    // Constructor used by FeatureSnapshot when decoding properties from a binary snapshot.
+    Properties(String state, String city, String name, String holc_id, String holc_grade,
+        int neighborhood_id, Map<String, String> area_description_data) {
+      this.state = state;
+      this.city = city;
+      this.name = name;
+      this.holc_id = holc_id;
+      this.holc_grade = holc_grade;
+      this.neighborhood_id = neighborhood_id;
+      this.area_description_data = area_description_data;
+    }
+
     public String getState() {
       return state;
     }
@@ -13,6 +13,11 @@ public class FeatureCollection {
     // Instance variable to store a list of map features.
     private List<Feature> features;
 
+    // Constructor for a collection of features that were parsed one at a time.
+    public FeatureCollection(List<Feature> features) {
+        this.features = features;
+    }
+
     // Accessor method for retrieving an immutable list of features.
     public List<Feature> getFeatures() {
         return Collections.unmodifiableList(features);
@@ -0,0 +1,650 @@
+package edu.brown.cs.student.main.maptypes;
+
+import edu.brown.cs.student.main.maps.search.RTree;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * This class reads and writes a compact binary snapshot of parsed GEOJSON features, so a server
+ * can skip JSON parsing on later starts. A snapshot is written once from the parsed features and
+ * then opened with FileChannel.map. Opening it only reads the header: the envelopes, the R-tree,
+ * and the String table are served as views of the mapped region, and a Feature is only decoded,
+ * with a walk over primitive values, when a query returns it. Opening therefore takes the same
+ * time however many features the snapshot holds.
+ *
+ * <p>The file holds, in order: a header (magic number, format version, the length and last
+ * modified time of the source GEOJSON, and the feature and string counts); a string table with
+ * the byte offset of every distinct String of the features' types and properties, followed by
+ * their bytes; the envelope arrays (minimum and maximum latitude and longitude of each feature);
+ * the ids of the features whose geometry has no points; the RTree of the envelopes; the byte
+ * offset of each feature's record; and one record per feature, with its String table ids, its
+ * neighborhood id, and its packed polygon offsets, ring offsets, and coordinates.
+ *
+ * <p>A snapshot whose header does not match the source it is opened for is treated as stale.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class FeatureSnapshot {
+
+  // "HOLC" in ASCII
+  static final int MAGIC = 0x484F4C43;
+  static final int VERSION = 2;
+  private static final int HEADER_LENGTH = 32;
+
+  // String table id written for a null String
+  private static final int NULL_STRING = -1;
+
+  private final ByteBuffer buffer;
+  private final int featureCount;
+  // Offset of each String in the String bytes, plus the end of the last one
+  private final IntBuffer stringOffsets;
+  private final int stringsStart;
+  private final DoubleBuffer minLat;
+  private final DoubleBuffer maxLat;
+  private final DoubleBuffer minLng;
+  private final DoubleBuffer maxLng;
+  private final IntBuffer emptyGeometryIds;
+  private final RTree spatialIndex;
+  // Position of each feature's record in the buffer
+  private final IntBuffer recordOffsets;
+  private final List<Feature> features;
+
+  /**
+   * Constructor for the FeatureSnapshot class, holding the views of a mapped snapshot.
+   *
+   * @param buffer the mapped snapshot
+   * @param featureCount the number of features
+   * @param stringOffsets the offset of each String in the String bytes, plus the end of the last
+   * @param stringsStart the position of the String bytes in the buffer
+   * @param envelopes the minimum latitude, maximum latitude, minimum longitude, and maximum
+   *     longitude of each feature
+   * @param emptyGeometryIds the ids of the features whose geometry has no points
+   * @param spatialIndex the RTree of the envelopes
+   * @param recordOffsets the position of each feature's record in the buffer
+   */
+  private FeatureSnapshot(
+      ByteBuffer buffer,
+      int featureCount,
+      IntBuffer stringOffsets,
+      int stringsStart,
+      DoubleBuffer[] envelopes,
+      IntBuffer emptyGeometryIds,
+      RTree spatialIndex,
+      IntBuffer recordOffsets) {
+    this.buffer = buffer;
+    this.featureCount = featureCount;
+    this.stringOffsets = stringOffsets;
+    this.stringsStart = stringsStart;
+    this.minLat = envelopes[0];
+    this.maxLat = envelopes[1];
+    this.minLng = envelopes[2];
+    this.maxLng = envelopes[3];
+    this.emptyGeometryIds = emptyGeometryIds;
+    this.spatialIndex = spatialIndex;
+    this.recordOffsets = recordOffsets;
+    this.features =
+        new AbstractList<>() {
+          @Override
+          public Feature get(int index) {
+            return getFeature(index);
+          }
+
+          @Override
+          public int size() {
+            return featureCount;
+          }
+        };
+  }
+
+  /**
+   * A method that writes features and their envelopes to a snapshot file, along with an RTree of
+   * the envelopes. The file is written next to its destination first and then moved into place,
+   * so a reader never sees a partial snapshot.
+   *
+   * @param path the snapshot file to write
+   * @param sourceLength the length in bytes of the source GEOJSON
+   * @param sourceModified the last modified time of the source GEOJSON
+   * @param features the parsed features
+   * @param minLat the minimum latitude of each feature
+   * @param maxLat the maximum latitude of each feature
+   * @param minLng the minimum longitude of each feature
+   * @param maxLng the maximum longitude of each feature
+   * @throws IOException if the file cannot be written, or would be too large to map
+   */
+  public static void write(
+      Path path,
+      long sourceLength,
+      long sourceModified,
+      List<Feature> features,
+      double[] minLat,
+      double[] maxLat,
+      double[] minLng,
+      double[] maxLng)
+      throws IOException {
+    // Number every distinct String in order of first use
+    Map<String, Integer> stringIds = new HashMap<>();
+    List<byte[]> strings = new ArrayList<>();
+    for (Feature feature : features) {
+      for (String string : strings(feature)) {
+        if (string != null && !stringIds.containsKey(string)) {
+          stringIds.put(string, strings.size());
+          strings.add(string.getBytes(StandardCharsets.UTF_8));
+        }
+      }
+    }
+    List<Integer> emptyGeometryIds = new ArrayList<>();
+    for (int id = 0; id < features.size(); id++) {
+      Feature.Geometry geometry = features.get(id).getGeometry();
+      if (geometry != null && geometry.getPointCount() == 0) {
+        emptyGeometryIds.add(id);
+      }
+    }
+    RTree spatialIndex = new RTree(minLng, minLat, maxLng, maxLat);
+
+    Path absolute = path.toAbsolutePath();
+    if (absolute.getParent() != null) {
+      Files.createDirectories(absolute.getParent());
+    }
+    Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(sourceLength);
+      out.writeLong(sourceModified);
+      out.writeInt(features.size());
+      out.writeInt(strings.size());
+
+      int stringOffset = 0;
+      out.writeInt(stringOffset);
+      for (byte[] string : strings) {
+        stringOffset += string.length;
+        out.writeInt(stringOffset);
+      }
+      for (byte[] string : strings) {
+        out.write(string);
+      }
+
+      for (double[] envelope : new double[][] {minLat, maxLat, minLng, maxLng}) {
+        for (double value : envelope) {
+          out.writeDouble(value);
+        }
+      }
+
+      out.writeInt(emptyGeometryIds.size());
+      for (int id : emptyGeometryIds) {
+        out.writeInt(id);
+      }
+
+      spatialIndex.write(out);
+
+      // Records start right after their offsets, and their lengths are known before writing them
+      long recordOffset = (long) out.size() + 4L * features.size();
+      for (Feature feature : features) {
+        if (recordOffset > Integer.MAX_VALUE) {
+          throw new IOException("The features are too large for one snapshot.");
+        }
+        out.writeInt((int) recordOffset);
+        recordOffset += recordLength(feature);
+      }
+      if (recordOffset > Integer.MAX_VALUE) {
+        throw new IOException("The features are too large for one snapshot.");
+      }
+
+      for (Feature feature : features) {
+        out.writeInt(id(stringIds, feature.getType(null)));
+        writeGeometry(out, stringIds, feature.getGeometry());
+        writeProperties(out, stringIds, feature.getProperties());
+      }
+    }
+    Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * A method that maps a snapshot file into memory. Only the header and the RTree's level starts
+   * are read; everything else is served from the mapped region as it is asked for.
+   *
+   * @param path the snapshot file to open
+   * @param sourceLength the length in bytes of the source GEOJSON the snapshot should match
+   * @param sourceModified the last modified time of the source GEOJSON the snapshot should match
+   * @return the mapped snapshot, or null if the file does not exist, is not a snapshot of this
+   *     version, or was written from a different source
+   * @throws IOException if the file cannot be read, is truncated, or is too large to map
+   */
+  public static FeatureSnapshot open(Path path, long sourceLength, long sourceModified)
+      throws IOException {
+    if (!Files.isRegularFile(path)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_LENGTH) {
+        return null;
+      }
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("The snapshot is too large to map.");
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC
+          || buffer.getInt() != VERSION
+          || buffer.getLong() != sourceLength
+          || buffer.getLong() != sourceModified) {
+        return null;
+      }
+      try {
+        int featureCount = buffer.getInt();
+        int stringCount = buffer.getInt();
+        IntBuffer stringOffsets = intView(buffer, stringCount + 1);
+        int stringsStart = buffer.position();
+        buffer.position(stringsStart + stringOffsets.get(stringCount));
+        DoubleBuffer[] envelopes = new DoubleBuffer[4];
+        for (int i = 0; i < envelopes.length; i++) {
+          envelopes[i] = doubleView(buffer, featureCount);
+        }
+        IntBuffer emptyGeometryIds = intView(buffer, buffer.getInt());
+        RTree spatialIndex = RTree.read(buffer);
+        IntBuffer recordOffsets = intView(buffer, featureCount);
+        return new FeatureSnapshot(
+            buffer,
+            featureCount,
+            stringOffsets,
+            stringsStart,
+            envelopes,
+            emptyGeometryIds,
+            spatialIndex,
+            recordOffsets);
+      } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+        throw new IOException("The snapshot is truncated.");
+      }
+    }
+  }
+
+  /**
+   * A getter method for the features, which are decoded from the mapped region each time one is
+   * read from the returned list.
+   *
+   * @return an unmodifiable List of the features, in the order they were written
+   */
+  public List<Feature> getFeatures() {
+    return this.features;
+  }
+
+  /**
+   * A method that decodes one feature from its record.
+   *
+   * @param id the index of the feature
+   * @return the decoded feature
+   */
+  public Feature getFeature(int id) {
+    ByteBuffer record = recordAt(id);
+    String type = string(record.getInt());
+    Feature.Geometry geometry = readGeometry(record);
+    Feature.Properties properties = readProperties(record);
+    return new Feature(type, geometry, properties);
+  }
+
+  /**
+   * A method that decodes only the properties of one feature, skipping over its coordinates.
+   *
+   * @param id the index of the feature
+   * @return the decoded properties, or null if the feature has none
+   */
+  public Feature.Properties getProperties(int id) {
+    ByteBuffer record = recordAt(id);
+    record.getInt();
+    if (record.get() != 0) {
+      record.getInt();
+      int polygonCount = record.getInt();
+      int ringCount = record.getInt();
+      int pointCount = record.getInt();
+      record.position(record.position() + 4 * (polygonCount + ringCount + 2) + 16 * pointCount);
+    }
+    return readProperties(record);
+  }
+
+  /**
+   * A getter method for the number of features.
+   *
+   * @return the number of features in the snapshot
+   */
+  public int size() {
+    return this.featureCount;
+  }
+
+  /**
+   * A getter method for the minimum latitude of each feature.
+   *
+   * @return a read-only view of the minimum latitudes, indexed like getFeatures()
+   */
+  public DoubleBuffer getMinLat() {
+    return this.minLat;
+  }
+
+  /**
+   * A getter method for the maximum latitude of each feature.
+   *
+   * @return a read-only view of the maximum latitudes, indexed like getFeatures()
+   */
+  public DoubleBuffer getMaxLat() {
+    return this.maxLat;
+  }
+
+  /**
+   * A getter method for the minimum longitude of each feature.
+   *
+   * @return a read-only view of the minimum longitudes, indexed like getFeatures()
+   */
+  public DoubleBuffer getMinLng() {
+    return this.minLng;
+  }
+
+  /**
+   * A getter method for the maximum longitude of each feature.
+   *
+   * @return a read-only view of the maximum longitudes, indexed like getFeatures()
+   */
+  public DoubleBuffer getMaxLng() {
+    return this.maxLng;
+  }
+
+  /**
+   * A getter method for the features whose geometry has no points, which the RTree leaves out.
+   *
+   * @return a read-only view of their ids, in ascending order
+   */
+  public IntBuffer getEmptyGeometryIds() {
+    return this.emptyGeometryIds;
+  }
+
+  /**
+   * A getter method for the RTree of the envelopes, which is served from the mapped region.
+   *
+   * @return the RTree, whose item ids index getFeatures()
+   */
+  public RTree getSpatialIndex() {
+    return this.spatialIndex;
+  }
+
+  /**
+   * A helper method that gives a buffer positioned at the record of a feature. Each call has its
+   * own position, so features can be decoded by many threads at once.
+   *
+   * @param id the index of the feature
+   * @return a buffer positioned at the feature's record
+   */
+  private ByteBuffer recordAt(int id) {
+    Objects.checkIndex(id, featureCount);
+    return buffer.duplicate().position(recordOffsets.get(id));
+  }
+
+  /**
+   * A helper method that decodes a String of the String table.
+   *
+   * @param id the String table id, possibly NULL_STRING
+   * @return the String, or null for NULL_STRING
+   */
+  private String string(int id) {
+    if (id == NULL_STRING) {
+      return null;
+    }
+    int start = stringOffsets.get(id);
+    byte[] bytes = new byte[stringOffsets.get(id + 1) - start];
+    buffer.get(stringsStart + start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * A helper method that gives the length of the record writeGeometry and writeProperties write
+   * for a feature, so record offsets can be written before the records.
+   *
+   * @param feature the feature
+   * @return the length of its record in bytes
+   */
+  private static long recordLength(Feature feature) {
+    long length = 4 + 1 + 1;
+    Feature.Geometry geometry = feature.getGeometry();
+    if (geometry != null) {
+      int polygonCount = geometry.getPolygonCount();
+      int ringCount = geometry.getPolygonStart(polygonCount);
+      length += 16 + 4L * (polygonCount + ringCount + 2) + 16L * geometry.getPointCount();
+    }
+    Feature.Properties properties = feature.getProperties();
+    if (properties != null) {
+      length += 28;
+      if (properties.getArea_description_data() != null) {
+        length += 8L * properties.getArea_description_data().size();
+      }
+    }
+    return length;
+  }
+
+  /**
+   * A helper method that lists every String a feature stores, to build the String table.
+   *
+   * @param feature the feature
+   * @return the feature's Strings, some possibly null
+   */
+  private static List<String> strings(Feature feature) {
+    List<String> strings = new ArrayList<>();
+    strings.add(feature.getType(null));
+    if (feature.getGeometry() != null) {
+      strings.add(feature.getGeometry().getType());
+    }
+    Feature.Properties properties = feature.getProperties();
+    if (properties != null) {
+      strings.add(properties.getState());
+      strings.add(properties.getCity());
+      strings.add(properties.getName());
+      strings.add(properties.getHolc_id());
+      strings.add(properties.getHolc_grade());
+      if (properties.getArea_description_data() != null) {
+        for (Map.Entry<String, String> entry : properties.getArea_description_data().entrySet()) {
+          strings.add(entry.getKey());
+          strings.add(entry.getValue());
+        }
+      }
+    }
+    return strings;
+  }
+
+  /**
+   * A helper method that writes a geometry: a presence flag, then its type, counts, offsets, and
+   * coordinates.
+   *
+   * @param out the stream to write to
+   * @param stringIds the String table ids
+   * @param geometry the geometry, possibly null
+   * @throws IOException if writing fails
+   */
+  private static void writeGeometry(
+      DataOutputStream out, Map<String, Integer> stringIds, Feature.Geometry geometry)
+      throws IOException {
+    out.writeBoolean(geometry != null);
+    if (geometry == null) {
+      return;
+    }
+    int polygonCount = geometry.getPolygonCount();
+    int ringCount = geometry.getPolygonStart(polygonCount);
+    out.writeInt(id(stringIds, geometry.getType()));
+    out.writeInt(polygonCount);
+    out.writeInt(ringCount);
+    out.writeInt(geometry.getPointCount());
+    for (int polygon = 0; polygon <= polygonCount; polygon++) {
+      out.writeInt(geometry.getPolygonStart(polygon));
+    }
+    for (int ring = 0; ring <= ringCount; ring++) {
+      out.writeInt(geometry.getRingStart(ring));
+    }
+    for (int point = 0; point < geometry.getPointCount(); point++) {
+      out.writeDouble(geometry.getLng(point));
+      out.writeDouble(geometry.getLat(point));
+    }
+  }
+
+  /**
+   * A helper method that reads a geometry written by writeGeometry.
+   *
+   * @param buffer the mapped snapshot, positioned at the geometry
+   * @return the geometry, or null if none was written
+   */
+  private Feature.Geometry readGeometry(ByteBuffer buffer) {
+    if (buffer.get() == 0) {
+      return null;
+    }
+    String type = string(buffer.getInt());
+    int polygonCount = buffer.getInt();
+    int ringCount = buffer.getInt();
+    int pointCount = buffer.getInt();
+    int[] polygonStarts = readInts(buffer, polygonCount + 1);
+    int[] ringStarts = readInts(buffer, ringCount + 1);
+    double[] points = readDoubles(buffer, 2 * pointCount);
+    return new Feature.Geometry(type, points, ringStarts, polygonStarts);
+  }
+
+  /**
+   * A helper method that writes properties: a presence flag, then the String table ids of its
+   * fields, the neighborhood id, and the area description entries (a count of -1 for no map).
+   *
+   * @param out the stream to write to
+   * @param stringIds the String table ids
+   * @param properties the properties, possibly null
+   * @throws IOException if writing fails
+   */
+  private static void writeProperties(
+      DataOutputStream out, Map<String, Integer> stringIds, Feature.Properties properties)
+      throws IOException {
+    out.writeBoolean(properties != null);
+    if (properties == null) {
+      return;
+    }
+    out.writeInt(id(stringIds, properties.getState()));
+    out.writeInt(id(stringIds, properties.getCity()));
+    out.writeInt(id(stringIds, properties.getName()));
+    out.writeInt(id(stringIds, properties.getHolc_id()));
+    out.writeInt(id(stringIds, properties.getHolc_grade()));
+    out.writeInt(properties.getNeighborhood_id());
+    Map<String, String> descriptions = properties.getArea_description_data();
+    out.writeInt(descriptions == null ? -1 : descriptions.size());
+    if (descriptions != null) {
+      for (Map.Entry<String, String> entry : descriptions.entrySet()) {
+        out.writeInt(id(stringIds, entry.getKey()));
+        out.writeInt(id(stringIds, entry.getValue()));
+      }
+    }
+  }
+
+  /**
+   * A helper method that reads properties written by writeProperties.
+   *
+   * @param buffer the mapped snapshot, positioned at the properties
+   * @return the properties, or null if none were written
+   */
+  private Feature.Properties readProperties(ByteBuffer buffer) {
+    if (buffer.get() == 0) {
+      return null;
+    }
+    String state = string(buffer.getInt());
+    String city = string(buffer.getInt());
+    String name = string(buffer.getInt());
+    String holcId = string(buffer.getInt());
+    String holcGrade = string(buffer.getInt());
+    int neighborhoodId = buffer.getInt();
+    int descriptionCount = buffer.getInt();
+    Map<String, String> descriptions = null;
+    if (descriptionCount >= 0) {
+      // Keep the file order, which decides which description /searchareas looks at
+      descriptions = new LinkedHashMap<>();
+      for (int i = 0; i < descriptionCount; i++) {
+        descriptions.put(string(buffer.getInt()), string(buffer.getInt()));
+      }
+    }
+    return new Feature.Properties(
+        state, city, name, holcId, holcGrade, neighborhoodId, descriptions);
+  }
+
+  /**
+   * A helper method that looks up the String table id of a String.
+   *
+   * @param stringIds the String table ids
+   * @param string the String, possibly null
+   * @return the id, or NULL_STRING for null
+   */
+  private static int id(Map<String, Integer> stringIds, String string) {
+    return string == null ? NULL_STRING : stringIds.get(string);
+  }
+
+  /**
+   * A helper method that bulk reads ints from the mapped snapshot.
+   *
+   * @param buffer the mapped snapshot
+   * @param count the number of ints to read
+   * @return the ints read
+   */
+  private static int[] readInts(ByteBuffer buffer, int count) {
+    int[] values = new int[count];
+    buffer.asIntBuffer().get(values);
+    buffer.position(buffer.position() + 4 * count);
+    return values;
+  }
+
+  /**
+   * A helper method that bulk reads doubles from the mapped snapshot.
+   *
+   * @param buffer the mapped snapshot
+   * @param count the number of doubles to read
+   * @return the doubles read
+   */
+  private static double[] readDoubles(ByteBuffer buffer, int count) {
+    double[] values = new double[count];
+    buffer.asDoubleBuffer().get(values);
+    buffer.position(buffer.position() + 8 * count);
+    return values;
+  }
+
+  /**
+   * A helper method that gives a view of ints of the mapped snapshot, without copying them, and
+   * moves the buffer past them.
+   *
+   * @param buffer the mapped snapshot
+   * @param count the number of ints in the view
+   * @return the view
+   */
+  private static IntBuffer intView(ByteBuffer buffer, int count) {
+    IntBuffer view = buffer.slice(buffer.position(), 4 * count).asIntBuffer();
+    buffer.position(buffer.position() + 4 * count);
+    return view;
+  }
+
+  /**
+   * A helper method that gives a view of doubles of the mapped snapshot, without copying them, and
+   * moves the buffer past them.
+   *
+   * @param buffer the mapped snapshot
+   * @param count the number of doubles in the view
+   * @return the view
+   */
+  private static DoubleBuffer doubleView(ByteBuffer buffer, int count) {
+    DoubleBuffer view = buffer.slice(buffer.position(), 8 * count).asDoubleBuffer();
+    buffer.position(buffer.position() + 8 * count);
+    return view;
+  }
+}
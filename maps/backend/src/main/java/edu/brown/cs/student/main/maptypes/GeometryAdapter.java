@@ -0,0 +1,144 @@
+package edu.brown.cs.student.main.maptypes;
+
+import com.squareup.moshi.FromJson;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.ToJson;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class is a Moshi adapter for Feature.Geometry. It decodes the nested MultiPolygon
+ * coordinates of a GEOJSON geometry straight into the packed double and int arrays that Geometry
+ * stores, so no boxed Doubles or intermediate lists are created while parsing, and it encodes a
+ * Geometry back into the same nested GEOJSON form.
+ *
+ * <p>It must be added to any Moshi that reads or writes a Feature, e.g. new
+ * Moshi.Builder().add(new GeometryAdapter()).build().
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class GeometryAdapter {
+
+  /**
+   * Reads a GEOJSON geometry object, packing its coordinates as it goes. Keys other than type and
+   * coordinates are skipped.
+   *
+   * @param reader the JsonReader positioned at the geometry
+   * @return the packed Geometry, or null if the geometry is null
+   * @throws IOException if the JSON is malformed
+   */
+  @FromJson
+  Feature.Geometry fromJson(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonReader.Token.NULL) {
+      return reader.nextNull();
+    }
+    String type = null;
+    double[] points = new double[64];
+    int pointValues = 0;
+    int[] ringStarts = new int[8];
+    int rings = 0;
+    int[] polygonStarts = new int[4];
+    int polygons = 0;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (name.equals("type")) {
+        type = reader.nextString();
+      } else if (name.equals("coordinates") && reader.peek() != JsonReader.Token.NULL) {
+        reader.beginArray();
+        while (reader.hasNext()) {
+          polygonStarts = grow(polygonStarts, polygons + 2);
+          polygonStarts[polygons++] = rings;
+          reader.beginArray();
+          while (reader.hasNext()) {
+            ringStarts = grow(ringStarts, rings + 2);
+            ringStarts[rings++] = pointValues / 2;
+            reader.beginArray();
+            while (reader.hasNext()) {
+              if (pointValues + 2 > points.length) {
+                points = Arrays.copyOf(points, 2 * points.length);
+              }
+              reader.beginArray();
+              points[pointValues++] = reader.nextDouble();
+              points[pointValues++] = reader.nextDouble();
+              // Skip any altitude value
+              while (reader.hasNext()) {
+                reader.skipValue();
+              }
+              reader.endArray();
+            }
+            reader.endArray();
+          }
+          reader.endArray();
+        }
+        reader.endArray();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    // Close the last ring and polygon
+    ringStarts = grow(ringStarts, rings + 1);
+    ringStarts[rings] = pointValues / 2;
+    polygonStarts = grow(polygonStarts, polygons + 1);
+    polygonStarts[polygons] = rings;
+    return new Feature.Geometry(
+        type,
+        Arrays.copyOf(points, pointValues),
+        Arrays.copyOf(ringStarts, rings + 1),
+        Arrays.copyOf(polygonStarts, polygons + 1));
+  }
+
+  /**
+   * Writes a Geometry as a GEOJSON geometry object with nested MultiPolygon coordinates.
+   *
+   * @param writer the JsonWriter to write to
+   * @param geometry the Geometry to write, possibly null
+   * @throws IOException if writing fails
+   */
+  @ToJson
+  void toJson(JsonWriter writer, Feature.Geometry geometry) throws IOException {
+    if (geometry == null) {
+      writer.nullValue();
+      return;
+    }
+    writer.beginObject();
+    writer.name("type").value(geometry.getType());
+    writer.name("coordinates").beginArray();
+    for (int polygon = 0; polygon < geometry.getPolygonCount(); polygon++) {
+      writer.beginArray();
+      for (int ring = geometry.getPolygonStart(polygon);
+          ring < geometry.getPolygonStart(polygon + 1);
+          ring++) {
+        writer.beginArray();
+        for (int point = geometry.getRingStart(ring);
+            point < geometry.getRingStart(ring + 1);
+            point++) {
+          writer.beginArray();
+          writer.value(geometry.getLng(point));
+          writer.value(geometry.getLat(point));
+          writer.endArray();
+        }
+        writer.endArray();
+      }
+      writer.endArray();
+    }
+    writer.endArray();
+    writer.endObject();
+  }
+
+  /**
+   * A helper method that grows an int array so it can hold at least the given number of values.
+   *
+   * @param array the array to grow
+   * @param needed the number of values the array must hold
+   * @return the same array if it is big enough, otherwise a larger copy of it
+   */
+  private static int[] grow(int[] array, int needed) {
+    return needed <= array.length ? array : Arrays.copyOf(array, Math.max(needed, 2 * array.length));
+  }
+}
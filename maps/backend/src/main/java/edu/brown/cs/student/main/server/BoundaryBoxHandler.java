@@ -8,20 +8,13 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.squareup.moshi.JsonAdapter;
-import com.squareup.moshi.Moshi;
 import edu.brown.cs.student.main.maptypes.Feature;
-import edu.brown.cs.student.main.maptypes.FeatureCollection;
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import kotlin.Pair;
 import spark.Request;
 import spark.Response;
 import spark.Route;
@@ -36,31 +29,42 @@ import spark.Route;
  */
 public class BoundaryBoxHandler implements Route {
 
-  // List to store features that satisfy the bounding box query
-  private List<Feature> successFeatures;
+  // Shared store holding the GEOJSON features parsed once at startup
+  private final FeatureStore store;
 
   // Optional caching mechanism for storing and retrieving bounding box query results
-  private final Optional<LoadingCache<String, Object>> cache;
-  //filepath to geojson data
-  private final String filepath;
+  private final Optional<LoadingCache<List<Double>, Object>> cache;
 
   /**
-   * Constructs a BoundaryBoxHandler instance.
+   * Constructs a BoundaryBoxHandler instance that loads its own FeatureStore from the given file.
    *
+   * @param file Filepath to the GEOJSON data, relative to the resources folder.
    * @param cacheBuilder CacheBuilder for optional caching, or null to disable caching.
    */
   public BoundaryBoxHandler(String file, CacheBuilder cacheBuilder) {
-    this.filepath = file;
+    this(new FeatureStore(file), cacheBuilder);
+  }
+
+  /**
+   * Constructs a BoundaryBoxHandler instance backed by a shared FeatureStore.
+   *
+   * @param store FeatureStore holding the parsed GEOJSON features.
+   * @param cacheBuilder CacheBuilder for optional caching, or null to disable caching.
+   */
+  public BoundaryBoxHandler(FeatureStore store, CacheBuilder cacheBuilder) {
+    this.store = store;
     if (cacheBuilder == null) {
       this.cache = Optional.empty();
     } else {
       // Initialize the cache with a CacheLoader that handles cache misses
-      LoadingCache<String, Object> loadingCache =
+      LoadingCache<List<Double>, Object> loadingCache =
               cacheBuilder.build(
-                      new CacheLoader<String, Object>() {
+                      new CacheLoader<List<Double>, Object>() {
                         @Override
-                        public Object load(String cachekey) {
-                          return handleCacheMiss(successFeatures);
+                        public Object load(List<Double> boundingBox) {
+                          return handleCacheMiss(
+                                  boundingBox.get(0), boundingBox.get(1),
+                                  boundingBox.get(2), boundingBox.get(3));
                         }
                       });
       this.cache = Optional.of(loadingCache);
@@ -77,25 +81,16 @@ public class BoundaryBoxHandler implements Route {
   @Override
   public Object handle(Request request, Response response) {
     try {
-      // Read the GEOJSON content from the file
-      ClassLoader classLoader = getClass().getClassLoader();
-      InputStream inputStream = classLoader.getResourceAsStream(this.filepath);
-
       //Check geojson file in resource folder
-      if (inputStream == null) {
+      if (!store.isFound()) {
         return new LoadCsvHandler.LoadFailureResponse(
-                "error_datasource", "File not found in resources: " + this.filepath, this.filepath)
+                "error_datasource", "File not found in resources: " + store.getFilepath(),
+                store.getFilepath())
                 .serialize();
       }
-
-      String jsonContent = new String(inputStream.readAllBytes());
-
-      // Parse GeoJSON data using Moshi library
-      Moshi moshi = new Moshi.Builder().build();
-      JsonAdapter<FeatureCollection> adapter = moshi.adapter(FeatureCollection.class);
-      FeatureCollection collection = adapter.fromJson(jsonContent);
-
-      List<Feature> boundaryFeatures = new ArrayList<>();
+      if (!store.isParsed()) {
+        return new BBFailureResponse("error_bad_request", "file cannot be parsed").serialize();
+      }
 
       // Extract bounding box coordinates from request parameters
       double minLat = Double.parseDouble(request.queryParams("minLat"));
@@ -103,31 +98,11 @@ public class BoundaryBoxHandler implements Route {
       double minLon = Double.parseDouble(request.queryParams("minLng"));
       double maxLon = Double.parseDouble(request.queryParams("maxLng"));
 
-      // Iterate over features and check if they are within the bounding box
-      for (Feature feature : collection.getFeatures()) {
-        if (feature.getGeometry() == null) {
-          continue;
-        }
-
-        // Extract the coordinates of the feature's geometry
-        List<List<List<List<Double>>>> coordinates = feature.getGeometry().getCoordinates();
-
-        // Check if any coordinate point falls within the bounding box
-        if (isFeatureWithinBoundingBox(coordinates, minLat, maxLat, minLon, maxLon)) {
-          boundaryFeatures.add(feature);
-        }
-      }
-
-      this.successFeatures = boundaryFeatures;
-      String uniqueCacheKey = String.valueOf(minLat) + maxLat + minLon + maxLon;
-
       // Check if caching is enabled
       if (cache.isEmpty()) {
-        return handleCacheMiss(boundaryFeatures);
+        return handleCacheMiss(minLat, maxLat, minLon, maxLon);
       }
-      return cache.get().get(uniqueCacheKey);
-    } catch (IOException e) {
-      return new BBFailureResponse("error_bad_request", "file cannot be parsed").serialize();
+      return cache.get().get(List.of(minLat, maxLat, minLon, maxLon));
     } catch (NumberFormatException e) {
       return new BBFailureResponse(
               "error_bad_request", "Missing required any/all parameters: minLat, maxLat, minLng, maxLng")
@@ -140,17 +115,28 @@ public class BoundaryBoxHandler implements Route {
   }
 
   /**
-   * Handles cache misses by returning a response containing the bounding box query results.
+   * Handles cache misses by finding the features within the bounding box and returning a response
+   * containing them.
    *
-   * @param featureList The list of features within the bounding box.
+   * @param minLat The minimum latitude of the bounding box.
+   * @param maxLat The maximum latitude of the bounding box.
+   * @param minLon The minimum longitude of the bounding box.
+   * @param maxLon The maximum longitude of the bounding box.
    * @return The response to be sent back to the client.
    */
-  private Object handleCacheMiss(List<Feature> featureList) {
+  private Object handleCacheMiss(double minLat, double maxLat, double minLon, double maxLon) {
     Date today = new Date();
     Long now = today.getTime();
     String dateTimeFormatted = new SimpleDateFormat("MM/dd/yyyy HH:mm").format(now);
     try {
-      return new BBSuccessResponse("success", dateTimeFormatted, featureList)
+      List<Feature> boundaryFeatures = new ArrayList<>();
+
+      // The store decides each feature near the box from its precomputed envelope
+      List<Feature> features = store.getFeatures();
+      for (int id : store.findWithin(minLat, maxLat, minLon, maxLon)) {
+        boundaryFeatures.add(features.get(id));
+      }
+      return new BBSuccessResponse("success", dateTimeFormatted, boundaryFeatures)
               .serialize();
     } catch (Exception e) {
       return new BBFailureResponse("error_bad_request",
@@ -160,7 +146,9 @@ public class BoundaryBoxHandler implements Route {
   }
 
   /**
-   * Checks if all coordinates of a feature are within the bounding box.
+   * Checks if all coordinates of a feature are within the bounding box. The envelope of the
+   * coordinates is computed and compared to the box by FeatureStore, the same check that the
+   * handler's queries use.
    *
    * @param coordinates The coordinates of the feature.
    * @param minLat      The minimum latitude of the bounding box.
@@ -171,36 +159,38 @@ public class BoundaryBoxHandler implements Route {
    */
   public boolean isFeatureWithinBoundingBox(
           List<List<List<List<Double>>>> coordinates, double minLat, double maxLat, double minLon, double maxLon) {
+    double featureMinLat = Double.POSITIVE_INFINITY;
+    double featureMaxLat = Double.NEGATIVE_INFINITY;
+    double featureMinLon = Double.POSITIVE_INFINITY;
+    double featureMaxLon = Double.NEGATIVE_INFINITY;
     for (List<List<List<Double>>> polygon : coordinates) {
       for (List<List<Double>> ring : polygon) {
         for (List<Double> point : ring) {
-          double latitude = point.get(1);
-          double longitude = point.get(0);
-
-          // If any point is outside the bounding box, return false
-          if (latitude < minLat || latitude > maxLat || longitude < minLon || longitude > maxLon) {
-            return false;
-          }
+          featureMinLat = Math.min(featureMinLat, point.get(1));
+          featureMaxLat = Math.max(featureMaxLat, point.get(1));
+          featureMinLon = Math.min(featureMinLon, point.get(0));
+          featureMaxLon = Math.max(featureMaxLon, point.get(0));
         }
       }
     }
-
-    // If all points are within the bounding box, return true
-    return true;
+    return FeatureStore.isEnvelopeWithin(featureMinLat, featureMaxLat, featureMinLon,
+        featureMaxLon, minLat, maxLat, minLon, maxLon);
   }
 
   /**
    * Represents a failure response.
    */
   public record BBFailureResponse(String result, String error_message) {
+    private static final JsonAdapter<BBFailureResponse> ADAPTER =
+        Serialization.MOSHI.adapter(BBFailureResponse.class);
+
     /**
      * Serializes the failure response to JSON.
      *
      * @return The JSON representation of the failure response.
      */
     String serialize() {
-      Moshi moshi = new Moshi.Builder().build();
-      return moshi.adapter(BBFailureResponse.class).toJson(this);
+      return ADAPTER.toJson(this);
     }
   }
 
@@ -208,6 +198,9 @@ public class BoundaryBoxHandler implements Route {
    * Represents a successful response.
    */
   public record BBSuccessResponse(String result, String dateTime, List<Feature> featureList) {
+    private static final JsonAdapter<BBSuccessResponse> ADAPTER =
+        Serialization.MOSHI.adapter(BBSuccessResponse.class);
+
     /**
      * Constructs the success response.
      *
@@ -224,8 +217,7 @@ public class BoundaryBoxHandler implements Route {
      * @return The JSON representation of the success response.
      */
     String serialize() {
-      Moshi moshi = new Moshi.Builder().build();
-      return moshi.adapter(BBSuccessResponse.class).toJson(this);
+      return ADAPTER.toJson(this);
     }
   }
 
@@ -238,7 +230,7 @@ public class BoundaryBoxHandler implements Route {
   public List<Object> getCache() {
     List<Object> cachedElements = new ArrayList<>();
     if (cache.isPresent()) {
-      Map<String, Object> cacheMap = cache.get().asMap();
+      Map<List<Double>, Object> cacheMap = cache.get().asMap();
       cachedElements.addAll(cacheMap.values());
     }
     return cachedElements;
@@ -0,0 +1,136 @@
+package edu.brown.cs.student.main.server;
+
+import com.squareup.moshi.JsonWriter;
+import edu.brown.cs.student.main.server.BroadbandHandler.BroadbandFailureResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import kotlin.Pair;
+import okio.Buffer;
+import okio.BufferedSink;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * This BroadbandBatchHandler class handles a /broadbandbatch request to our server, which asks for
+ * the broadband access of many counties at once, such as every county of a map. It is constructed
+ * with the BroadbandHandler of /broadband, and answers through that handler's cache and
+ * CensusSource, so both endpoints share cached responses. The counties are looked up at the same
+ * time, and with a source that can look up whole states, each state costs one lookup.
+ *
+ * <p>The counties query param lists state and county pairs, each a state and a county separated by
+ * a comma, separated by semicolons, such as "North Carolina,Durham;Rhode Island,Kent". The
+ * response holds the /broadband response of each pair, in order, so one county that cannot be
+ * found does not fail the others.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class BroadbandBatchHandler implements Route {
+
+  static final int MAX_COUNTIES = 500;
+
+  private final BroadbandHandler broadbandHandler;
+
+  /**
+   * Constructor for the BroadbandBatchHandler class.
+   *
+   * @param broadbandHandler the BroadbandHandler whose cache and source answer each county
+   */
+  public BroadbandBatchHandler(BroadbandHandler broadbandHandler) {
+    this.broadbandHandler = broadbandHandler;
+  }
+
+  /**
+   * Method that handles a /broadbandbatch request to our Server. Given a request and response,
+   * returns a failure response object if the counties are missing or malformed, or a success
+   * response object with the /broadband response of each state and county.
+   *
+   * @param request the Request object passed by the client, should contain request parameter
+   *     counties
+   * @param response the Response object that we do not use
+   * @return success or failure response object with json information from the source
+   */
+  @Override
+  public Object handle(Request request, Response response) {
+    String counties = request.queryParams("counties");
+    if (counties == null) {
+      return new BroadbandFailureResponse(
+              "error_bad_request", "Required parameter missing: counties")
+          .serialize();
+    }
+    List<Pair<String, String>> stateAndCounties = new ArrayList<>();
+    for (String pair : counties.split(";")) {
+      if (pair.isBlank()) {
+        continue;
+      }
+      int comma = pair.indexOf(',');
+      if (comma < 0) {
+        return new BroadbandFailureResponse(
+                "error_bad_request", "Expected state,county but got: " + pair)
+            .serialize();
+      }
+      stateAndCounties.add(
+          new Pair<>(pair.substring(0, comma).trim(), pair.substring(comma + 1).trim()));
+    }
+    if (stateAndCounties.isEmpty()) {
+      return new BroadbandFailureResponse("error_bad_request", "No counties given").serialize();
+    }
+    if (stateAndCounties.size() > MAX_COUNTIES) {
+      return new BroadbandFailureResponse(
+              "error_bad_request", "At most " + MAX_COUNTIES + " counties can be given at once")
+          .serialize();
+    }
+    try {
+      return new BroadbandBatchSuccessResponse(broadbandHandler.handleBatch(stateAndCounties))
+          .serialize();
+    } catch (Exception e) {
+      return new BroadbandFailureResponse("error_bad_request", e.getMessage()).serialize();
+    }
+  }
+
+  /**
+   * A record representing a successful call to the /broadbandbatch handler, containing a result of
+   * success and the /broadband response of each requested state and county.
+   *
+   * @param result the String "success"
+   * @param responses the serialized /broadband success or failure response of each state and
+   *     county, in the order they were requested
+   */
+  public record BroadbandBatchSuccessResponse(String result, List<Object> responses) {
+
+    /**
+     * The constructor for the BroadbandBatchSuccessResponse class.
+     *
+     * @param responses the serialized /broadband response of each state and county
+     */
+    public BroadbandBatchSuccessResponse(List<Object> responses) {
+      this("success", responses);
+    }
+
+    /**
+     * This method serializes a success response object. The responses are already serialized, so
+     * they are copied into the array as they are rather than written as Strings.
+     *
+     * @return this success response object, serialized as Json
+     * @throws IOException if writing fails
+     */
+    String serialize() throws IOException {
+      Buffer buffer = new Buffer();
+      JsonWriter writer = JsonWriter.of(buffer);
+      writer.beginObject();
+      writer.name("result").value(result);
+      writer.name("responses").beginArray();
+      for (Object response : responses) {
+        try (BufferedSink sink = writer.valueSink()) {
+          sink.writeUtf8(response.toString());
+        }
+      }
+      writer.endArray();
+      writer.endObject();
+      writer.close();
+      return buffer.readUtf8();
+    }
+  }
+}
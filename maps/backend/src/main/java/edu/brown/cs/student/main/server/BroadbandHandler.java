@@ -1,17 +1,28 @@
 package edu.brown.cs.student.main.server;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
-import com.squareup.moshi.Moshi;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.squareup.moshi.JsonAdapter;
 import edu.brown.cs.student.main.sources.CensusData;
 import edu.brown.cs.student.main.sources.CensusSource;
+import edu.brown.cs.student.main.sources.DataSourceException;
+import edu.brown.cs.student.main.sources.StateCensusSource;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import kotlin.Pair;
 import spark.Request;
 import spark.Response;
@@ -28,13 +39,43 @@ import spark.Route;
  * CacheBuilder parameter in the structure. Otherwise, they should pass a CacheBuilder with their
  * desired attributes (eviction rules, size, etc.).
  *
+ * <p>If the handler has a cache and its source is a StateCensusSource, the first miss in a state
+ * looks up every county of that state at once, and caches a success response for each of them, so
+ * that requests for the other counties of the state are answered from the cache. A state is looked
+ * up this way at most once per state prefetch interval; until then, misses in it, such as counties
+ * the state lookup cannot include, are looked up one county at a time. A BroadbandBatchHandler
+ * answers many counties at once through the same cache and source, on a pool of threads apart from
+ * the one that refreshes entries.
+ *
+ * <p>If the CacheBuilder refreshes after write, an entry that is due for a refresh keeps being
+ * served while a background executor looks it up again, so requests do not wait on the source when
+ * entries age. A refresh that fails keeps the old response. An expireAfterWrite on the same
+ * CacheBuilder bounds how stale a response can get, as staleWhileRevalidate sets up. A refresh asks
+ * the source to look up again rather than answer from values it keeps, and a value that a source
+ * did keep is reported with the date_time of its original lookup. The warm method fills the cache
+ * with such kept values, so a restarted server answers them without looking them up again.
+ *
  * @author sarahridley juliazdzilowska prlakshm
  * @version 3.0
  */
 public class BroadbandHandler implements Route {
 
+  // Looks up entries due for a refresh, while the cache keeps serving their old responses
+  private static final Executor EXECUTOR = newDaemonPool("broadband-refresh");
+  // Looks up the states and counties of batch requests, apart from refreshes, so that large
+  // batches queue behind each other rather than in front of the refreshes
+  private static final Executor BATCH_EXECUTOR = newDaemonPool("broadband-batch");
+  // How long after a state is looked up as a whole before a miss in it looks it up again
+  static final Duration DEFAULT_STATE_PREFETCH_INTERVAL = Duration.ofHours(1);
+  // The most states remembered as looked up, since states come straight from request params
+  static final int MAX_PREFETCHED_STATES = 1000;
+
   private final CensusSource source;
   private final Optional<LoadingCache<Pair<String, String>, Object>> cache;
+  private final Executor executor;
+  private final Executor batchExecutor;
+  // The states looked up as a whole within the state prefetch interval
+  private final Cache<String, Boolean> prefetchedStates;
 
   /**
    * Constructor for the BroadbandHandler class.
@@ -44,24 +85,110 @@ public class BroadbandHandler implements Route {
    *     store new responses in, or if cacheBuilder is null, no cache will be used
    */
   public BroadbandHandler(CensusSource source, CacheBuilder cacheBuilder) {
+    this(source, cacheBuilder, EXECUTOR);
+  }
+
+  /**
+   * Constructor for the BroadbandHandler class, with the executor that refreshes cache entries.
+   *
+   * @param source a CensusSource object that the handle method with query for broadband information
+   * @param cacheBuilder a CacheBuilder that the handle method will query for cached responses and
+   *     store new responses in, or if cacheBuilder is null, no cache will be used
+   * @param executor the executor that looks up entries due for a refresh, if the cacheBuilder
+   *     refreshes after write
+   */
+  public BroadbandHandler(CensusSource source, CacheBuilder cacheBuilder, Executor executor) {
+    this(source, cacheBuilder, executor, DEFAULT_STATE_PREFETCH_INTERVAL);
+  }
+
+  /**
+   * Constructor for the BroadbandHandler class, with the executor that refreshes cache entries, and
+   * how often a state may be looked up as a whole. Batch requests are looked up on a pool of their
+   * own, so they never hold up refreshes.
+   *
+   * @param source a CensusSource object that the handle method with query for broadband information
+   * @param cacheBuilder a CacheBuilder that the handle method will query for cached responses and
+   *     store new responses in, or if cacheBuilder is null, no cache will be used
+   * @param executor the executor that looks up entries due for a refresh, if the cacheBuilder
+   *     refreshes after write
+   * @param statePrefetchInterval how long after a state is looked up as a whole before a cache miss
+   *     in it looks the whole state up again, about as long as the cache keeps entries
+   */
+  public BroadbandHandler(
+      CensusSource source,
+      CacheBuilder cacheBuilder,
+      Executor executor,
+      Duration statePrefetchInterval) {
     this.source = source;
+    this.executor = executor;
+    this.batchExecutor = BATCH_EXECUTOR;
+    this.prefetchedStates =
+        CacheBuilder.newBuilder()
+            .maximumSize(MAX_PREFETCHED_STATES)
+            .expireAfterWrite(statePrefetchInterval)
+            .build();
     if (cacheBuilder == null) {
       this.cache = Optional.empty();
     } else {
+      CacheLoader<Pair<String, String>, Object> loader =
+          new CacheLoader<Pair<String, String>, Object>() {
+            @Override
+            public Object load(Pair<String, String> stateAndCounty) {
+              String state = stateAndCounty.component1();
+              String county = stateAndCounty.component2();
+              return handleCacheMiss(state, county);
+            }
+
+            @Override
+            public ListenableFuture<Object> reload(
+                Pair<String, String> stateAndCounty, Object oldResponse)
+                throws DataSourceException {
+              String state = stateAndCounty.component1();
+              String county = stateAndCounty.component2();
+              return Futures.immediateFuture(handleRefresh(state, county));
+            }
+          };
       LoadingCache<Pair<String, String>, Object> loadingCache =
-          cacheBuilder.build(
-              new CacheLoader<Pair<String, String>, Object>() {
-                @Override
-                public Object load(Pair<String, String> stateAndCounty) {
-                  String state = stateAndCounty.component1();
-                  String county = stateAndCounty.component2();
-                  return handleCacheMiss(state, county);
-                }
-              });
+          cacheBuilder.build(CacheLoader.asyncReloading(loader, executor));
       this.cache = Optional.of(loadingCache);
     }
   }
 
+  /**
+   * A helper method that makes a pool of 4 daemon threads, so that its threads do not keep the
+   * server running.
+   *
+   * @param name the name of the pool's threads
+   * @return the pool
+   */
+  private static Executor newDaemonPool(String name) {
+    return Executors.newFixedThreadPool(
+        4,
+        runnable -> {
+          Thread thread = new Thread(runnable, name);
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /**
+   * A method that makes a CacheBuilder for a stale-while-revalidate cache. Entries older than
+   * refreshAfter are still served, while they are refreshed in the background, until they are
+   * older than maxStaleness, after which the next request for them waits on the source.
+   *
+   * @param maximumSize the most entries that the cache holds
+   * @param refreshAfter how old an entry gets before it is refreshed
+   * @param maxStaleness how old an entry can get before it is no longer served
+   * @return a CacheBuilder to pass to the constructor
+   */
+  public static CacheBuilder<Object, Object> staleWhileRevalidate(
+      long maximumSize, Duration refreshAfter, Duration maxStaleness) {
+    return CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .refreshAfterWrite(refreshAfter)
+        .expireAfterWrite(maxStaleness);
+  }
+
   /**
    * Method that handles a /broadband request to our Server. Given a request and response, returns a
    * failure or success response object. Uses the cache if the cacheBuilder passed to the
@@ -86,10 +213,105 @@ public class BroadbandHandler implements Route {
                 "error_bad_request", "Required parameter missing: county")
             .serialize();
       }
-      if (cache.isEmpty()) {
-        return handleCacheMiss(state, county);
+      return respond(state, county);
+    } catch (Exception e) {
+      return new BroadbandFailureResponse("error_bad_request", e.getMessage()).serialize();
+    }
+  }
+
+  /**
+   * Method that gives the response for a state and county, from the cache if there is one.
+   *
+   * @param state the state request parameter passed by client
+   * @param county the county request parameter passed by client
+   * @return success or failure response object with json information from the source
+   * @throws ExecutionException if the cache fails to load the response
+   */
+  private Object respond(String state, String county) throws ExecutionException {
+    if (cache.isEmpty()) {
+      return handleCacheMiss(state, county);
+    }
+    return cache.get().get(new Pair<>(state, county));
+  }
+
+  /**
+   * Method that gives the responses for many states and counties at once, for a batch request.
+   * If the source is a StateCensusSource, each state with a county that is not cached is looked up
+   * once, with the states looked up at the same time, and their counties are cached together. With
+   * a cache, a state that was looked up as a whole within the state prefetch interval is not looked
+   * up again.
+   * Counties that a state lookup did not include, and all counties for other sources, are looked
+   * up at the same time through the cache, as /broadband requests for them would be.
+   *
+   * @param stateAndCounties the states and counties to respond for
+   * @return the success or failure response object of each state and county, in order
+   */
+  List<Object> handleBatch(List<Pair<String, String>> stateAndCounties) {
+    String dateTimeFormatted = formatNow();
+    Map<String, CompletableFuture<Map<String, CensusData>>> stateLookups = new HashMap<>();
+    if (source instanceof StateCensusSource stateSource) {
+      for (Pair<String, String> stateAndCounty : stateAndCounties) {
+        String state = stateAndCounty.component1();
+        if (stateLookups.containsKey(state)) {
+          continue;
+        }
+        if (cache.isEmpty()
+            || (cache.get().getIfPresent(stateAndCounty) == null && claimStatePrefetch(state))) {
+          stateLookups.put(
+              state,
+              CompletableFuture.supplyAsync(
+                  () -> prefetchState(stateSource, state, null, dateTimeFormatted),
+                  batchExecutor));
+        }
+      }
+    }
+
+    List<CompletableFuture<Object>> responses = new ArrayList<>();
+    for (Pair<String, String> stateAndCounty : stateAndCounties) {
+      String state = stateAndCounty.component1();
+      String county = stateAndCounty.component2();
+      CompletableFuture<Map<String, CensusData>> stateLookup =
+          stateLookups.getOrDefault(state, CompletableFuture.completedFuture(null));
+      responses.add(
+          stateLookup.thenApplyAsync(
+              counties -> respondFromState(state, county, counties, dateTimeFormatted),
+              batchExecutor));
+    }
+    List<Object> results = new ArrayList<>();
+    for (CompletableFuture<Object> response : responses) {
+      results.add(response.join());
+    }
+    return results;
+  }
+
+  /**
+   * Method that gives the response for a state and county of a batch request, from the lookup of
+   * its state if there was one.
+   *
+   * @param state the state to respond for
+   * @param county the county to respond for
+   * @param counties the broadband access of each county from the lookup of the state, or null if
+   *     the state was not looked up or its lookup failed
+   * @param dateTimeFormatted the date and time of the batch request
+   * @return success or failure response object with json information from the source
+   */
+  private Object respondFromState(
+      String state, String county, Map<String, CensusData> counties, String dateTimeFormatted) {
+    try {
+      if (counties == null) {
+        return respond(state, county);
+      }
+      CensusData censusData = counties.get(county);
+      if (censusData != null) {
+        return new BroadbandSuccessResponse(
+                state, county, dateTimeOf(censusData, dateTimeFormatted), censusData.data())
+            .serialize();
       }
-      return cache.get().get(new Pair<>(state, county));
+      // Looked up on its own, since the whole state was just looked up
+      Object response = lookUpCounty(state, county, dateTimeFormatted);
+      cache.ifPresent(
+          loadingCache -> loadingCache.asMap().putIfAbsent(new Pair<>(state, county), response));
+      return response;
     } catch (Exception e) {
       return new BroadbandFailureResponse("error_bad_request", e.getMessage()).serialize();
     }
@@ -98,25 +320,197 @@ public class BroadbandHandler implements Route {
   /**
    * Method that handles the Server's request in the case that the request state and county
    * broadband information was not found in the cache. Returns an object representing a success or
-   * failure response.
+   * failure response. The whole state is looked up instead if it has not been within the state
+   * prefetch interval.
    *
    * @param state the state request parameter passed by client
    * @param county the county request parameter passed by client
    * @return success or failure response object with json information from the source
    */
   private Object handleCacheMiss(String state, String county) {
-    Date today = new Date();
-    Long now = today.getTime();
-    String dateTimeFormatted = new SimpleDateFormat("MM/dd/yyyy HH:mm").format(now);
+    String dateTimeFormatted = formatNow();
+    if (cache.isPresent()
+        && source instanceof StateCensusSource stateSource
+        && claimStatePrefetch(state)) {
+      Map<String, CensusData> counties =
+          prefetchState(stateSource, state, county, dateTimeFormatted);
+      CensusData censusData = counties == null ? null : counties.get(county);
+      if (censusData != null) {
+        return new BroadbandSuccessResponse(
+                state, county, dateTimeOf(censusData, dateTimeFormatted), censusData.data())
+            .serialize();
+      }
+    }
+    return lookUpCounty(state, county, dateTimeFormatted);
+  }
+
+  /**
+   * Method that looks up a state and county on its own from the source. Returns an object
+   * representing a success or failure response.
+   *
+   * @param state the state request parameter passed by client
+   * @param county the county request parameter passed by client
+   * @param dateTimeFormatted the date and time of the lookup
+   * @return success or failure response object with json information from the source
+   */
+  private Object lookUpCounty(String state, String county, String dateTimeFormatted) {
     try {
       CensusData censusData = source.getBroadbandAccess(state, county);
-      return new BroadbandSuccessResponse(state, county, dateTimeFormatted, censusData.data())
+      return new BroadbandSuccessResponse(
+              state, county, dateTimeOf(censusData, dateTimeFormatted), censusData.data())
           .serialize();
     } catch (Exception e) {
       return new BroadbandFailureResponse("error_bad_request", e.getMessage()).serialize();
     }
   }
 
+  /**
+   * Method that looks up a cached state and county again when its entry is due for a refresh. The
+   * source is asked to refresh, so that a source which keeps values does not answer with the value
+   * being refreshed. Unlike a miss, a failed lookup is thrown rather than cached, so the cache
+   * keeps serving the old response until it is refreshed or expires.
+   *
+   * @param state the state of the cached entry
+   * @param county the county of the cached entry
+   * @return a success response object with json information from the source
+   * @throws DataSourceException if the source fails to find the broadband access data
+   */
+  private Object handleRefresh(String state, String county) throws DataSourceException {
+    CensusData censusData = source.refreshBroadbandAccess(state, county);
+    return new BroadbandSuccessResponse(
+            state, county, dateTimeOf(censusData, formatNow()), censusData.data())
+        .serialize();
+  }
+
+  /**
+   * Method that fills the cache with values that were looked up before, such as the values a
+   * PersistentCensusSource kept from before a restart. Each value is cached as a success response
+   * with the date_time of its lookup, and is refreshed like any other entry. Entries that are
+   * already cached are left as they are.
+   *
+   * <p>The cache counts a warmed entry's age from when it is warmed, not from its lookup, so a
+   * value is refreshed and expired up to its age at warming later than if it had been cached when
+   * it was looked up. Values looked up maxAge or more ago are therefore skipped, and a maxAge no
+   * longer than the cache's refresh interval keeps the values served within about twice that
+   * interval of their lookup before they are refreshed.
+   *
+   * @param values the values to cache, keyed by state and county
+   * @param maxAge how long ago a value can have been looked up and still be cached
+   * @return the number of values that were cached, which is 0 if the handler has no cache
+   */
+  public int warm(Map<Pair<String, String>, CensusData> values, Duration maxAge) {
+    if (cache.isEmpty()) {
+      return 0;
+    }
+    long now = System.currentTimeMillis();
+    String dateTimeFormatted = formatNow();
+    Map<Pair<String, String>, Object> cacheMap = cache.get().asMap();
+    int warmed = 0;
+    for (Map.Entry<Pair<String, String>, CensusData> value : values.entrySet()) {
+      Pair<String, String> stateAndCounty = value.getKey();
+      CensusData censusData = value.getValue();
+      if (censusData == null || censusData.data() == null) {
+        continue;
+      }
+      Long lookedUpAt = censusData.lookedUpAt();
+      if (lookedUpAt != null && now - lookedUpAt >= maxAge.toMillis()) {
+        continue;
+      }
+      Object response =
+          new BroadbandSuccessResponse(
+                  stateAndCounty.component1(),
+                  stateAndCounty.component2(),
+                  dateTimeOf(censusData, dateTimeFormatted),
+                  censusData.data())
+              .serialize();
+      if (cacheMap.putIfAbsent(stateAndCounty, response) == null) {
+        warmed++;
+      }
+    }
+    return warmed;
+  }
+
+  /**
+   * Method that formats the current date and time for the date_time of a success response.
+   *
+   * @return the current date and time, such as 09/25/2023 14:05
+   */
+  private static String formatNow() {
+    Date today = new Date();
+    Long now = today.getTime();
+    return new SimpleDateFormat("MM/dd/yyyy HH:mm").format(now);
+  }
+
+  /**
+   * Method that gives the date_time of a success response for a value from the source, which is
+   * the time of its original lookup if the source kept it from an earlier one.
+   *
+   * @param censusData the value from the source
+   * @param dateTimeFormatted the date and time to use for a value that was just looked up
+   * @return the date and time that the value was looked up, such as 09/25/2023 14:05
+   */
+  private static String dateTimeOf(CensusData censusData, String dateTimeFormatted) {
+    Long lookedUpAt = censusData.lookedUpAt();
+    if (lookedUpAt == null) {
+      return dateTimeFormatted;
+    }
+    return new SimpleDateFormat("MM/dd/yyyy HH:mm").format(lookedUpAt);
+  }
+
+  /**
+   * Method that decides whether a cache miss in a state should look up the whole state, which is
+   * the case if the state has not been looked up as a whole within the state prefetch interval. A
+   * state lookup that fails counts too, so a state that cannot be looked up as a whole is not tried
+   * on every miss. Only the most recent MAX_PREFETCHED_STATES states are remembered, so requests
+   * for made-up states cannot grow the handler without limit.
+   *
+   * @param state the state of the cache miss
+   * @return true if the caller should look up the whole state, false to look up the county alone
+   */
+  private boolean claimStatePrefetch(String state) {
+    // Expired states are absent, so the first miss after the interval claims the state again
+    return prefetchedStates.asMap().putIfAbsent(state, Boolean.TRUE) == null;
+  }
+
+  /**
+   * Method that looks up every county of a state from a StateCensusSource, and caches a success
+   * response for each county other than the requested one, which the caller caches by returning.
+   * Counties that are already cached are left as they are.
+   *
+   * @param stateSource the source to look up the state's counties from
+   * @param state the state request parameter passed by client
+   * @param county the county request parameter passed by client, or null to cache every county
+   * @param dateTimeFormatted the date and time of the lookup, for the cached responses
+   * @return the broadband access of each county of the state, or null if the state lookup failed,
+   *     in which case counties should be looked up on their own
+   */
+  private Map<String, CensusData> prefetchState(
+      StateCensusSource stateSource, String state, String county, String dateTimeFormatted) {
+    Map<String, CensusData> counties;
+    try {
+      counties = stateSource.getStateBroadbandAccess(state);
+    } catch (DataSourceException e) {
+      return null;
+    }
+    if (cache.isEmpty()) {
+      return counties;
+    }
+    Map<Pair<String, String>, Object> cacheMap = cache.get().asMap();
+    for (Map.Entry<String, CensusData> entry : counties.entrySet()) {
+      if (!entry.getKey().equals(county)) {
+        cacheMap.putIfAbsent(
+            new Pair<>(state, entry.getKey()),
+            new BroadbandSuccessResponse(
+                    state,
+                    entry.getKey(),
+                    dateTimeOf(entry.getValue(), dateTimeFormatted),
+                    entry.getValue().data())
+                .serialize());
+      }
+    }
+    return counties;
+  }
+
   /**
    * A record representing a failed call to the /broadband handler, containing a result with an
    * error code and an error message with more information.
@@ -125,14 +519,16 @@ public class BroadbandHandler implements Route {
    * @param error_message the String containing a more specific error message
    */
   public record BroadbandFailureResponse(String result, String error_message) {
+    private static final JsonAdapter<BroadbandFailureResponse> ADAPTER =
+        Serialization.MOSHI.adapter(BroadbandFailureResponse.class);
+
     /**
      * This method serializes a failure response object.
      *
      * @return this failure response object, serialized as Json
      */
     String serialize() {
-      Moshi moshi = new Moshi.Builder().build();
-      return moshi.adapter(BroadbandHandler.BroadbandFailureResponse.class).toJson(this);
+      return ADAPTER.toJson(this);
     }
   }
 
@@ -153,6 +549,9 @@ public class BroadbandHandler implements Route {
       String county,
       String date_time,
       Double broadband_access_percent) {
+    private static final JsonAdapter<BroadbandSuccessResponse> ADAPTER =
+        Serialization.MOSHI.adapter(BroadbandSuccessResponse.class);
+
     /**
      * The constructor for the BroadbandSuccessResponse class.
      *
@@ -174,8 +573,7 @@ public class BroadbandHandler implements Route {
      * @return this success response object, serialized as Json
      */
     public String serialize() {
-      Moshi moshi = new Moshi.Builder().build();
-      return moshi.adapter(BroadbandHandler.BroadbandSuccessResponse.class).toJson(this);
+      return ADAPTER.toJson(this);
     }
   }
 
@@ -1,39 +1,78 @@
 package edu.brown.cs.student.main.server;
 
-import java.util.Collections;
+import edu.brown.cs.student.main.csv.ColumnarTable;
+import edu.brown.cs.student.main.csv.search.CsvIndex;
 import java.util.List;
 
 /**
  * This CsvDataWrapper class wraps a List of List of String representing the CSV data parsed by
  * loadcsv, which can be viewed or searched with viewcsv and searchcsv endpoints respectively. This
- * class also has the field loadedInPast, representing whether any CSV data has been loaded.
+ * class also has the field loadedInPast, representing whether any CSV data has been loaded, and a
+ * CsvIndex over the current data, so that repeated searches do not rescan every row. The data is
+ * kept in a ColumnarTable, which stores each distinct value of a column once.
+ *
+ * <p>The table, its index and its version are published together as one immutable Snapshot, so a
+ * handler that reads the snapshot once per request never pairs the rows of one load with the index
+ * or version of another, even while /loadcsv replaces the data.
  *
  * @author sarahridley juliazdzilowska prlakshm
  * @version 3.0
  */
 public class CsvDataWrapper {
-  private final List<List<String>> csvData;
+  private volatile Snapshot snapshot;
   private boolean loadedInPast;
 
   /**
    * The constructor for the CsvDataWrapper class.
    *
-   * @param csvData the List of List of String representing the parsed CSV data
+   * @param csvData the List of List of String representing the parsed CSV data, which is copied
    * @param loadedInPast the boolean representing whether any CSV data has been loaded
    */
   public CsvDataWrapper(List<List<String>> csvData, boolean loadedInPast) {
-    this.csvData = csvData;
     this.loadedInPast = loadedInPast;
+    setData(csvData);
   }
 
   /**
-   * A setter method allowing the caller to reset the value of csvData (cleared and then set).
+   * A setter method allowing the caller to reset the value of csvData, encoding the new rows into a
+   * ColumnarTable.
    *
    * @param data the List of List of String to replace the contents of csvData with
    */
-  public void setData(List<List<String>> data) {
-    this.csvData.clear();
-    this.csvData.addAll(data);
+  public synchronized void setData(List<List<String>> data) {
+    ColumnarTable table = ColumnarTable.of(data);
+    int version = this.snapshot == null ? 1 : this.snapshot.version() + 1;
+    this.snapshot = new Snapshot(table, new CsvIndex(table), version);
+  }
+
+  /**
+   * A getter method for the current csvData, its index and its version, all from the same call to
+   * setData.
+   *
+   * @return the Snapshot of the current csvData
+   */
+  public Snapshot getSnapshot() {
+    return this.snapshot;
+  }
+
+  /**
+   * A getter method for the version of the current csvData, which changes every time new data is
+   * set.
+   *
+   * @return the version of the current csvData
+   */
+  public int getVersion() {
+    return this.snapshot.version();
+  }
+
+  /**
+   * A getter method for the index over the current csvData, whose column indexes are built on
+   * first search and dropped when new data is set.
+   *
+   * @return the CsvIndex of the current csvData
+   */
+  public CsvIndex getIndex() {
+    return this.snapshot.index();
   }
 
   /**
@@ -43,7 +82,7 @@ public class CsvDataWrapper {
    * @return an unmodiiable List of List of String, allowing the caller to view csvData
    */
   public List<List<String>> getData() {
-    return Collections.unmodifiableList(this.csvData);
+    return this.snapshot.rows();
   }
 
   /**
@@ -64,4 +103,23 @@ public class CsvDataWrapper {
   public boolean getLoaded() {
     return this.loadedInPast;
   }
+
+  /**
+   * A record representing one set of loaded CSV data, with the index over it and the version it
+   * was loaded as.
+   *
+   * @param table the ColumnarTable holding the loaded rows
+   * @param index the CsvIndex over the table, whose column indexes are built on first search
+   * @param version the version of the data, which changes every time new data is set
+   */
+  public record Snapshot(ColumnarTable table, CsvIndex index, int version) {
+    /**
+     * A method that gets the loaded rows.
+     *
+     * @return an unmodifiable List of List of String view of the table's rows
+     */
+    public List<List<String>> rows() {
+      return table.asRows();
+    }
+  }
 }
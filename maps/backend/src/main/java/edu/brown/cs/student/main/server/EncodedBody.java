@@ -0,0 +1,183 @@
+package edu.brown.cs.student.main.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPOutputStream;
+import spark.Request;
+import spark.Response;
+
+/**
+ * This EncodedBody class holds a response body that has already been serialized, as UTF-8 bytes
+ * and as gzip compressed bytes, along with an ETag for it. Handlers whose response is large and
+ * rarely changes, like /redliningdata, build one when their cache misses and then serve every
+ * request from it without serializing or compressing again.
+ *
+ * <p>A request whose If-None-Match header names the ETag gets an empty 304 Not Modified. Otherwise
+ * the gzip bytes are sent if the Accept-Encoding header allows gzip, and the plain bytes are sent if
+ * not.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class EncodedBody {
+  private final byte[] identity;
+  private final byte[] gzip;
+  private final String etag;
+
+  /**
+   * The constructor for the EncodedBody class, which encodes and compresses the given body once.
+   *
+   * @param body the serialized response body
+   */
+  public EncodedBody(String body) {
+    this.identity = body.getBytes(StandardCharsets.UTF_8);
+    this.gzip = compress(this.identity);
+    this.etag = "\"" + hash(this.identity) + "\"";
+  }
+
+  /**
+   * A method that answers a request from the encoded body, choosing a 304, the gzip bytes, or the
+   * plain bytes from the request's headers.
+   *
+   * <p>Spark gzips any route result itself when Content-Encoding is set to gzip, so the gzip bytes
+   * are written straight to the raw response, which commits it; the empty String returned is then
+   * not written.
+   *
+   * @param request the Spark request being answered
+   * @param response the Spark response to set headers on
+   * @return the body for Spark to write: the plain bytes, or an empty String if already written
+   * @throws IOException if the gzip bytes cannot be written
+   */
+  public Object respond(Request request, Response response) throws IOException {
+    response.header("ETag", this.etag);
+    response.header("Vary", "Accept-Encoding");
+    if (matchesEtag(request.headers("If-None-Match"))) {
+      response.status(304);
+      return "";
+    }
+    if (acceptsGzip(request.headers("Accept-Encoding"))) {
+      response.header("Content-Encoding", "gzip");
+      response.raw().setContentLength(this.gzip.length);
+      OutputStream out = response.raw().getOutputStream();
+      out.write(this.gzip);
+      out.flush();
+      return "";
+    }
+    return this.identity;
+  }
+
+  /**
+   * A getter method for the ETag of the body.
+   *
+   * @return the quoted ETag
+   */
+  public String getEtag() {
+    return this.etag;
+  }
+
+  /**
+   * A getter method for the plain bytes of the body.
+   *
+   * @return the UTF-8 bytes of the body
+   */
+  public byte[] getIdentity() {
+    return this.identity.clone();
+  }
+
+  /**
+   * A getter method for the gzip compressed bytes of the body.
+   *
+   * @return the gzip compressed UTF-8 bytes of the body
+   */
+  public byte[] getGzip() {
+    return this.gzip.clone();
+  }
+
+  /**
+   * A helper method that checks whether an If-None-Match header names this body's ETag.
+   *
+   * @param ifNoneMatch the header value, possibly null
+   * @return true if the header is * or lists the ETag, false otherwise
+   */
+  private boolean matchesEtag(String ifNoneMatch) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String tag : ifNoneMatch.split(",")) {
+      String trimmed = tag.trim();
+      if (trimmed.startsWith("W/")) {
+        trimmed = trimmed.substring(2);
+      }
+      if (trimmed.equals("*") || trimmed.equals(this.etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A helper method that checks whether an Accept-Encoding header allows gzip.
+   *
+   * @param acceptEncoding the header value, possibly null
+   * @return true if gzip is listed without a quality of zero, false otherwise
+   */
+  private static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.trim().split(";");
+      if (parts[0].trim().equalsIgnoreCase("gzip")) {
+        for (int i = 1; i < parts.length; i++) {
+          String parameter = parts[i].trim().replace(" ", "");
+          if (parameter.matches("q=0(\\.0*)?")) {
+            return false;
+          }
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A helper method that gzip compresses bytes.
+   *
+   * @param bytes the bytes to compress
+   * @return the compressed bytes
+   */
+  private static byte[] compress(byte[] bytes) {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+    try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed)) {
+      gzipStream.write(bytes);
+    } catch (IOException e) {
+      // Writing to a byte array cannot fail
+      throw new IllegalStateException(e);
+    }
+    return compressed.toByteArray();
+  }
+
+  /**
+   * A helper method that hashes bytes into a hex String for the ETag.
+   *
+   * @param bytes the bytes to hash
+   * @return the first 16 bytes of the SHA-256 hash, in hex
+   */
+  private static String hash(byte[] bytes) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+      StringBuilder hex = new StringBuilder();
+      for (int i = 0; i < 16; i++) {
+        hex.append(String.format("%02x", digest[i]));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform supports SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,425 @@
+package edu.brown.cs.student.main.server;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.JsonReader;
+import edu.brown.cs.student.main.maptypes.Feature;
+import edu.brown.cs.student.main.maptypes.FeatureCollection;
+import edu.brown.cs.student.main.maptypes.FeatureSnapshot;
+import edu.brown.cs.student.main.maps.search.RTree;
+import edu.brown.cs.student.main.maps.search.TermIndex;
+import edu.brown.cs.student.main.maps.search.TrigramIndex;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * This FeatureStore class wraps the GEOJSON FeatureCollection that the /redliningdata,
+ * /boundarybox, and /searchareas endpoints share. The GEOJSON file is read from the resources
+ * folder and parsed exactly once, when the store is constructed, so that the handlers no longer
+ * re-read and re-parse the file on every request. The file is streamed through a JsonReader and
+ * decoded one Feature at a time, so it is never held in memory as a whole String. When given a
+ * snapshot path, the store instead maps a binary FeatureSnapshot of the file, written the first
+ * time the file is parsed. A mapped store serves the envelopes and the RTree straight from the
+ * snapshot, and decodes a Feature only when it is read from getFeatures(), so it starts in the
+ * same time however large the file is.
+ *
+ * <p>Like CsvDataWrapper, an object of this class is built by Server and injected into each handler
+ * that needs it. The parsed features are exposed as an immutable snapshot, so one handler cannot
+ * change the data another handler sees.
+ *
+ * <p>When the file is parsed, the store also computes the bounding envelope of every feature, keeps
+ * them in parallel primitive arrays, and bulk loads them into an RTree. Bounding box queries then
+ * only look at features near the query box, and decide each one from its envelope alone, since
+ * every point of a feature lies within a box exactly when its envelope does.
+ *
+ * <p>The area description of every feature is also indexed by word in a TermIndex, for /searchareas
+ * queries that match whole words, and by trigram in a TrigramIndex, for the default substring
+ * queries. Both indexes are built on the heap by the first search, from the features' properties,
+ * which a mapped store decodes without their coordinates.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class FeatureStore {
+  private final String filepath;
+  private final boolean found;
+  private final FeatureCollection collection;
+  private final List<Feature> features;
+  // The mapped snapshot the store serves from, or null if the features were parsed
+  private final FeatureSnapshot snapshot;
+  // Envelope of each feature, indexed like getFeatures(); empty geometries have min > max
+  private final DoubleBuffer minLat;
+  private final DoubleBuffer maxLat;
+  private final DoubleBuffer minLng;
+  private final DoubleBuffer maxLng;
+  private final RTree spatialIndex;
+  // Ids of the features whose geometry has no points, which the RTree leaves out
+  private final int[] emptyGeometryIds;
+  // Built by the first search
+  private volatile TextIndexes textIndexes;
+
+  /**
+   * The constructor for the FeatureStore class, which reads and parses the GEOJSON resource at the
+   * given filepath. If the file cannot be found or parsed, the store is left empty and the
+   * isFound and isParsed methods report what went wrong, so handlers can still respond with an
+   * error instead of the server failing to start.
+   *
+   * @param filepath the String path of the GEOJSON file, relative to the resources folder
+   */
+  public FeatureStore(String filepath) {
+    this(filepath, null);
+  }
+
+  /**
+   * The constructor for the FeatureStore class, which loads the GEOJSON resource at the given
+   * filepath from a binary FeatureSnapshot when possible. If the snapshot is missing or was written
+   * from a different version of the file, the GEOJSON is parsed and a new snapshot is written for
+   * the next start; failing to write it does not stop the store from loading.
+   *
+   * @param filepath the String path of the GEOJSON file, relative to the resources folder
+   * @param snapshotPath the Path of the snapshot file, or null to always parse the GEOJSON
+   */
+  public FeatureStore(String filepath, Path snapshotPath) {
+    this.filepath = filepath;
+    URL resource = getClass().getClassLoader().getResource(filepath);
+    this.found = resource != null;
+
+    FeatureSnapshot snapshot = null;
+    long sourceLength = -1;
+    long sourceModified = -1;
+    if (resource != null && snapshotPath != null) {
+      try {
+        URLConnection connection = resource.openConnection();
+        sourceLength = connection.getContentLengthLong();
+        sourceModified = connection.getLastModified();
+        // Reading the headers may open the resource, so close it again
+        connection.getInputStream().close();
+        snapshot = FeatureSnapshot.open(snapshotPath, sourceLength, sourceModified);
+      } catch (Exception e) {
+        snapshot = null;
+      }
+    }
+
+    this.snapshot = snapshot;
+    if (snapshot != null) {
+      this.collection = new FeatureCollection(snapshot.getFeatures());
+      this.features = snapshot.getFeatures();
+      this.minLat = snapshot.getMinLat();
+      this.maxLat = snapshot.getMaxLat();
+      this.minLng = snapshot.getMinLng();
+      this.maxLng = snapshot.getMaxLng();
+      this.spatialIndex = snapshot.getSpatialIndex();
+      IntBuffer emptyIds = snapshot.getEmptyGeometryIds();
+      this.emptyGeometryIds = new int[emptyIds.limit()];
+      emptyIds.get(0, this.emptyGeometryIds);
+      return;
+    }
+
+    FeatureCollection parsed = null;
+    if (resource != null) {
+      try (BufferedSource source = Okio.buffer(Okio.source(resource.openStream()))) {
+        parsed = new FeatureCollection(readFeatures(JsonReader.of(source)));
+      } catch (Exception e) {
+        parsed = null;
+      }
+    }
+    this.collection = parsed;
+    this.features = parsed == null ? List.of() : List.copyOf(parsed.getFeatures());
+
+    // Compute each feature's envelope once, for the spatial index
+    int size = this.features.size();
+    double[] minLat = new double[size];
+    double[] maxLat = new double[size];
+    double[] minLng = new double[size];
+    double[] maxLng = new double[size];
+    computeEnvelopes(this.features, minLat, maxLat, minLng, maxLng);
+    if (parsed != null && snapshotPath != null && sourceLength >= 0) {
+      try {
+        FeatureSnapshot.write(snapshotPath, sourceLength, sourceModified, this.features,
+            minLat, maxLat, minLng, maxLng);
+      } catch (Exception e) {
+        // The snapshot only speeds up the next start, so the store still loads without it
+      }
+    }
+    this.minLat = DoubleBuffer.wrap(minLat);
+    this.maxLat = DoubleBuffer.wrap(maxLat);
+    this.minLng = DoubleBuffer.wrap(minLng);
+    this.maxLng = DoubleBuffer.wrap(maxLng);
+    this.spatialIndex = new RTree(minLng, minLat, maxLng, maxLat);
+    this.emptyGeometryIds =
+        IntStream.range(0, size)
+            .filter(i -> this.features.get(i).getGeometry() != null && minLat[i] > maxLat[i])
+            .toArray();
+  }
+
+  /**
+   * A helper method that computes the envelope of every feature. A feature without a geometry, or
+   * whose geometry has no points, gets an empty envelope, with each minimum greater than its
+   * maximum.
+   *
+   * @param features the features
+   * @param minLat filled with the minimum latitude of each feature
+   * @param maxLat filled with the maximum latitude of each feature
+   * @param minLng filled with the minimum longitude of each feature
+   * @param maxLng filled with the maximum longitude of each feature
+   */
+  private static void computeEnvelopes(List<Feature> features, double[] minLat, double[] maxLat,
+      double[] minLng, double[] maxLng) {
+    for (int i = 0; i < features.size(); i++) {
+      minLat[i] = Double.POSITIVE_INFINITY;
+      maxLat[i] = Double.NEGATIVE_INFINITY;
+      minLng[i] = Double.POSITIVE_INFINITY;
+      maxLng[i] = Double.NEGATIVE_INFINITY;
+      Feature.Geometry geometry = features.get(i).getGeometry();
+      if (geometry == null) {
+        continue;
+      }
+      for (int point = 0; point < geometry.getPointCount(); point++) {
+        minLat[i] = Math.min(minLat[i], geometry.getLat(point));
+        maxLat[i] = Math.max(maxLat[i], geometry.getLat(point));
+        minLng[i] = Math.min(minLng[i], geometry.getLng(point));
+        maxLng[i] = Math.max(maxLng[i], geometry.getLng(point));
+      }
+    }
+  }
+
+  /**
+   * A helper method that streams the features out of a GEOJSON FeatureCollection. Each feature is
+   * decoded on its own and added to the list, so the memory used while parsing is bounded by the
+   * largest single feature rather than by the size of the file. Keys other than features are
+   * skipped.
+   *
+   * @param reader the JsonReader positioned at the start of the FeatureCollection
+   * @return the features of the collection, in file order
+   * @throws IOException if the JSON cannot be read or is not a FeatureCollection
+   */
+  private static List<Feature> readFeatures(JsonReader reader) throws IOException {
+    JsonAdapter<Feature> adapter = Serialization.MOSHI.adapter(Feature.class);
+    List<Feature> features = new ArrayList<>();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (reader.nextName().equals("features") && reader.peek() != JsonReader.Token.NULL) {
+        reader.beginArray();
+        while (reader.hasNext()) {
+          features.add(adapter.fromJson(reader));
+        }
+        reader.endArray();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (reader.peek() != JsonReader.Token.END_DOCUMENT) {
+      throw new JsonDataException("JSON document was not fully consumed.");
+    }
+    return features;
+  }
+
+  /**
+   * A getter method for the filepath of the GEOJSON file this store was loaded from.
+   *
+   * @return the String filepath passed to the constructor
+   */
+  public String getFilepath() {
+    return this.filepath;
+  }
+
+  /**
+   * A method allowing the caller to check whether the GEOJSON file was found in resources.
+   *
+   * @return a boolean representing whether the file was found
+   */
+  public boolean isFound() {
+    return this.found;
+  }
+
+  /**
+   * A method allowing the caller to check whether the GEOJSON file was successfully parsed.
+   *
+   * @return a boolean representing whether a FeatureCollection was parsed from the file
+   */
+  public boolean isParsed() {
+    return this.collection != null;
+  }
+
+  /**
+   * A getter method for the parsed FeatureCollection, used by /redliningdata to return the full
+   * dataset.
+   *
+   * @return the parsed FeatureCollection, or null if the file could not be parsed
+   */
+  public FeatureCollection getCollection() {
+    return this.collection;
+  }
+
+  /**
+   * A getter method for the parsed features.
+   *
+   * @return an immutable List of every Feature in the GEOJSON file, empty if it was not parsed
+   */
+  public List<Feature> getFeatures() {
+    return this.features;
+  }
+
+  /**
+   * A method that uses the spatial index to find the features that may lie entirely within the
+   * given bounding box: those whose envelope intersects the box, plus those whose geometry has no
+   * points at all. Features without a geometry are never candidates. Callers still need to check
+   * each candidate's coordinates exactly.
+   *
+   * @param minLat the minimum latitude of the bounding box
+   * @param maxLat the maximum latitude of the bounding box
+   * @param minLng the minimum longitude of the bounding box
+   * @param maxLng the maximum longitude of the bounding box
+   * @return the indices into getFeatures() of the candidate features, in ascending order
+   */
+  public int[] findCandidates(double minLat, double maxLat, double minLng, double maxLng) {
+    int[] intersecting = spatialIndex.search(minLng, minLat, maxLng, maxLat);
+    if (emptyGeometryIds.length == 0) {
+      return intersecting;
+    }
+    int[] candidates = IntStream.concat(
+        Arrays.stream(intersecting), Arrays.stream(emptyGeometryIds)).toArray();
+    Arrays.sort(candidates);
+    return candidates;
+  }
+
+  /**
+   * A method that finds the features lying entirely within the given bounding box. Each candidate
+   * from the spatial index is accepted or rejected by comparing its precomputed envelope to the
+   * box, so no feature is decoded. Features without a geometry are left out, and features whose
+   * geometry has no points are always included.
+   *
+   * @param minLat the minimum latitude of the bounding box
+   * @param maxLat the maximum latitude of the bounding box
+   * @param minLng the minimum longitude of the bounding box
+   * @param maxLng the maximum longitude of the bounding box
+   * @return the indices into getFeatures() of the features within the box, in ascending order
+   */
+  public int[] findWithin(double minLat, double maxLat, double minLng, double maxLng) {
+    int[] candidates = findCandidates(minLat, maxLat, minLng, maxLng);
+    int count = 0;
+    for (int id : candidates) {
+      if (isEnvelopeWithin(this.minLat.get(id), this.maxLat.get(id), this.minLng.get(id),
+          this.maxLng.get(id), minLat, maxLat, minLng, maxLng)) {
+        candidates[count++] = id;
+      }
+    }
+    return Arrays.copyOf(candidates, count);
+  }
+
+  /**
+   * A helper method that decides whether a feature lies entirely within a bounding box from the
+   * feature's envelope. Every point of a feature lies within the box exactly when its envelope
+   * does, so this is the one definition of "within" that /boundarybox uses. An empty envelope,
+   * with each minimum greater than its maximum, is always within the box.
+   *
+   * @param featureMinLat the minimum latitude of the feature
+   * @param featureMaxLat the maximum latitude of the feature
+   * @param featureMinLng the minimum longitude of the feature
+   * @param featureMaxLng the maximum longitude of the feature
+   * @param minLat the minimum latitude of the bounding box
+   * @param maxLat the maximum latitude of the bounding box
+   * @param minLng the minimum longitude of the bounding box
+   * @param maxLng the maximum longitude of the bounding box
+   * @return true if the feature's envelope lies within the bounding box, false otherwise
+   */
+  static boolean isEnvelopeWithin(double featureMinLat, double featureMaxLat,
+      double featureMinLng, double featureMaxLng,
+      double minLat, double maxLat, double minLng, double maxLng) {
+    if (featureMinLat > featureMaxLat) {
+      return true;
+    }
+    return featureMinLat >= minLat
+        && featureMaxLat <= maxLat
+        && featureMinLng >= minLng
+        && featureMaxLng <= maxLng;
+  }
+
+  /**
+   * A method that uses the word index to find the features whose area description contains the
+   * words of a query, ignoring case.
+   *
+   * @param query the words to search for, separated by any non-letter, non-digit characters
+   * @param matchAll true to find features containing every word, false for any word
+   * @return the indices into getFeatures() of the matching features, in ascending order
+   */
+  public int[] searchTerms(String query, boolean matchAll) {
+    TermIndex termIndex = textIndexes().termIndex();
+    return matchAll ? termIndex.searchAll(query) : termIndex.searchAny(query);
+  }
+
+  /**
+   * A method that uses the trigram index to find the features whose area description contains a
+   * keyword, ignoring case.
+   *
+   * @param keyword the substring to search for
+   * @return the indices into getFeatures() of the matching features, in ascending order
+   */
+  public int[] searchSubstring(String keyword) {
+    return textIndexes().trigramIndex().search(keyword);
+  }
+
+  /**
+   * A helper method that gives the text indexes, building them on the first call. A mapped store
+   * decodes only the properties of each feature to build them.
+   *
+   * @return the word and trigram indexes of the area descriptions
+   */
+  private TextIndexes textIndexes() {
+    TextIndexes indexes = this.textIndexes;
+    if (indexes != null) {
+      return indexes;
+    }
+    synchronized (this) {
+      if (this.textIndexes == null) {
+        List<String> descriptions = new ArrayList<>(this.features.size());
+        for (int id = 0; id < this.features.size(); id++) {
+          Feature.Properties properties =
+              snapshot != null ? snapshot.getProperties(id) : this.features.get(id).getProperties();
+          descriptions.add(getDescription(properties));
+        }
+        this.textIndexes =
+            new TextIndexes(new TermIndex(descriptions), new TrigramIndex(descriptions));
+      }
+      return this.textIndexes;
+    }
+  }
+
+  /**
+   * A helper method that gets the searchable area description of a feature. As in /searchareas,
+   * this is the first value of the feature's area_description_data.
+   *
+   * @param properties the properties of the feature to describe, possibly null
+   * @return the first area description value, or null if the feature has none
+   */
+  static String getDescription(Feature.Properties properties) {
+    if (properties == null) {
+      return null;
+    }
+    Map<String, String> descriptions = properties.getArea_description_data();
+    if (descriptions == null || descriptions.isEmpty()) {
+      return null;
+    }
+    return descriptions.values().iterator().next();
+  }
+
+  /**
+   * A record holding the two indexes of the area descriptions.
+   *
+   * @param termIndex the index of the words of each description
+   * @param trigramIndex the index of the trigrams of each description
+   */
+  private record TextIndexes(TermIndex termIndex, TrigramIndex trigramIndex) {}
+}
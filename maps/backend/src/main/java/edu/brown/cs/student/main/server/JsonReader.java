@@ -1,7 +1,5 @@
 package edu.brown.cs.student.main.server;
 
-import com.squareup.moshi.Moshi;
-
 /**
  * A generic class for reading and deserializing JSON strings into Java objects using Moshi library.
  * 
@@ -35,10 +33,8 @@ public class JsonReader<T> {
    */
   public T fromJson() throws InstantiationError {
     try {
-      Moshi moshi = new Moshi.Builder().build();
-
       // Parse JSON into the provided class type
-      T object = moshi.adapter(this.objectType).fromJson(this.json);
+      T object = Serialization.MOSHI.adapter(this.objectType).fromJson(this.json);
 
       return object;
 
@@ -1,10 +1,19 @@
 package edu.brown.cs.student.main.server;
 
-import com.squareup.moshi.Moshi;
+import com.squareup.moshi.JsonAdapter;
 import edu.brown.cs.student.main.creator.ListStringFromRow;
 import edu.brown.cs.student.main.csv.parse.CsvParser;
+import edu.brown.cs.student.main.csv.parse.FactoryFailureException;
+import edu.brown.cs.student.main.csv.parse.ParallelCsvParser;
 
 import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import spark.Request;
 import spark.Response;
@@ -16,10 +25,15 @@ import spark.Route;
  * filepath passed as a query parameter is found, the handle method parses the CSV and stores its
  * rows in the CsvDataWrapper object and sets the wrapper's loadedInPast field to true.
  *
+ * <p>A file is never read into one byte array. A large file is mapped and parsed in parallel
+ * chunks, and any other file is streamed through a single CsvParser.
+ *
  * @author sarahridley juliazdzilowska prlakshm
  * @version 3.0
  */
 public class LoadCsvHandler implements Route {
+  // Files at least this large are parsed in parallel chunks, when there is more than one core
+  static final int PARALLEL_PARSE_BYTES = 4 << 20;
   private final CsvDataWrapper csvData;
 
   /**
@@ -58,19 +72,16 @@ public class LoadCsvHandler implements Route {
       //       .serialize();
       // }
       ClassLoader classLoader = getClass().getClassLoader();
-      InputStream inputStream = classLoader.getResourceAsStream(csvFilePath);
+      URL resource = classLoader.getResource(csvFilePath);
 
       //Check file in resource folder
-      if (inputStream == null) {
+      if (resource == null) {
         return new LoadFailureResponse(
                 "error_datasource", "File not found \"" + csvFilePath + "\"", csvFilePath)
                 .serialize();
       }
 
-      InputStreamReader reader = new InputStreamReader(inputStream);
-      CsvParser<List<String>> parser = new CsvParser<>(reader, new ListStringFromRow());
-      parser.parseCsv();
-      List<List<String>> rows = parser.getStoreRows();
+      List<List<String>> rows = parseRows(resource);
       csvData.setData(rows);
       csvData.setLoaded(true);
       return new LoadSuccessResponse(csvFilePath).serialize();
@@ -81,6 +92,39 @@ public class LoadCsvHandler implements Route {
     }
   }
 
+  /**
+   * A helper method that parses a UTF-8 CSV resource into rows. A file on disk with enough bytes
+   * and cores for it to pay off is mapped and parsed on several threads; any other resource is
+   * streamed through one CsvParser.
+   *
+   * @param resource the URL of the CSV resource
+   * @return the rows of the CSV
+   * @throws FactoryFailureException if a row could not be created
+   * @throws IOException if the CSV could not be read
+   * @throws URISyntaxException if the resource is a file whose URL is not a valid URI
+   */
+  private static List<List<String>> parseRows(URL resource)
+      throws FactoryFailureException, IOException, URISyntaxException {
+    if (resource.getProtocol().equals("file")
+        && Runtime.getRuntime().availableProcessors() > 1) {
+      Path file = Path.of(resource.toURI());
+      if (Files.isRegularFile(file) && Files.size(file) >= PARALLEL_PARSE_BYTES) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+          ParallelCsvParser<List<String>> parser =
+              new ParallelCsvParser<>(channel, new ListStringFromRow());
+          parser.parseCsv();
+          return parser.getStoreRows();
+        }
+      }
+    }
+    try (InputStream inputStream = resource.openStream()) {
+      Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+      CsvParser<List<String>> parser = new CsvParser<>(reader, new ListStringFromRow());
+      parser.parseCsv();
+      return parser.getStoreRows();
+    }
+  }
+
   /**
    * A record representing a failed call to the /loadcsv handler, containing a result with an error
    * code, an error message with more information, and the given filepath.
@@ -90,14 +134,16 @@ public class LoadCsvHandler implements Route {
    * @param filepath a String containing the filepath given by client
    */
   public record LoadFailureResponse(String result, String error_message, String filepath) {
+    private static final JsonAdapter<LoadFailureResponse> ADAPTER =
+        Serialization.MOSHI.adapter(LoadFailureResponse.class);
+
     /**
      * This method serializes a failure response object.
      *
      * @return this failure response object, serialized as Json
      */
     String serialize() {
-      Moshi moshi = new Moshi.Builder().build();
-      return moshi.adapter(LoadFailureResponse.class).toJson(this);
+      return ADAPTER.toJson(this);
     }
   }
 
@@ -109,6 +155,9 @@ public class LoadCsvHandler implements Route {
    * @param filepath the String containing the filepath to the loaded file
    */
   public record LoadSuccessResponse(String result, String filepath) {
+    private static final JsonAdapter<LoadSuccessResponse> ADAPTER =
+        Serialization.MOSHI.adapter(LoadSuccessResponse.class);
+
     /**
      * The constructor for the LoadSuccessResponse record.
      *
@@ -123,8 +172,7 @@ public class LoadCsvHandler implements Route {
      * @return this success response object, serialized as Json
      */
     String serialize() {
-      Moshi moshi = new Moshi.Builder().build();
-      return moshi.adapter(LoadSuccessResponse.class).toJson(this);
+      return ADAPTER.toJson(this);
     }
   }
 }
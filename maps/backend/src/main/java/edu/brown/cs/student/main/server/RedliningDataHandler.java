@@ -8,24 +8,13 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.squareup.moshi.JsonAdapter;
-import com.squareup.moshi.JsonDataException;
-import com.squareup.moshi.Moshi;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import edu.brown.cs.student.main.maptypes.Feature;
 import edu.brown.cs.student.main.maptypes.FeatureCollection;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import kotlin.Pair;
 import spark.Request;
 import spark.Response;
 import spark.Route;
@@ -35,36 +24,58 @@ import spark.Route;
  *
  * The class handles loading and caching of GEOJSON data for redlining analysis and implements the
  * Spark Route interface.
+ *
+ * The success response is large and only changes when the cache expires, so it is kept as an
+ * EncodedBody: serialized and gzip compressed once, and served with an ETag so that clients that
+ * already have it get a 304 Not Modified. Without a cache, the body is built once when the handler
+ * is constructed, since the FeatureStore never changes.
  * 
  * @author sarahridley juliazdzilowska prlakshm
  * @version 3.0
  */
 public class RedliningDataHandler implements Route {
 
-  // The FeatureCollection to store loaded GEOJSON data
-  private FeatureCollection featureCollection;
+  // Shared store holding the GEOJSON features parsed once at startup
+  private final FeatureStore store;
 
   // Optional caching mechanism for storing and retrieving GEOJSON data
-  private final Optional<LoadingCache<String, Object>> cache;
-  //filepath to geojson data
-  private final String filepath;
+  private final Optional<LoadingCache<String, EncodedBody>> cache;
+
+  // Response encoded once at construction when caching is disabled, since the store never changes
+  private final EncodedBody uncachedBody;
 
   /**
-   * Constructor for RedliningDataHandler, taking a CacheBuilder as an argument for optional caching.
+   * Constructor for RedliningDataHandler that loads its own FeatureStore from the given file.
    *
+   * @param file The filepath to the GEOJSON data, relative to the resources folder.
    * @param cacheBuilder The CacheBuilder for caching GEOJSON data.
    */
   public RedliningDataHandler(String file, CacheBuilder cacheBuilder) {
-    this.filepath = file;
+    this(new FeatureStore(file), cacheBuilder);
+  }
+
+  /**
+   * Constructor for RedliningDataHandler, taking a shared FeatureStore and a CacheBuilder as an
+   * argument for optional caching.
+   *
+   * @param store The FeatureStore holding the parsed GEOJSON data.
+   * @param cacheBuilder The CacheBuilder for caching GEOJSON data.
+   */
+  public RedliningDataHandler(FeatureStore store, CacheBuilder cacheBuilder) {
+    this.store = store;
     if (cacheBuilder == null) {
       this.cache = Optional.empty();
+      this.uncachedBody = store.isParsed()
+              ? new EncodedBody(handleCacheMiss(store.getCollection()))
+              : null;
     } else {
+      this.uncachedBody = null;
       // Initialize the cache with a CacheLoader that handles cache misses
-      LoadingCache<String, Object> loadingCache = cacheBuilder.build(
-              new CacheLoader<String, Object>() {
+      LoadingCache<String, EncodedBody> loadingCache = cacheBuilder.build(
+              new CacheLoader<String, EncodedBody>() {
                 @Override
-                public Object load(String key) {
-                  return handleCacheMiss(featureCollection);
+                public EncodedBody load(String key) {
+                  return new EncodedBody(handleCacheMiss(store.getCollection()));
                 }
               });
       this.cache = Optional.of(loadingCache);
@@ -81,36 +92,26 @@ public class RedliningDataHandler implements Route {
   @Override
   public Object handle(Request request, Response response) {
     try {
-      // Read the GEOJSON content from the file
-      ClassLoader classLoader = getClass().getClassLoader();
-      InputStream inputStream = classLoader.getResourceAsStream(this.filepath);
-
       //Check geojson file in resource folder
-      if (inputStream == null) {
+      if (!store.isFound()) {
         return new LoadCsvHandler.LoadFailureResponse(
-                "error_datasource", "File not found in resources: " + this.filepath, this.filepath)
+                "error_datasource", "File not found in resources: " + store.getFilepath(),
+                store.getFilepath())
+                .serialize();
+      }
+      if (!store.isParsed()) {
+        // Handle an error when the file cannot be parsed
+        return new RedliningDataHandler.RedlineFailureResponse(
+                "error_bad_request", "file cannot be parsed")
                 .serialize();
       }
-
-      String jsonContent = new String(inputStream.readAllBytes());
-
-      Moshi moshi = new Moshi.Builder().build();
-      JsonAdapter<FeatureCollection> adapter = moshi.adapter(FeatureCollection.class);
-      FeatureCollection collection = adapter.fromJson(jsonContent);
-      this.featureCollection = collection;
       String cacheKey = "unique_cache_key";
 
-      // Return a success response with the deserialized FeatureCollection
-      if (cache.isEmpty()) {
-        return handleCacheMiss(this.featureCollection);
-      }
-      return cache.get().get(cacheKey);
+      // Return a success response with the deserialized FeatureCollection, encoded once per
+      // cache entry, or once for the handler if caching is disabled
+      EncodedBody body = cache.isEmpty() ? uncachedBody : cache.get().get(cacheKey);
+      return body.respond(request, response);
 
-    } catch (IOException e) {
-      // Handle an error when the file cannot be parsed
-      return new RedliningDataHandler.RedlineFailureResponse(
-              "error_bad_request", "file cannot be parsed")
-              .serialize();
     } catch (Exception e) {
       // Handle an error when there is an issue in fetching GEOJSON
       return new RedliningDataHandler.RedlineFailureResponse(
@@ -125,7 +126,7 @@ public class RedliningDataHandler implements Route {
    * @param featureCollection The FeatureCollection to be serialized in the response.
    * @return The serialized success response containing the loaded GEOJSON data.
    */
-  private Object handleCacheMiss(FeatureCollection featureCollection) {
+  private String handleCacheMiss(FeatureCollection featureCollection) {
     Date today = new Date();
     Long now = today.getTime();
     String dateTimeFormatted = new SimpleDateFormat("MM/dd/yyyy HH:mm").format(now);
@@ -141,14 +142,16 @@ public class RedliningDataHandler implements Route {
    * Represents a failure response for GEOJSON handling.
    */
   public record RedlineFailureResponse(String result, String error_message) {
+    private static final JsonAdapter<RedlineFailureResponse> ADAPTER =
+        Serialization.MOSHI.adapter(RedlineFailureResponse.class);
+
     /**
      * Serializes a failure response object.
      *
      * @return The failure response object, serialized as JSON.
      */
     String serialize() {
-      Moshi moshi = new Moshi.Builder().build();
-      return moshi.adapter(RedliningDataHandler.RedlineFailureResponse.class).toJson(this);
+      return ADAPTER.toJson(this);
     }
   }
 
@@ -157,6 +160,9 @@ public class RedliningDataHandler implements Route {
    * success, as well as the provided FeatureCollection.
    */
   public record RedlineSuccessResponse(String result, String dateTime, FeatureCollection collection) {
+    private static final JsonAdapter<RedlineSuccessResponse> ADAPTER =
+        Serialization.MOSHI.adapter(RedlineSuccessResponse.class);
+
     /**
      * Constructor for the GEOJSON success response record.
      *
@@ -171,8 +177,7 @@ public class RedliningDataHandler implements Route {
      * @return The success response object, serialized as JSON.
      */
     String serialize() {
-      Moshi moshi = new Moshi.Builder().build();
-      return moshi.adapter(RedliningDataHandler.RedlineSuccessResponse.class).toJson(this);
+      return ADAPTER.toJson(this);
     }
   }
 
@@ -185,7 +190,7 @@ public class RedliningDataHandler implements Route {
   public List<Object> getCache() {
     List<Object> cachedElements = new ArrayList<>();
     if (cache.isPresent()) {
-      Map<String, Object> cacheMap = cache.get().asMap();
+      Map<String, EncodedBody> cacheMap = cache.get().asMap();
       cachedElements.addAll(cacheMap.values());
     }
     return cachedElements;
@@ -8,18 +8,11 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.squareup.moshi.JsonAdapter;
-import com.squareup.moshi.Moshi;
 import edu.brown.cs.student.main.maptypes.Feature;
-import edu.brown.cs.student.main.maptypes.FeatureCollection;
-import kotlin.Pair;
 import spark.Request;
 import spark.Response;
 import spark.Route;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -29,35 +22,41 @@ import java.util.Optional;
 
 /** 
  * The class handles searching areas in GEOJSON data based on a provided keyword and implements the Spark Route interface.
+ *
+ * By default, an area matches if its description contains the keyword. With the optional match
+ * parameter set to "all" or "any", the keyword is split into words instead, and an area matches if
+ * its description contains all or any of those words as whole words.
  * 
  * @author sarahridley juliazdzilowska prlakshm
  * @version 3.0
  */
 public class SearchAreasHandler implements Route {
 
-  // The FeatureCollection to store loaded GEOJSON data
-  private FeatureCollection featureCollection;
-  //filepath to geojson data
-  private final String filepath;
+  // Shared store holding the GEOJSON features parsed once at startup
+  private final FeatureStore store;
 
   // Optional caching mechanism for storing and retrieving search results
-  private final Optional<LoadingCache<Pair<List<List<Double>>, String>, Object>> cache;
+  private final Optional<LoadingCache<List<String>, Object>> cache;
 
-  // Constructor for SearchAreasHandler, taking a CacheBuilder as an argument for optional caching
+  // Constructor for SearchAreasHandler that loads its own FeatureStore from the given file
   public SearchAreasHandler(String file, CacheBuilder cacheBuilder) {
-    this.filepath = file;
+    this(new FeatureStore(file), cacheBuilder);
+  }
+
+  // Constructor for SearchAreasHandler, taking a shared FeatureStore and a CacheBuilder as an
+  // argument for optional caching
+  public SearchAreasHandler(FeatureStore store, CacheBuilder cacheBuilder) {
+    this.store = store;
     if (cacheBuilder == null) {
       this.cache = Optional.empty();
     } else {
       // Initialize the cache with a CacheLoader that handles cache misses
-      LoadingCache<Pair<List<List<Double>>, String>, Object> loadingCache =
+      LoadingCache<List<String>, Object> loadingCache =
               cacheBuilder.build(
-                      new CacheLoader<Pair<List<List<Double>>, String>, Object>() {
+                      new CacheLoader<List<String>, Object>() {
                         @Override
-                        public Object load(Pair<List<List<Double>>, String> coordinatesAndKeyword) {
-                          List<List<Double>> coordinatesList = coordinatesAndKeyword.component1();
-                          String keyword = coordinatesAndKeyword.component2();
-                          return handleCacheMiss(coordinatesList, keyword);
+                        public Object load(List<String> query) {
+                          return handleCacheMiss(query.get(0), query.get(1));
                         }
                       });
       this.cache = Optional.of(loadingCache);
@@ -68,49 +67,38 @@ public class SearchAreasHandler implements Route {
   @Override
   public Object handle(Request request, Response response) {
     String keyword = request.queryParams("keyword");
+    String match = request.queryParams("match");
 
     if (keyword == null) {
       return new AreaFailureResponse(
               "error_bad_request", "Missing required parameter: keyword", "")
               .serialize();
     }
+    if (match != null && !match.equals("all") && !match.equals("any")) {
+      return new AreaFailureResponse(
+              "error_bad_request", "match must be \"all\" or \"any\"", keyword)
+              .serialize();
+    }
     try {
-      // Read the GEOJSON content from the file
-      ClassLoader classLoader = getClass().getClassLoader();
-      InputStream inputStream = classLoader.getResourceAsStream(this.filepath);
-
       //Check geojson file in resource folder
-      if (inputStream == null) {
+      if (!store.isFound()) {
         return new LoadCsvHandler.LoadFailureResponse(
-                "error_datasource", "File not found in resources: " + this.filepath, this.filepath)
+                "error_datasource", "File not found in resources: " + store.getFilepath(),
+                store.getFilepath())
                 .serialize();
       }
-
-      String jsonContent = new String(inputStream.readAllBytes());
-
-      Moshi moshi = new Moshi.Builder().build();
-      JsonAdapter<FeatureCollection> adapter = moshi.adapter(FeatureCollection.class);
-      FeatureCollection collection = adapter.fromJson(jsonContent);
-      this.featureCollection = collection;
-
-      List<Feature> containedFeatures = new ArrayList<>();
-      for (Feature feature : this.featureCollection.getFeatures()) {
-        Map<String, String> descriptions = feature.getProperties().getArea_description_data();
-        for (String description : descriptions.values()) {
-          if (description.toLowerCase().contains(keyword.toLowerCase())) {
-            containedFeatures.add(feature);
-          }
-          break;
-        }
+      if (!store.isParsed()) {
+        return new AreaFailureResponse(
+                "error_bad_request", "file cannot be parsed", keyword)
+                .serialize();
       }
+
+      // An empty match stands for the default substring search
+      String mode = match == null ? "" : match;
       if (cache.isEmpty()) {
-        return handleCacheMiss(getCoordinates(containedFeatures), keyword);
+        return handleCacheMiss(keyword, mode);
       }
-      return cache.get().get(new Pair<>(new ArrayList<>(getCoordinates(containedFeatures)), new String(keyword)));
-    } catch (IOException e) {
-      return new AreaFailureResponse(
-              "error_bad_request", "file cannot be parsed", keyword)
-              .serialize();
+      return cache.get().get(List.of(keyword, mode));
     } catch (Exception e) {
       return new AreaFailureResponse(
               "error_bad_request", "keyword cannot be searched", keyword)
@@ -118,12 +106,38 @@ public class SearchAreasHandler implements Route {
     }
   }
 
-  // Handles cache misses by returning a response containing the coordinates of the contained features
-  private Object handleCacheMiss(List<List<Double>> coordinatesList, String keyword) {
+  // Finds the features whose area description contains the keyword, ignoring case, using the
+  // store's trigram index
+  private List<Feature> searchFeatures(String keyword) {
+    List<Feature> features = store.getFeatures();
+    List<Feature> containedFeatures = new ArrayList<>();
+    for (int id : store.searchSubstring(keyword)) {
+      containedFeatures.add(features.get(id));
+    }
+    return containedFeatures;
+  }
+
+  // Finds the features whose area description contains all or any of the keyword's words, using
+  // the store's word index
+  private List<Feature> searchFeatureTerms(String keyword, boolean matchAll) {
+    List<Feature> features = store.getFeatures();
+    List<Feature> containedFeatures = new ArrayList<>();
+    for (int id : store.searchTerms(keyword, matchAll)) {
+      containedFeatures.add(features.get(id));
+    }
+    return containedFeatures;
+  }
+
+  // Handles cache misses by returning a response containing the coordinates of the contained
+  // features, searched by substring if mode is empty or by words if it is "all" or "any"
+  private Object handleCacheMiss(String keyword, String mode) {
     Date today = new Date();
     Long now = today.getTime();
     String dateTimeFormatted = new SimpleDateFormat("MM/dd/yyyy HH:mm").format(now);
     try {
+      List<Feature> features =
+              mode.isEmpty() ? searchFeatures(keyword) : searchFeatureTerms(keyword, mode.equals("all"));
+      List<List<Double>> coordinatesList = getCoordinates(features);
       return new AreaSuccessResponse("success", dateTimeFormatted, coordinatesList)
               .serialize();
     } catch (Exception e) {
@@ -136,14 +150,10 @@ public class SearchAreasHandler implements Route {
     List<List<Double>> allCoordinates = new ArrayList<>();
 
     for (Feature feature : featureList) {
-      if (feature.getGeometry() != null) {
-        List<List<List<List<Double>>>> coordinates = feature.getGeometry().getCoordinates();
-        for (List<List<List<Double>>> polygon : coordinates) {
-          for (List<List<Double>> ring : polygon) {
-            for (List<Double> point : ring) {
-              allCoordinates.add(point);
-            }
-          }
+      Feature.Geometry geometry = feature.getGeometry();
+      if (geometry != null) {
+        for (int point = 0; point < geometry.getPointCount(); point++) {
+          allCoordinates.add(List.of(geometry.getLng(point), geometry.getLat(point)));
         }
       }
     }
@@ -152,14 +162,16 @@ public class SearchAreasHandler implements Route {
 
   // Represents a failure response for area searching
   public record AreaFailureResponse(String result, String error_message, String keyword) {
+    private static final JsonAdapter<AreaFailureResponse> ADAPTER =
+        Serialization.MOSHI.adapter(AreaFailureResponse.class);
+
     /**
      * This method serializes a failure response object.
      *
      * @return this failure response object, serialized as Json
      */
     String serialize() {
-      Moshi moshi = new Moshi.Builder().build();
-      return moshi.adapter(SearchAreasHandler.AreaFailureResponse.class).toJson(this);
+      return ADAPTER.toJson(this);
     }
   }
 
@@ -171,6 +183,9 @@ public class SearchAreasHandler implements Route {
    * @param coordinatesList the List containing the coordinates of the searched areas
    */
   public record AreaSuccessResponse(String result, String dateTime, List<List<Double>> coordinatesList) {
+    private static final JsonAdapter<AreaSuccessResponse> ADAPTER =
+        Serialization.MOSHI.adapter(AreaSuccessResponse.class);
+
     /**
      * The constructor for the area success response record.
      *
@@ -185,8 +200,7 @@ public class SearchAreasHandler implements Route {
      * @return this success response object, serialized as Json
      */
     String serialize() {
-      Moshi moshi = new Moshi.Builder().build();
-      return moshi.adapter(SearchAreasHandler.AreaSuccessResponse.class).toJson(this);
+      return ADAPTER.toJson(this);
     }
   }
 
@@ -199,7 +213,7 @@ public class SearchAreasHandler implements Route {
   public List<Object> getCache() {
     List<Object> cachedElements = new ArrayList<>();
     if (cache.isPresent()) {
-      Map<Pair<List<List<Double>>, String>, Object> cacheMap = cache.get().asMap();
+      Map<List<String>, Object> cacheMap = cache.get().asMap();
       cachedElements.addAll(cacheMap.values());
     }
     return cachedElements;
@@ -1,7 +1,10 @@
 package edu.brown.cs.student.main.server;
 
-import com.squareup.moshi.Moshi;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonWriter;
 import edu.brown.cs.student.main.csv.search.CsvSearcher;
+import edu.brown.cs.student.main.csv.search.ValueMatcher;
+import java.io.IOException;
 import java.util.List;
 import spark.Request;
 import spark.Response;
@@ -13,6 +16,11 @@ import spark.Route;
  * data loaded in the CsvDataWrapper object, then this request searches that CSV data with the given
  * query parameters and returns the rows matching the query.
  *
+ * <p>By default an item matches when it equals the value exactly. The optional parameter match
+ * can instead be prefix, to find items starting with the value, or range, to find items from the
+ * value up to but not including the parameter to, in String order. All three are answered from
+ * the column indexes of the loaded data.
+ *
  * @author sarahridley juliazdzilowska prlakshm
  * @version 3.0
  */
@@ -36,13 +44,16 @@ public class SearchCsvHandler implements Route {
    * data that were found to match the query parameters passed.
    *
    * @param request the Request object passed by client, should contain request parameters headers,
-   *     value, and optionally colid
-   * @param response the Response object that we do not use
+   *     value, and optionally colid, match and to
+   * @param response the Response object that a successful response is streamed to
    * @return response object depending on whether the search was successful, and data found
+   * @throws IOException if streaming the rows found to the client fails
    */
   @Override
-  public Object handle(Request request, Response response) {
-    if (csvData.getData().isEmpty()) {
+  public Object handle(Request request, Response response) throws IOException {
+    // Read the loaded data once, so the rows and index searched are from the same load
+    CsvDataWrapper.Snapshot snapshot = csvData.getSnapshot();
+    if (snapshot.rows().isEmpty()) {
       if (!csvData.getLoaded()) {
         return new SearchFailureResponse("error_not_loaded", "CSV file not loaded").serialize();
       }
@@ -67,13 +78,34 @@ public class SearchCsvHandler implements Route {
     if (origColId == null) {
       colId = "*";
     }
+    String match = request.queryParams("match");
+    String to = request.queryParams("to");
+    ValueMatcher matcher;
+    if (match == null || match.equals("exact")) {
+      matcher = ValueMatcher.exact(value);
+    } else if (match.equals("prefix")) {
+      matcher = ValueMatcher.prefix(value);
+    } else if (match.equals("range")) {
+      if (to == null) {
+        return new SearchFailureResponse(
+                "error_bad_request", "Required parameter missing for match=range: to")
+            .serialize();
+      }
+      matcher = ValueMatcher.range(value, to);
+    } else {
+      return new SearchFailureResponse(
+              "error_bad_request", "Parameter match must be exact, prefix or range, not " + match)
+          .serialize();
+    }
+    List<List<String>> rows;
     try {
-      CsvSearcher searcher = new CsvSearcher(csvData.getData());
-      List<List<String>> rows = searcher.search(Boolean.parseBoolean(hasHeaders), value, colId);
-      return new SearchSuccessResponse(value, hasHeaders, origColId, rows).serialize();
+      CsvSearcher searcher = new CsvSearcher(snapshot.rows(), snapshot.index());
+      rows = searcher.search(Boolean.parseBoolean(hasHeaders), matcher, colId);
     } catch (Exception e) {
       return new SearchFailureResponse("error_bad_request", e.getMessage()).serialize();
     }
+    new SearchSuccessResponse(value, hasHeaders, origColId, rows).writeTo(response);
+    return "";
   }
 
   /**
@@ -84,14 +116,16 @@ public class SearchCsvHandler implements Route {
    * @param error_message the String containing a more specific error message
    */
   public record SearchFailureResponse(String result, String error_message) {
+    private static final JsonAdapter<SearchFailureResponse> ADAPTER =
+        Serialization.MOSHI.adapter(SearchFailureResponse.class);
+
     /**
      * This method serializes a failure response object.
      *
      * @return this failure response object, serialized as Json
      */
     String serialize() {
-      Moshi moshi = new Moshi.Builder().build();
-      return moshi.adapter(SearchFailureResponse.class).toJson(this);
+      return ADAPTER.toJson(this);
     }
   }
 
@@ -109,6 +143,8 @@ public class SearchCsvHandler implements Route {
    */
   public record SearchSuccessResponse(
       String result, String value, String headers, String colid, List<List<String>> data) {
+    private static final JsonAdapter<SearchSuccessResponse> ADAPTER =
+        Serialization.MOSHI.adapter(SearchSuccessResponse.class);
 
     /**
      * The constructor for the SearchSuccessResponse class.
@@ -131,8 +167,27 @@ public class SearchCsvHandler implements Route {
      * @return this success response object, serialized as Json
      */
     String serialize() {
-      Moshi moshi = new Moshi.Builder().build();
-      return moshi.adapter(SearchSuccessResponse.class).toJson(this);
+      return ADAPTER.toJson(this);
+    }
+
+    /**
+     * This method streams a success response object to the client as Json, the same as serialize
+     * but one row at a time, so that the rows found are never held as one String.
+     *
+     * @param response the Response to write the Json body of
+     * @throws IOException if writing to the client fails
+     */
+    void writeTo(Response response) throws IOException {
+      JsonWriter writer = Serialization.streamTo(response);
+      writer.beginObject();
+      writer.name("result").value(result);
+      writer.name("value").value(value);
+      writer.name("headers").value(headers);
+      writer.name("colid").value(colid);
+      writer.name("data");
+      Serialization.writeRows(writer, data);
+      writer.endObject();
+      writer.flush();
     }
   }
 }
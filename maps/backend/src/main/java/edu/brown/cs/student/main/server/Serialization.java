@@ -0,0 +1,62 @@
+package edu.brown.cs.student.main.server;
+
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.Moshi;
+import edu.brown.cs.student.main.maptypes.GeometryAdapter;
+import java.io.IOException;
+import java.util.List;
+import okio.Okio;
+import spark.Response;
+
+/**
+ * This class holds the one Moshi that the server's handlers share. A Moshi is thread-safe and
+ * caches every adapter it creates, so building it once saves the reflection over each response
+ * record that a new Moshi per request would repeat. Each response record keeps its own adapter
+ * from it in a static field.
+ *
+ * <p>Responses that can hold a whole CSV are instead streamed to the client with a JsonWriter,
+ * which writes the same JSON as their adapters without building it into one String first.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+final class Serialization {
+  /** The shared Moshi, which can also read and write Features. */
+  static final Moshi MOSHI = new Moshi.Builder().add(new GeometryAdapter()).build();
+
+  /** Private constructor, since the Serialization class only has static members. */
+  private Serialization() {}
+
+  /**
+   * A method that opens a JsonWriter onto the body of a response, marking the body as JSON before
+   * any of it is sent. Its output is sent in pieces as it is written, and a handler that uses it
+   * should return an empty body to Spark.
+   *
+   * @param response the Response to write the body of
+   * @return a JsonWriter that leaves out null fields, like the adapters
+   * @throws IOException if the body cannot be opened
+   */
+  static JsonWriter streamTo(Response response) throws IOException {
+    response.type("application/json");
+    return JsonWriter.of(Okio.buffer(Okio.sink(response.raw().getOutputStream())));
+  }
+
+  /**
+   * A method that writes CSV rows as a JSON array of arrays of Strings, one row at a time.
+   *
+   * @param writer the JsonWriter to write to
+   * @param rows the rows to write
+   * @throws IOException if writing fails
+   */
+  static void writeRows(JsonWriter writer, List<List<String>> rows) throws IOException {
+    writer.beginArray();
+    for (List<String> row : rows) {
+      writer.beginArray();
+      for (String item : row) {
+        writer.value(item);
+      }
+      writer.endArray();
+    }
+    writer.endArray();
+  }
+}
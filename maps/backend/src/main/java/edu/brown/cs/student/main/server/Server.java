@@ -1,12 +1,17 @@
 package edu.brown.cs.student.main.server;
 
-import static spark.Spark.after;
+import static spark.Spark.before;
 
 import com.google.common.cache.CacheBuilder;
 import edu.brown.cs.student.main.sources.AcsCensusSource;
+import edu.brown.cs.student.main.sources.CensusSource;
+import edu.brown.cs.student.main.sources.CoalescingCensusSource;
+import edu.brown.cs.student.main.sources.PersistentCensusSource;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.concurrent.TimeUnit;
 import spark.Spark;
@@ -20,6 +25,9 @@ import spark.Spark;
  * as its get method to access the actual List of List of String representing rows of CSV data
  * returns an unmodifiable copy of said data.
  *
+ * <p>The /redliningdata, /boundarybox, and /searchareas endpoints likewise share a FeatureStore,
+ * which parses the GEOJSON data once when the server starts rather than on every request.
+ *
  * <p>Also allows a developer using these endpoints to create their own CacheBuilder, or pass a null
  * CacheBuilder to the constructor, to specify how they want responses from the source to be cached,
  * or for responses not to be cached at all (the null case).
@@ -43,27 +51,46 @@ public class Server {
     // Bind Spark to the external IP and port
     Spark.ipAddress("0.0.0.0");
     Spark.port(port);
-    after(
+    // Set before the routes run, since /redliningdata can write and commit its response itself
+    before(
         (request, response) -> {
           response.header("Access-Control-Allow-Origin", "*");
           response.header("Access-Control-Allow-Methods", "*");
         });
 
-    //actual geojson filepath
+    //actual geojson filepath, parsed once and shared by the three map endpoints; later starts load
+    //it from a binary snapshot written the first time it is parsed
     String filepath = "data/geojson/fullDownload.geojson";
+    FeatureStore featureStore =
+        new FeatureStore(filepath, Path.of("data", "geojson", "fullDownload.snapshot"));
 
     // Setting up the handler for the GET /order and /mock endpoints
     Spark.get("loadcsv", new LoadCsvHandler(csvData));
     Spark.get("viewcsv", new ViewCsvHandler(csvData));
     Spark.get("searchcsv", new SearchCsvHandler(csvData));
-    Spark.get("searchareas", new SearchAreasHandler(filepath,
-    CacheBuilder.newBuilder().maximumSize(1000).expireAfterWrite(10, TimeUnit.MINUTES)));
-    Spark.get("redliningdata", new RedliningDataHandler(filepath,
+    Spark.get("searchareas", new SearchAreasHandler(featureStore,
     CacheBuilder.newBuilder().maximumSize(1000).expireAfterWrite(10, TimeUnit.MINUTES)));
-    Spark.get("boundarybox", new BoundaryBoxHandler(filepath,
+    Spark.get("redliningdata", new RedliningDataHandler(featureStore,
     CacheBuilder.newBuilder().maximumSize(1000).expireAfterWrite(10, TimeUnit.MINUTES)));
-    Spark.get("broadband", new BroadbandHandler(new AcsCensusSource(),
+    Spark.get("boundarybox", new BoundaryBoxHandler(featureStore,
     CacheBuilder.newBuilder().maximumSize(1000).expireAfterWrite(10, TimeUnit.MINUTES)));
+    // Concurrent misses for the same county share one lookup of the census API, and lookups from
+    // the last 10 minutes are kept on disk, so a restart does not look them up again
+    Duration refreshAfter = Duration.ofMinutes(10);
+    PersistentCensusSource persistentSource =
+        new PersistentCensusSource(
+            new AcsCensusSource(),
+            Path.of("data", "census", "broadband.censuslog"),
+            refreshAfter);
+    CensusSource censusSource = new CoalescingCensusSource(persistentSource);
+    // Responses older than 10 minutes are refreshed in the background, and dropped after an hour
+    BroadbandHandler broadbandHandler = new BroadbandHandler(censusSource,
+    BroadbandHandler.staleWhileRevalidate(1000, refreshAfter, Duration.ofHours(1)));
+    // The lookups kept on disk are served from the start, with the time they were looked up, if
+    // they are younger than the refresh interval
+    broadbandHandler.warm(persistentSource.getLiveEntries(), refreshAfter);
+    Spark.get("broadband", broadbandHandler);
+    Spark.get("broadbandbatch", new BroadbandBatchHandler(broadbandHandler));
     Spark.init();
     Spark.awaitInitialization();
   }
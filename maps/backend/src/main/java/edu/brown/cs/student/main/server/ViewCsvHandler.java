@@ -1,6 +1,10 @@
 package edu.brown.cs.student.main.server;
 
-import com.squareup.moshi.Moshi;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
 import spark.Request;
 import spark.Response;
@@ -12,10 +16,16 @@ import spark.Route;
  * data loaded in the CsvDataWrapper object, then this request returns an object with a field
  * containing all the rows of that CSV data.
  *
+ * <p>A client can instead page through the rows with the optional query parameters offset and
+ * limit, or cursor. A page holds up to limit rows from offset on, the total number of rows, and a
+ * next_cursor that requests the following page, until the last page has been returned.
+ *
  * @author sarahridley juliazdzilowska prlakshm
  * @version 3.0
  */
 public class ViewCsvHandler implements Route {
+  static final int DEFAULT_PAGE_SIZE = 1000;
+  static final int MAX_PAGE_SIZE = 10000;
   private final CsvDataWrapper csvData;
 
   /**
@@ -31,20 +41,155 @@ public class ViewCsvHandler implements Route {
   /**
    * Method that handles a /viewcsv request to our Server. Given a request and response, returns a
    * failure or success response object. If successful, the response object contains all the rows of
-   * CSV data in the CSV file loaded.
+   * CSV data in the CSV file loaded, or one page of them.
    *
-   * @param request the Request object passed by client, which needs no query parameters
-   * @param response the Response object that we do not use
+   * @param request the Request object passed by client, which may contain request parameters offset
+   *     and limit, or cursor, to get one page of the rows
+   * @param response the Response object that a successful response is streamed to
    * @return response object depending on whether the search was successful, and all CSV data
+   * @throws IOException if streaming the CSV data to the client fails
    */
   @Override
-  public Object handle(Request request, Response response) {
-    if (csvData.getData().isEmpty()) {
+  public Object handle(Request request, Response response) throws IOException {
+    // Read the loaded data once, so a page's rows and cursor are from the same load
+    CsvDataWrapper.Snapshot snapshot = csvData.getSnapshot();
+    List<List<String>> rows = snapshot.rows();
+    if (rows.isEmpty()) {
       if (!csvData.getLoaded()) {
         return new ViewFailureResponse("error_not_loaded", "CSV file not loaded").serialize();
       }
     }
-    return new ViewSuccessResponse(csvData.getData()).serialize();
+    String offset = request.queryParams("offset");
+    String limit = request.queryParams("limit");
+    String cursor = request.queryParams("cursor");
+    if (offset == null && limit == null && cursor == null) {
+      new ViewSuccessResponse(rows).writeTo(response);
+      return "";
+    }
+
+    int version = snapshot.version();
+    Page page;
+    try {
+      page = Page.parse(offset, limit, cursor, version);
+    } catch (IllegalArgumentException e) {
+      return new ViewFailureResponse("error_bad_request", e.getMessage()).serialize();
+    }
+    int total = rows.size();
+    int from = Math.min(page.offset(), total);
+    int to = (int) Math.min((long) from + page.limit(), total);
+    String nextCursor = to < total ? new Page(to, page.limit()).toCursor(version) : null;
+    // The page is a view of the loaded rows, which are never copied
+    new ViewPageResponse(page.offset(), page.limit(), total, nextCursor, rows.subList(from, to))
+        .writeTo(response);
+    return "";
+  }
+
+  /**
+   * A record representing the window of rows a /viewcsv request asks for.
+   *
+   * @param offset the index of the first row of the page
+   * @param limit the largest number of rows in the page
+   */
+  record Page(int offset, int limit) {
+    /**
+     * A method that finds the page a request asks for from its query parameters. A cursor gives
+     * the offset, and the limit unless one is also given.
+     *
+     * @param offset the offset parameter, or null
+     * @param limit the limit parameter, or null
+     * @param cursor the cursor parameter from an earlier page, or null
+     * @param version the version of the loaded data
+     * @return the page asked for
+     * @throws IllegalArgumentException if the parameters are not valid, or the cursor is from data
+     *     that is no longer loaded
+     */
+    static Page parse(String offset, String limit, String cursor, int version) {
+      int pageOffset = 0;
+      int pageLimit = DEFAULT_PAGE_SIZE;
+      if (cursor != null) {
+        if (offset != null) {
+          throw new IllegalArgumentException("Give either offset or cursor, not both");
+        }
+        Page fromCursor = fromCursor(cursor, version);
+        pageOffset = fromCursor.offset();
+        pageLimit = fromCursor.limit();
+      }
+      if (offset != null) {
+        pageOffset = parseInt(offset, "offset", 0, Integer.MAX_VALUE);
+      }
+      if (limit != null) {
+        pageLimit = parseInt(limit, "limit", 1, MAX_PAGE_SIZE);
+      }
+      return new Page(pageOffset, pageLimit);
+    }
+
+    /**
+     * A method that encodes this page as an opaque cursor, tied to the version of the loaded data.
+     *
+     * @param version the version of the loaded data
+     * @return the cursor, safe to use in a URL
+     */
+    String toCursor(int version) {
+      String plain = version + ":" + offset + ":" + limit;
+      return Base64.getUrlEncoder()
+          .withoutPadding()
+          .encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A helper method that decodes a cursor made by toCursor.
+     *
+     * @param cursor the cursor to decode
+     * @param version the version of the loaded data
+     * @return the page the cursor stands for
+     * @throws IllegalArgumentException if the cursor is not valid or is for other data
+     */
+    private static Page fromCursor(String cursor, int version) {
+      String[] parts;
+      try {
+        byte[] decoded = Base64.getUrlDecoder().decode(cursor);
+        parts = new String(decoded, StandardCharsets.UTF_8).split(":");
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+      }
+      if (parts.length != 3) {
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+      }
+      if (!parts[0].equals(String.valueOf(version))) {
+        throw new IllegalArgumentException(
+            "Cursor is out of date, since another CSV file has been loaded");
+      }
+      try {
+        return new Page(
+            parseInt(parts[1], "offset", 0, Integer.MAX_VALUE),
+            parseInt(parts[2], "limit", 1, MAX_PAGE_SIZE));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+      }
+    }
+
+    /**
+     * A helper method that parses an integer query parameter within bounds.
+     *
+     * @param value the parameter value
+     * @param name the parameter name, for the error message
+     * @param min the smallest allowed value
+     * @param max the largest allowed value
+     * @return the parsed value
+     * @throws IllegalArgumentException if the value is not an integer within bounds
+     */
+    private static int parseInt(String value, String name, int min, int max) {
+      try {
+        int parsed = Integer.parseInt(value);
+        if (parsed >= min && parsed <= max) {
+          return parsed;
+        }
+      } catch (NumberFormatException e) {
+        // Reported below, the same as a value out of bounds
+      }
+      throw new IllegalArgumentException(
+          "Parameter " + name + " must be an integer between " + min + " and " + max);
+    }
   }
 
   /**
@@ -55,6 +200,8 @@ public class ViewCsvHandler implements Route {
    * @param error_message the String containing a more specific error message
    */
   public record ViewFailureResponse(String result, String error_message) {
+    private static final JsonAdapter<ViewFailureResponse> ADAPTER =
+        Serialization.MOSHI.adapter(ViewFailureResponse.class);
 
     /**
      * This method serializes a failure response object.
@@ -62,8 +209,7 @@ public class ViewCsvHandler implements Route {
      * @return this failure response object, serialized as Json
      */
     String serialize() {
-      Moshi moshi = new Moshi.Builder().build();
-      return moshi.adapter(ViewFailureResponse.class).toJson(this);
+      return ADAPTER.toJson(this);
     }
   }
 
@@ -75,6 +221,8 @@ public class ViewCsvHandler implements Route {
    * @param data the List of List of String containing all the CSV data loaded
    */
   public record ViewSuccessResponse(String result, List<List<String>> data) {
+    private static final JsonAdapter<ViewSuccessResponse> ADAPTER =
+        Serialization.MOSHI.adapter(ViewSuccessResponse.class);
 
     /**
      * The constructor for the ViewSuccessResponse class.
@@ -91,8 +239,91 @@ public class ViewCsvHandler implements Route {
      * @return this success response object, serialized as Json
      */
     String serialize() {
-      Moshi moshi = new Moshi.Builder().build();
-      return moshi.adapter(ViewSuccessResponse.class).toJson(this);
+      return ADAPTER.toJson(this);
+    }
+
+    /**
+     * This method streams a success response object to the client as Json, the same as serialize
+     * but one row at a time, so that the whole CSV is never held as one String.
+     *
+     * @param response the Response to write the Json body of
+     * @throws IOException if writing to the client fails
+     */
+    void writeTo(Response response) throws IOException {
+      JsonWriter writer = Serialization.streamTo(response);
+      writer.beginObject();
+      writer.name("result").value(result);
+      writer.name("data");
+      Serialization.writeRows(writer, data);
+      writer.endObject();
+      writer.flush();
+    }
+  }
+
+  /**
+   * A record representing a successful call to the /viewcsv handler for one page of the rows,
+   * containing a result of success, the offset and limit of the page, the total number of rows, the
+   * cursor of the next page, and the rows of this page.
+   *
+   * @param result the String containing "success"
+   * @param offset the index of the first row of the page
+   * @param limit the largest number of rows in the page
+   * @param total the number of rows in all of the CSV data loaded
+   * @param next_cursor the String cursor that gets the next page, or null after the last page
+   * @param data the List of List of String containing the rows of the page
+   */
+  public record ViewPageResponse(
+      String result,
+      int offset,
+      int limit,
+      int total,
+      String next_cursor,
+      List<List<String>> data) {
+    private static final JsonAdapter<ViewPageResponse> ADAPTER =
+        Serialization.MOSHI.adapter(ViewPageResponse.class);
+
+    /**
+     * The constructor for the ViewPageResponse class.
+     *
+     * @param offset the index of the first row of the page
+     * @param limit the largest number of rows in the page
+     * @param total the number of rows in all of the CSV data loaded
+     * @param next_cursor the String cursor that gets the next page, or null after the last page
+     * @param data the List of List of String containing the rows of the page
+     */
+    public ViewPageResponse(
+        int offset, int limit, int total, String next_cursor, List<List<String>> data) {
+      this("success", offset, limit, total, next_cursor, data);
+    }
+
+    /**
+     * This method serializes a page response object.
+     *
+     * @return this page response object, serialized as Json
+     */
+    String serialize() {
+      return ADAPTER.toJson(this);
+    }
+
+    /**
+     * This method streams a page response object to the client as Json, the same as serialize but
+     * one row at a time.
+     *
+     * @param response the Response to write the Json body of
+     * @throws IOException if writing to the client fails
+     */
+    void writeTo(Response response) throws IOException {
+      JsonWriter writer = Serialization.streamTo(response);
+      writer.beginObject();
+      writer.name("result").value(result);
+      writer.name("offset").value(offset);
+      writer.name("limit").value(limit);
+      writer.name("total").value(total);
+      writer.name("next_cursor").value(next_cursor);
+      writer.name("data");
+      Serialization.writeRows(writer, data);
+      writer.endObject();
+      writer.flush();
     }
   }
 }
@@ -4,95 +4,274 @@ import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
 import java.io.IOException;
-import java.lang.reflect.Type;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLConnection;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
-import okio.Buffer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * The AcsCensusSource class implements the CensusSource interface and overrides its
- * getBroadbandAccess method. An object of this class is constructed with no arguments, and when the
- * getBroadbandAccess method is called, an object of this class makes an API call to the census API
- * to find the broadband access level of the given state and county, and returns this level wrapped
- * in a CensusData object. If the broadband access level cannot be found for some reason, this
- * method (or a method that it calls) throws a DataSourceException.
+ * The AcsCensusSource class implements the AsyncCensusSource and StateCensusSource interfaces and
+ * overrides their getBroadbandAccessAsync and getStateBroadbandAccess methods. An object of this
+ * class is constructed with no arguments, or with the base URI of a server that answers like the
+ * census API, and when the getBroadbandAccessAsync method is called, an object of this class makes
+ * API calls to the census API to find the broadband access level of the given state and county, and
+ * completes with this level wrapped in a CensusData object. If the broadband access level cannot be
+ * found for some reason, the returned future completes exceptionally with a DataSourceException,
+ * which the blocking getBroadbandAccess method throws.
+ *
+ * <p>Requests are sent with a java.net.http.HttpClient, which keeps a pool of open connections to
+ * each server and reuses them for later requests. Every source built without its own client shares
+ * one, so lookups on different threads and different sources skip the TCP and TLS setup once the
+ * census API has been reached. Identical queries that are sent while one is in flight share its
+ * response, so many lookups started at once load the state list and each county list only once.
+ *
+ * <p>The state list is loaded once. The county list of a state is loaded on the first lookup in
+ * that state and kept, keyed by the full "County, State" name, until it is older than the county
+ * refresh interval, so a lookup of a county in a known state costs one query instead of two. A
+ * lookup of every county in a state needs no county list, since the census API can answer the
+ * broadband variable for all of the counties of a state in one query.
  *
  * @author sarahridley juliazdzilowska prlakshm
  * @version 3.0
  */
-public class AcsCensusSource implements CensusSource {
-  private final HashMap<String, String> stateIds;
+public class AcsCensusSource implements AsyncCensusSource, StateCensusSource {
+  // Every ACS response is a JSON array of rows of Strings, read by one adapter built once
+  private static final JsonAdapter<List<List<String>>> ROWS_ADAPTER =
+      new Moshi.Builder()
+          .build()
+          .adapter(Types.newParameterizedType(List.class, List.class, String.class));
+  private static final URI CENSUS_API = URI.create("https://api.census.gov");
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+  private static final HttpClient SHARED_CLIENT =
+      HttpClient.newBuilder()
+          .connectTimeout(CONNECT_TIMEOUT)
+          .followRedirects(HttpClient.Redirect.NORMAL)
+          .build();
+  private static final String BROADBAND_QUERY =
+      "/data/2021/acs/acs1/subject/variables?get=NAME,S2802_C03_022E";
+  private static final Duration DEFAULT_COUNTY_REFRESH_INTERVAL = Duration.ofHours(24);
+
+  private final HttpClient client;
+  private final URI baseUri;
+  private final long countyRefreshNanos;
+  // The queries in flight, keyed by path and query, which identical queries wait for
+  private final SingleFlight<String, List<List<String>>> queries;
+  // Replaced as a whole once loaded, so threads never see a partly filled map
+  private volatile Map<String, String> stateIds;
+  // The county table of each state that has been loaded, keyed by state code
+  private final Map<String, CountyTable> countyTables;
 
-  /** The constructor for the AcsCensusSource class, sets the stateIds field to an empty HashMap. */
+  /**
+   * The constructor for the AcsCensusSource class, which queries the census API with the shared
+   * HttpClient and sets the stateIds field to an empty map.
+   */
   public AcsCensusSource() {
-    stateIds = new HashMap<>();
+    this(CENSUS_API);
+  }
+
+  /**
+   * The constructor for the AcsCensusSource class, which queries a server that answers like the
+   * census API, such as a local stub, with the shared HttpClient.
+   *
+   * @param baseUri the scheme, host and port of the server, such as https://api.census.gov
+   */
+  public AcsCensusSource(URI baseUri) {
+    this(SHARED_CLIENT, baseUri);
+  }
+
+  /**
+   * The constructor for the AcsCensusSource class, which queries a server that answers like the
+   * census API with the given HttpClient.
+   *
+   * @param client the HttpClient that sends requests and pools connections
+   * @param baseUri the scheme, host and port of the server, such as https://api.census.gov
+   */
+  public AcsCensusSource(HttpClient client, URI baseUri) {
+    this(client, baseUri, DEFAULT_COUNTY_REFRESH_INTERVAL);
   }
 
   /**
-   * This method creates a http connection for the caller methods to connect to the ACS API.
+   * The constructor for the AcsCensusSource class, which queries a server that answers like the
+   * census API with the given HttpClient, and loads the county list of a state again once it is
+   * older than the given interval.
    *
-   * @param requestURL the URL to make an API request to
-   * @return the Http connection url
-   * @throws DataSourceException if the connection fails
-   * @throws IOException if an I/O exception occurs
+   * @param client the HttpClient that sends requests and pools connections
+   * @param baseUri the scheme, host and port of the server, such as https://api.census.gov
+   * @param countyRefreshInterval how long a county list is kept before it is loaded again, where
+   *     zero loads it on every lookup
    */
-  private static HttpURLConnection connect(URL requestURL) throws DataSourceException, IOException {
-    URLConnection urlConnection = requestURL.openConnection();
-    if (!(urlConnection instanceof HttpURLConnection)) {
-      throw new DataSourceException("unexpected: result of connection wasn't HTTP");
+  public AcsCensusSource(HttpClient client, URI baseUri, Duration countyRefreshInterval) {
+    this.client = client;
+    this.baseUri = baseUri;
+    this.countyRefreshNanos = countyRefreshInterval.toNanos();
+    this.stateIds = Map.of();
+    this.countyTables = new ConcurrentHashMap<>();
+    this.queries = new SingleFlight<>();
+  }
+
+  /**
+   * This method sends a request to the census API without blocking, and reads the response as rows
+   * of Strings. If the same request is already in flight, its response is shared instead.
+   *
+   * @param pathAndQuery the path and query of the request, resolved against the base URI
+   * @return a future of the rows of the response, which completes exceptionally with a
+   *     DataSourceException if the request fails or is not answered with a success status
+   */
+  private CompletableFuture<List<List<String>>> fetchRows(String pathAndQuery) {
+    return queries.run(pathAndQuery, () -> sendRequest(pathAndQuery));
+  }
+
+  /**
+   * A helper method that sends a request to the census API without blocking, and reads the
+   * response as rows of Strings.
+   *
+   * @param pathAndQuery the path and query of the request, resolved against the base URI
+   * @return a future of the rows of the response, which completes exceptionally with a
+   *     DataSourceException if the request fails or is not answered with a success status
+   */
+  private CompletableFuture<List<List<String>>> sendRequest(String pathAndQuery) {
+    HttpRequest request;
+    try {
+      request =
+          HttpRequest.newBuilder(baseUri.resolve(pathAndQuery))
+              .timeout(REQUEST_TIMEOUT)
+              .GET()
+              .build();
+    } catch (IllegalArgumentException e) {
+      return CompletableFuture.failedFuture(
+          new DataSourceException("Malformed URL: Connection failed."));
     }
-    HttpURLConnection clientConnection = (HttpURLConnection) urlConnection;
-    clientConnection.connect();
-    if (clientConnection.getResponseCode() != 200) {
-      throw new DataSourceException(
-          "unexpected: API connection not success status " + clientConnection.getResponseMessage());
+    return client
+        .sendAsync(request, BodyHandlers.ofString())
+        .handle(
+            (response, failure) -> {
+              if (failure != null) {
+                throw new CompletionException(AsyncCensusSource.unwrap(failure));
+              }
+              return readRows(response);
+            });
+  }
+
+  /**
+   * A helper method that checks the status of a census API response and parses its body.
+   *
+   * @param response the response to read
+   * @return the rows of the response
+   */
+  private static List<List<String>> readRows(HttpResponse<String> response) {
+    if (response.statusCode() != 200) {
+      throw new CompletionException(
+          new DataSourceException(
+              "unexpected: API connection not success status "
+                  + reasonPhrase(response.statusCode())));
     }
-    return clientConnection;
+    List<List<String>> data;
+    try {
+      data = ROWS_ADAPTER.fromJson(response.body());
+    } catch (IOException e) {
+      throw new CompletionException(new DataSourceException(e.getMessage()));
+    }
+    if (data == null) {
+      throw new CompletionException(
+          new DataSourceException("unexpected: API response had no rows"));
+    }
+    return data;
+  }
+
+  /**
+   * A helper method that gives the reason phrase of an HTTP status code, such as "Not Found" for
+   * 404, as the response message of a connection used to report it. HttpClient does not keep the
+   * reason phrase the server sent, so the standard phrase is used.
+   *
+   * @param statusCode the status code of a response
+   * @return the standard reason phrase of the status code, or the code itself if it has none
+   */
+  static String reasonPhrase(int statusCode) {
+    return switch (statusCode) {
+      case 204 -> "No Content";
+      case 301 -> "Moved Permanently";
+      case 302 -> "Found";
+      case 304 -> "Not Modified";
+      case 400 -> "Bad Request";
+      case 401 -> "Unauthorized";
+      case 403 -> "Forbidden";
+      case 404 -> "Not Found";
+      case 405 -> "Method Not Allowed";
+      case 408 -> "Request Timeout";
+      case 429 -> "Too Many Requests";
+      case 500 -> "Internal Server Error";
+      case 502 -> "Bad Gateway";
+      case 503 -> "Service Unavailable";
+      case 504 -> "Gateway Timeout";
+      default -> String.valueOf(statusCode);
+    };
   }
 
   /**
    * This method returns the state code associated with the given String state. The first time this
    * method is called while the server is running, this method stores all state codes in the
-   * stateIds field, and references that HashMap on future calls to this method.
+   * stateIds field, and references that map on future calls to this method.
    *
    * @param state the String representing the state to find the ID for
    * @return the String representing the ID of the given state
    * @throws DataSourceException if the state is not found in the ACS data
    */
   public String getStateCode(String state) throws DataSourceException {
-    try {
-      if (stateIds.isEmpty()) {
-        URL requestURL =
-            new URL("https", "api.census.gov", "/data/2010/dec/sf1?get=NAME&for=state:*");
-        HttpURLConnection clientConnection = connect(requestURL);
-        Moshi moshi = new Moshi.Builder().build();
-        Type listOfListOfString = Types.newParameterizedType(List.class, List.class, String.class);
-        JsonAdapter<List<List<String>>> adapter = moshi.adapter(listOfListOfString);
-        List<List<String>> data =
-            adapter.fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
-        for (List<String> row : data) {
-          stateIds.put(row.get(0), row.get(1));
-        }
-      }
-      String stateCode = stateIds.get(state);
-      if (stateCode == null) {
-        throw new DataSourceException("State " + state + " is not a valid state name.");
-      }
-      return stateCode;
-    } catch (MalformedURLException e) {
-      throw new DataSourceException("Malformed URL: Connection failed.");
-    } catch (IOException e) {
-      throw new DataSourceException(e.getMessage());
+    return AsyncCensusSource.await(getStateCodeAsync(state));
+  }
+
+  /**
+   * This method starts finding the state code associated with the given String state, loading the
+   * stateIds field the first time that it is called.
+   *
+   * @param state the String representing the state to find the ID for
+   * @return a future of the String representing the ID of the given state, which completes
+   *     exceptionally with a DataSourceException if the state is not found in the ACS data
+   */
+  public CompletableFuture<String> getStateCodeAsync(String state) {
+    Map<String, String> loaded = stateIds;
+    CompletableFuture<Map<String, String>> ids =
+        loaded.isEmpty()
+            ? fetchRows("/data/2010/dec/sf1?get=NAME&for=state:*").thenApply(this::storeStateIds)
+            : CompletableFuture.completedFuture(loaded);
+    return ids.thenApply(
+        codes -> {
+          String stateCode = codes.get(state);
+          if (stateCode == null) {
+            throw new CompletionException(
+                new DataSourceException("State " + state + " is not a valid state name."));
+          }
+          return stateCode;
+        });
+  }
+
+  /**
+   * A helper method that stores the state codes of a state list response in the stateIds field.
+   *
+   * @param data the rows of the response, each a state name followed by its code
+   * @return the stored map from state name to state code
+   */
+  private Map<String, String> storeStateIds(List<List<String>> data) {
+    Map<String, String> codes = new HashMap<>();
+    for (List<String> row : data) {
+      codes.put(row.get(0), row.get(1));
     }
+    stateIds = codes;
+    return codes;
   }
 
   /**
-   * This method returns the county code of the given county in the given state by calling the
-   * census API.
+   * This method returns the county code of the given county in the given state, calling the census
+   * API for the county list of the state if it has not been loaded or is too old.
    *
    * @param state the String representing the state where the county is in
    * @param stateCode the String representing the state code of the state
@@ -102,66 +281,149 @@ public class AcsCensusSource implements CensusSource {
    */
   public String getCountyCode(String state, String stateCode, String county)
       throws DataSourceException {
-    try {
-      String fullCounty = county + " County, " + state;
-      URL requestURL =
-          new URL(
-              "https",
-              "api.census.gov",
-              "/data/2010/dec/sf1?get=NAME&for=county:*&in=state:" + stateCode);
-      HttpURLConnection clientConnection = connect(requestURL);
-      Moshi moshi = new Moshi.Builder().build();
-      Type listOfListOfString = Types.newParameterizedType(List.class, List.class, String.class);
-      JsonAdapter<List<List<String>>> adapter = moshi.adapter(listOfListOfString);
-      List<List<String>> data =
-          adapter.fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
-      for (List<String> row : data) {
-        if (row.get(0).equals(fullCounty)) {
-          return row.get(2);
-        }
-      }
-      throw new DataSourceException("County " + county + " not found in state " + state + ".");
-    } catch (IOException e) {
-      throw new DataSourceException(e.getMessage());
+    return AsyncCensusSource.await(getCountyCodeAsync(state, stateCode, county));
+  }
+
+  /**
+   * This method starts finding the county code of the given county in the given state, calling the
+   * census API for the county list of the state if it has not been loaded or is too old.
+   *
+   * @param state the String representing the state where the county is in
+   * @param stateCode the String representing the state code of the state
+   * @param county the String representing the county name
+   * @return a future of the String representing the county code of the given county in the given
+   *     state, which completes exceptionally with a DataSourceException if the given county is not
+   *     found in the state
+   */
+  public CompletableFuture<String> getCountyCodeAsync(
+      String state, String stateCode, String county) {
+    String fullCounty = county + " County, " + state;
+    CountyTable loaded = countyTables.get(stateCode);
+    CompletableFuture<CountyTable> table =
+        loaded != null && System.nanoTime() - loaded.loadedAt() < countyRefreshNanos
+            ? CompletableFuture.completedFuture(loaded)
+            : fetchRows("/data/2010/dec/sf1?get=NAME&for=county:*&in=state:" + stateCode)
+                .thenApply(data -> storeCountyTable(stateCode, data));
+    return table.thenApply(
+        counties -> {
+          String countyCode = counties.countyIds().get(fullCounty);
+          if (countyCode == null) {
+            throw new CompletionException(
+                new DataSourceException(
+                    "County " + county + " not found in state " + state + "."));
+          }
+          return countyCode;
+        });
+  }
+
+  /**
+   * A helper method that stores the county codes of a county list response in the countyTables
+   * field.
+   *
+   * @param stateCode the String representing the state code of the listed counties
+   * @param data the rows of the response, each a "County, State" name, a state code and a county
+   *     code
+   * @return the stored county table of the state
+   */
+  private CountyTable storeCountyTable(String stateCode, List<List<String>> data) {
+    Map<String, String> countyIds = new HashMap<>();
+    for (List<String> row : data) {
+      countyIds.put(row.get(0), row.get(2));
     }
+    CountyTable table = new CountyTable(countyIds, System.nanoTime());
+    countyTables.put(stateCode, table);
+    return table;
   }
 
   /**
-   * This method finds the broadband access level of the given state and county names. The
+   * This method starts finding the broadband access level of the given state and county names. The
    * intermediate steps include finding the state's code and the county's code to use in a final
-   * query to the census API. This broadband access level is returned in a CensusData object as the
-   * data field. If the state / county combination is not found, throws a DataSourceException.
+   * query to the census API, each sent once the step before it has been answered, without blocking
+   * a thread while waiting. This broadband access level is completed in a CensusData object as the
+   * data field. If the state / county combination is not found, the future completes exceptionally
+   * with a DataSourceException.
    *
    * @param state the String representing the state of the county for broadband level to be found
    * @param county the String representing the county for broadband level to be found
-   * @return a CensusData object wrapping a Double representing broadband access level in the given
-   *     state / county combination
-   * @throws DataSourceException if the state / county combination is not found in census data
+   * @return a future of a CensusData object wrapping a Double representing broadband access level
+   *     in the given state / county combination
    */
   @Override
-  public CensusData getBroadbandAccess(String state, String county) throws DataSourceException {
-    String stateCode = getStateCode(state);
-    String countyCode = getCountyCode(state, stateCode, county);
-    try {
-      URL requestURL =
-          new URL(
-              "https",
-              "api.census.gov",
-              "/data/2021/acs/acs1/subject/variables?get=NAME,S2802_C03_022E&for=county:"
-                  + countyCode
-                  + "&in=state:"
-                  + stateCode);
-      HttpURLConnection clientConnection = connect(requestURL);
-      Moshi moshi = new Moshi.Builder().build();
-      Type listOfListOfString = Types.newParameterizedType(List.class, List.class, String.class);
-      JsonAdapter<List<List<String>>> adapter = moshi.adapter(listOfListOfString);
-      List<List<String>> data =
-          adapter.fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
-      String percent = data.get(1).get(1);
-      Double numPercent = Double.parseDouble(percent);
-      return new CensusData(numPercent);
-    } catch (IOException e) {
-      throw new DataSourceException(e.getMessage());
-    }
+  public CompletableFuture<CensusData> getBroadbandAccessAsync(String state, String county) {
+    return getStateCodeAsync(state)
+        .thenCompose(
+            stateCode ->
+                getCountyCodeAsync(state, stateCode, county)
+                    .thenCompose(
+                        countyCode ->
+                            fetchRows(
+                                BROADBAND_QUERY
+                                    + "&for=county:"
+                                    + countyCode
+                                    + "&in=state:"
+                                    + stateCode)))
+        .thenApply(
+            data -> {
+              String percent = data.get(1).get(1);
+              Double numPercent = Double.parseDouble(percent);
+              return new CensusData(numPercent);
+            });
   }
+
+  /**
+   * This method returns the broadband access of every county in the given state that the ACS has
+   * data for, with the state list and one query to the census API.
+   *
+   * @param state the String representing the state to get broadband access data about
+   * @return a map from each county name, without " County", to a CensusData object wrapping a
+   *     Double representing broadband access level in that county
+   * @throws DataSourceException if the state is not found or has no counties in the ACS data
+   */
+  @Override
+  public Map<String, CensusData> getStateBroadbandAccess(String state) throws DataSourceException {
+    return AsyncCensusSource.await(getStateBroadbandAccessAsync(state));
+  }
+
+  /**
+   * This method starts finding the broadband access of every county in the given state that the
+   * ACS has data for. Only counties named like "Durham County, North Carolina" are included, the
+   * same ones that getBroadbandAccessAsync can find, keyed by the name before " County".
+   *
+   * @param state the String representing the state to get broadband access data about
+   * @return a future of a map from each county name to a CensusData object wrapping a Double
+   *     representing broadband access level in that county, which completes exceptionally with a
+   *     DataSourceException if the state is not found or has no counties in the ACS data
+   */
+  public CompletableFuture<Map<String, CensusData>> getStateBroadbandAccessAsync(String state) {
+    String suffix = " County, " + state;
+    return getStateCodeAsync(state)
+        .thenCompose(
+            stateCode -> fetchRows(BROADBAND_QUERY + "&for=county:*&in=state:" + stateCode))
+        .thenApply(
+            data -> {
+              Map<String, CensusData> broadbandAccess = new HashMap<>();
+              for (List<String> row : data.subList(1, data.size())) {
+                String name = row.get(0);
+                if (!name.endsWith(suffix) || row.get(1) == null) {
+                  continue;
+                }
+                try {
+                  broadbandAccess.put(
+                      name.substring(0, name.length() - suffix.length()),
+                      new CensusData(Double.parseDouble(row.get(1))));
+                } catch (NumberFormatException e) {
+                  // A county without a published value is left for getBroadbandAccess to report
+                }
+              }
+              return broadbandAccess;
+            });
+  }
+
+  /**
+   * A record representing the loaded county list of one state.
+   *
+   * @param countyIds the county code of each county, keyed by its full "County, State" name
+   * @param loadedAt the System.nanoTime when the list was loaded
+   */
+  private record CountyTable(Map<String, String> countyIds, long loadedAt) {}
 }
@@ -0,0 +1,81 @@
+package edu.brown.cs.student.main.sources;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * This is an interface that represents a census source object that can look up broadband access
+ * without blocking the calling thread. The lookup returns a CompletableFuture that completes with
+ * the CensusData, or completes exceptionally with a DataSourceException. The blocking
+ * getBroadbandAccess method of CensusSource waits on that future, so an AsyncCensusSource can be
+ * passed anywhere a CensusSource is expected.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public interface AsyncCensusSource extends CensusSource {
+
+  /**
+   * This method starts looking up the broadband access in the given state and county Strings.
+   *
+   * @param state the String representing the state to get broadband access data about
+   * @param county the String representing the county to get broadband access about
+   * @return a CompletableFuture of a CensusData object that contains a Double representing
+   *     broadband access in the state / county combination passed, which completes exceptionally
+   *     with a DataSourceException if the census source fails to find the broadband access data
+   */
+  CompletableFuture<CensusData> getBroadbandAccessAsync(String state, String county);
+
+  /**
+   * This method returns the broadband access in the given state and county Strings, waiting for
+   * getBroadbandAccessAsync to complete.
+   *
+   * @param state the String representing the state to get broadband access data about
+   * @param county the String representing the county to get broadband access about
+   * @return a CensusData object that contains a Double representing broadband access in the state /
+   *     county combination passed
+   * @throws DataSourceException if the census source fails to find the broadband access data
+   */
+  @Override
+  default CensusData getBroadbandAccess(String state, String county) throws DataSourceException {
+    return await(getBroadbandAccessAsync(state, county));
+  }
+
+  /**
+   * A helper method that waits for a future of this source and rethrows its failure as the
+   * DataSourceException that a blocking CensusSource would have thrown.
+   *
+   * @param future the future to wait for
+   * @param <T> the type of the future's value
+   * @return the value of the future
+   * @throws DataSourceException if the future completed exceptionally or the wait was interrupted
+   */
+  static <T> T await(CompletableFuture<T> future) throws DataSourceException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DataSourceException("Interrupted while waiting for the census source.");
+    } catch (ExecutionException e) {
+      throw unwrap(e.getCause());
+    }
+  }
+
+  /**
+   * A helper method that finds the DataSourceException behind the failure of a future, or wraps
+   * the failure's message in a new one.
+   *
+   * @param failure the exception that a future completed with
+   * @return the DataSourceException to report for that failure
+   */
+  static DataSourceException unwrap(Throwable failure) {
+    while (failure instanceof CompletionException && failure.getCause() != null) {
+      failure = failure.getCause();
+    }
+    if (failure instanceof DataSourceException dse) {
+      return dse;
+    }
+    return new DataSourceException(failure.getMessage());
+  }
+}
@@ -2,9 +2,23 @@ package edu.brown.cs.student.main.sources;
 
 /**
  * This record represents a CensusData object, which wraps a Double representing broadband access
- * level.
+ * level. A value that a source kept from an earlier lookup also carries the time of that lookup,
+ * so that responses can report how old it is.
  *
+ * @param data the Double representing broadband access level
+ * @param lookedUpAt the time the value was looked up from the census, in epoch milliseconds, or
+ *     null if it was just looked up
  * @author sarahridley juliazdzilowska prlakshm
  * @version 3.0
  */
-public record CensusData(Double data) {}
+public record CensusData(Double data, Long lookedUpAt) {
+
+  /**
+   * The constructor for a CensusData object that was just looked up.
+   *
+   * @param data the Double representing broadband access level
+   */
+  public CensusData(Double data) {
+    this(data, null);
+  }
+}
@@ -19,4 +19,20 @@ public interface CensusSource {
    * @throws DataSourceException if the census source fails to find the broadband access data
    */
   CensusData getBroadbandAccess(String state, String county) throws DataSourceException;
+
+  /**
+   * This method looks up the broadband access in the given state and county Strings again,
+   * without answering from any values the source keeps from earlier lookups, so that a cached
+   * response can be refreshed. Sources that keep values override it; others just look up.
+   *
+   * @param state the String representing the state to get broadband access data about
+   * @param county the String representing the county to get broadband access about
+   * @return a CensusData object that contains a Double representing broadband access in the state /
+   *     county combination passed
+   * @throws DataSourceException if the census source fails to find the broadband access data
+   */
+  default CensusData refreshBroadbandAccess(String state, String county)
+      throws DataSourceException {
+    return getBroadbandAccess(state, county);
+  }
 }
@@ -0,0 +1,108 @@
+package edu.brown.cs.student.main.sources;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import kotlin.Pair;
+
+/**
+ * The CoalescingCensusSource class is a census source that sits in front of another CensusSource
+ * and makes sure that only one lookup for a state and county is in flight at a time. Every caller
+ * that asks for a state and county while a lookup of it is running shares that lookup's result,
+ * so a burst of requests for the same uncached county costs one lookup of the wrapped source.
+ * Lookups of whole states are coalesced per state in the same way.
+ *
+ * <p>If the wrapped source is an AsyncCensusSource, lookups are started without blocking.
+ * Otherwise the first caller runs the blocking lookup, and the callers after it wait for its
+ * result. If the wrapped source is not a StateCensusSource, getStateBroadbandAccess always throws
+ * a DataSourceException, so that a BroadbandHandler looks up counties one at a time.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class CoalescingCensusSource implements AsyncCensusSource, StateCensusSource {
+  private final CensusSource source;
+  private final SingleFlight<Pair<String, String>, CensusData> countyLookups;
+  private final SingleFlight<String, Map<String, CensusData>> stateLookups;
+
+  /**
+   * The constructor for the CoalescingCensusSource class.
+   *
+   * @param source the CensusSource that lookups are passed on to
+   */
+  public CoalescingCensusSource(CensusSource source) {
+    this.source = source;
+    this.countyLookups = new SingleFlight<>();
+    this.stateLookups = new SingleFlight<>();
+  }
+
+  /**
+   * This method starts looking up the broadband access in the given state and county, or joins the
+   * lookup of them that is in flight.
+   *
+   * @param state the String representing the state to get broadband access data about
+   * @param county the String representing the county to get broadband access about
+   * @return a future of a CensusData object that contains a Double representing broadband access
+   *     in the state / county combination passed, which completes exceptionally with a
+   *     DataSourceException if the wrapped source fails to find the broadband access data
+   */
+  @Override
+  public CompletableFuture<CensusData> getBroadbandAccessAsync(String state, String county) {
+    return countyLookups.run(
+        new Pair<>(state, county),
+        () -> {
+          if (source instanceof AsyncCensusSource asyncSource) {
+            return asyncSource.getBroadbandAccessAsync(state, county);
+          }
+          try {
+            return CompletableFuture.completedFuture(source.getBroadbandAccess(state, county));
+          } catch (DataSourceException e) {
+            return CompletableFuture.failedFuture(e);
+          }
+        });
+  }
+
+  /**
+   * This method looks up the broadband access in the given state and county again through the
+   * wrapped source, without answering from any values it keeps. A refresh is not coalesced with
+   * lookups in flight, since those may be answered from kept values.
+   *
+   * @param state the String representing the state to get broadband access data about
+   * @param county the String representing the county to get broadband access about
+   * @return a CensusData object that contains a Double representing broadband access in the state /
+   *     county combination passed
+   * @throws DataSourceException if the wrapped source fails to find the broadband access data
+   */
+  @Override
+  public CensusData refreshBroadbandAccess(String state, String county)
+      throws DataSourceException {
+    return source.refreshBroadbandAccess(state, county);
+  }
+
+  /**
+   * This method returns the broadband access of every county in the given state that the wrapped
+   * source has data for, joining the lookup of the state that is in flight if there is one.
+   *
+   * @param state the String representing the state to get broadband access data about
+   * @return a map from each county name to a CensusData object that contains a Double
+   *     representing broadband access in that county
+   * @throws DataSourceException if the wrapped source fails to find broadband access data for the
+   *     state, or cannot look up whole states
+   */
+  @Override
+  public Map<String, CensusData> getStateBroadbandAccess(String state) throws DataSourceException {
+    if (!(source instanceof StateCensusSource stateSource)) {
+      throw new DataSourceException("The census source cannot look up whole states.");
+    }
+    return AsyncCensusSource.await(
+        stateLookups.run(
+            state,
+            () -> {
+              try {
+                return CompletableFuture.completedFuture(
+                    stateSource.getStateBroadbandAccess(state));
+              } catch (DataSourceException e) {
+                return CompletableFuture.failedFuture(e);
+              }
+            }));
+  }
+}
@@ -0,0 +1,397 @@
+package edu.brown.cs.student.main.sources;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import kotlin.Pair;
+
+/**
+ * The PersistentCensusSource class is a census source that sits in front of another CensusSource
+ * and keeps every broadband access value that it looks up in an append-only log file, so the values
+ * survive a restart of the server. Each entry is keyed by state, county and census variable, and
+ * carries the time it was looked up. When the source is constructed, the log is read back into
+ * memory, and a lookup of an entry younger than the time to live is answered from memory instead of
+ * the wrapped source, so a restarted server does not look up again what it looked up just before.
+ * A value answered from memory carries the time it was looked up, and a refresh always goes to the
+ * wrapped source, so a kept value is never passed off as a new one.
+ *
+ * <p>The log starts with a header (magic number and format version), followed by one record per
+ * lookup: the state, county and variable as modified UTF-8, the value, and the lookup time in epoch
+ * milliseconds. When the log is read, and again whenever more records have been appended than there
+ * are entries, it is rewritten with only the latest unexpired record of each entry, which also
+ * drops a record cut off by a crash and keeps the log from growing while the server runs. The log
+ * only saves lookups, so the source still works if it cannot be read or written.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class PersistentCensusSource implements AsyncCensusSource, StateCensusSource, AutoCloseable {
+
+  // "ACSL" in ASCII
+  static final int MAGIC = 0x4143534C;
+  static final int VERSION = 1;
+  private static final int HEADER_LENGTH = 8;
+  // The census variable for the percent of households with broadband access
+  static final String BROADBAND_VARIABLE = "S2802_C03_022E";
+  // The fewest appended records that the log is rewritten after
+  static final int COMPACT_MIN_RECORDS = 1024;
+
+  private final CensusSource source;
+  private final Path logPath;
+  private final long timeToLiveMillis;
+  private final Clock clock;
+  private final Map<Key, Entry> entries;
+  private DataOutputStream log;
+  private int appendedRecords;
+
+  /**
+   * The constructor for the PersistentCensusSource class, which reads the log if it exists and
+   * opens it for appending.
+   *
+   * @param source the CensusSource that lookups missing from the log are passed on to
+   * @param logPath the Path of the log file, which is created with its directory if missing
+   * @param timeToLive how long after a lookup its value is served from the log
+   */
+  public PersistentCensusSource(CensusSource source, Path logPath, Duration timeToLive) {
+    this(source, logPath, timeToLive, Clock.systemUTC());
+  }
+
+  /**
+   * The constructor for the PersistentCensusSource class, with the clock that lookup times are
+   * read from.
+   *
+   * @param source the CensusSource that lookups missing from the log are passed on to
+   * @param logPath the Path of the log file, which is created with its directory if missing
+   * @param timeToLive how long after a lookup its value is served from the log
+   * @param clock the clock that lookup times and ages are measured with
+   */
+  public PersistentCensusSource(
+      CensusSource source, Path logPath, Duration timeToLive, Clock clock) {
+    this.source = source;
+    this.logPath = logPath.toAbsolutePath();
+    this.timeToLiveMillis = timeToLive.toMillis();
+    this.clock = clock;
+    this.entries = new ConcurrentHashMap<>();
+    try {
+      openLog();
+    } catch (IOException e) {
+      // Without the log, every lookup is passed on to the wrapped source
+      this.entries.clear();
+      this.log = null;
+    }
+  }
+
+  /**
+   * A helper method that reads the live entries of the log into memory, rewrites the log with only
+   * them, and opens it for appending.
+   *
+   * @throws IOException if the log cannot be read, rewritten or opened
+   */
+  private void openLog() throws IOException {
+    if (logPath.getParent() != null) {
+      Files.createDirectories(logPath.getParent());
+    }
+    if (Files.isRegularFile(logPath)) {
+      readLog();
+    }
+    rewriteLog();
+  }
+
+  /**
+   * A helper method that rewrites the log with the entries in memory and opens it for appending.
+   *
+   * @throws IOException if the log cannot be rewritten or opened
+   */
+  private void rewriteLog() throws IOException {
+    writeLog();
+    this.log =
+        new DataOutputStream(
+            new BufferedOutputStream(
+                Files.newOutputStream(logPath, StandardOpenOption.APPEND)));
+    this.appendedRecords = 0;
+  }
+
+  /**
+   * A helper method that drops the expired entries from memory and rewrites the log with the rest.
+   * If the log cannot be rewritten, looked up values are only kept in memory from then on.
+   */
+  private void compactLog() {
+    closeLog();
+    long now = clock.millis();
+    entries.values().removeIf(entry -> now - entry.lookedUpAt() >= timeToLiveMillis);
+    try {
+      rewriteLog();
+    } catch (IOException e) {
+      closeLog();
+    }
+  }
+
+  /**
+   * A helper method that reads the records of the log and keeps the latest unexpired one of each
+   * entry in memory. A file that is not a log of this version is read as an empty log.
+   *
+   * @throws IOException if the log cannot be read
+   */
+  private void readLog() throws IOException {
+    long now = clock.millis();
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(logPath)))) {
+      if (Files.size(logPath) < HEADER_LENGTH
+          || in.readInt() != MAGIC
+          || in.readInt() != VERSION) {
+        return;
+      }
+      while (true) {
+        Key key;
+        Entry entry;
+        try {
+          key = new Key(in.readUTF(), in.readUTF(), in.readUTF());
+          entry = new Entry(in.readDouble(), in.readLong());
+        } catch (EOFException e) {
+          // The end of the log, or a record cut off by a crash
+          break;
+        }
+        if (now - entry.lookedUpAt() < timeToLiveMillis) {
+          entries.put(key, entry);
+        } else {
+          entries.remove(key);
+        }
+      }
+    }
+  }
+
+  /**
+   * A helper method that writes the entries in memory as a new log. The log is written next to its
+   * destination first and then moved into place, so a crash never leaves a partial log.
+   *
+   * @throws IOException if the log cannot be written
+   */
+  private void writeLog() throws IOException {
+    Path temporary = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+        writeRecord(out, entry.getKey(), entry.getValue());
+      }
+    }
+    Files.move(temporary, logPath, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * A helper method that writes one record of the log.
+   *
+   * @param out the stream to write to
+   * @param key the state, county and variable of the record
+   * @param entry the value and lookup time of the record
+   * @throws IOException if the record cannot be written
+   */
+  private static void writeRecord(DataOutputStream out, Key key, Entry entry) throws IOException {
+    out.writeUTF(key.state());
+    out.writeUTF(key.county());
+    out.writeUTF(key.variable());
+    out.writeDouble(entry.value());
+    out.writeLong(entry.lookedUpAt());
+  }
+
+  /**
+   * A helper method that keeps looked up values in memory and appends them to the log, stamped with
+   * the time they were looked up. A value that cannot be appended is still kept in memory.
+   *
+   * @param state the state of the values
+   * @param countyData the broadband access of each county to keep, keyed by county name
+   */
+  private synchronized void record(String state, Map<String, CensusData> countyData) {
+    long now = clock.millis();
+    List<Map.Entry<Key, Entry>> records = new ArrayList<>();
+    for (Map.Entry<String, CensusData> county : countyData.entrySet()) {
+      if (county.getValue() == null || county.getValue().data() == null) {
+        continue;
+      }
+      Key key = new Key(state, county.getKey(), BROADBAND_VARIABLE);
+      Long lookedUpAt = county.getValue().lookedUpAt();
+      Entry entry = new Entry(county.getValue().data(), lookedUpAt == null ? now : lookedUpAt);
+      entries.put(key, entry);
+      records.add(Map.entry(key, entry));
+    }
+    if (log == null) {
+      return;
+    }
+    try {
+      for (Map.Entry<Key, Entry> record : records) {
+        writeRecord(log, record.getKey(), record.getValue());
+      }
+      log.flush();
+    } catch (IOException e) {
+      closeLog();
+      return;
+    }
+    appendedRecords += records.size();
+    if (appendedRecords > Math.max(COMPACT_MIN_RECORDS, entries.size())) {
+      compactLog();
+    }
+  }
+
+  /**
+   * This method starts looking up the broadband access in the given state and county. If the log
+   * has a value for them that is younger than the time to live, it is returned at once, with the
+   * time it was looked up. Otherwise the wrapped source is asked, and its value is kept in the log.
+   *
+   * @param state the String representing the state to get broadband access data about
+   * @param county the String representing the county to get broadband access about
+   * @return a future of a CensusData object that contains a Double representing broadband access
+   *     in the state / county combination passed, which completes exceptionally with a
+   *     DataSourceException if the wrapped source fails to find the broadband access data
+   */
+  @Override
+  public CompletableFuture<CensusData> getBroadbandAccessAsync(String state, String county) {
+    Entry entry = entries.get(new Key(state, county, BROADBAND_VARIABLE));
+    if (entry != null && clock.millis() - entry.lookedUpAt() < timeToLiveMillis) {
+      return CompletableFuture.completedFuture(new CensusData(entry.value(), entry.lookedUpAt()));
+    }
+    CompletableFuture<CensusData> lookup;
+    if (source instanceof AsyncCensusSource asyncSource) {
+      lookup = asyncSource.getBroadbandAccessAsync(state, county);
+    } else {
+      try {
+        lookup = CompletableFuture.completedFuture(source.getBroadbandAccess(state, county));
+      } catch (DataSourceException e) {
+        lookup = CompletableFuture.failedFuture(e);
+      }
+    }
+    return lookup.thenApply(
+        censusData -> {
+          record(state, Map.of(county, censusData));
+          return censusData;
+        });
+  }
+
+  /**
+   * This method looks up the broadband access in the given state and county again from the wrapped
+   * source, without answering from the log, and keeps the new value in the log.
+   *
+   * @param state the String representing the state to get broadband access data about
+   * @param county the String representing the county to get broadband access about
+   * @return a CensusData object that contains a Double representing broadband access in the state /
+   *     county combination passed
+   * @throws DataSourceException if the wrapped source fails to find the broadband access data
+   */
+  @Override
+  public CensusData refreshBroadbandAccess(String state, String county)
+      throws DataSourceException {
+    CensusData censusData = source.refreshBroadbandAccess(state, county);
+    record(state, Map.of(county, censusData));
+    return censusData;
+  }
+
+  /**
+   * This method returns the broadband access of every county in the given state from the wrapped
+   * source, and keeps every value in the log.
+   *
+   * @param state the String representing the state to get broadband access data about
+   * @return a map from each county name to a CensusData object that contains a Double
+   *     representing broadband access in that county
+   * @throws DataSourceException if the wrapped source fails to find broadband access data for the
+   *     state, or cannot look up whole states
+   */
+  @Override
+  public Map<String, CensusData> getStateBroadbandAccess(String state) throws DataSourceException {
+    if (!(source instanceof StateCensusSource stateSource)) {
+      throw new DataSourceException("The census source cannot look up whole states.");
+    }
+    Map<String, CensusData> countyData = stateSource.getStateBroadbandAccess(state);
+    record(state, new HashMap<>(countyData));
+    return countyData;
+  }
+
+  /**
+   * A getter method for the number of entries younger than the time to live.
+   *
+   * @return the number of state and county lookups that would be answered from the log
+   */
+  public int getLiveEntryCount() {
+    long now = clock.millis();
+    int count = 0;
+    for (Entry entry : entries.values()) {
+      if (now - entry.lookedUpAt() < timeToLiveMillis) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * A getter method for the entries younger than the time to live, which can warm a cache with the
+   * values looked up before a restart.
+   *
+   * @return a map from each state and county pair to a CensusData object that contains its value
+   *     and the time it was looked up
+   */
+  public Map<Pair<String, String>, CensusData> getLiveEntries() {
+    long now = clock.millis();
+    Map<Pair<String, String>, CensusData> live = new HashMap<>();
+    for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+      Key key = entry.getKey();
+      Entry value = entry.getValue();
+      if (key.variable().equals(BROADBAND_VARIABLE)
+          && now - value.lookedUpAt() < timeToLiveMillis) {
+        live.put(
+            new Pair<>(key.state(), key.county()),
+            new CensusData(value.value(), value.lookedUpAt()));
+      }
+    }
+    return live;
+  }
+
+  /** A method that closes the log, after which looked up values are only kept in memory. */
+  @Override
+  public synchronized void close() {
+    closeLog();
+  }
+
+  /** A helper method that closes the log, ignoring a failure to close it. */
+  private void closeLog() {
+    if (log == null) {
+      return;
+    }
+    try {
+      log.close();
+    } catch (IOException e) {
+      // The values written before the failure are still in the log
+    }
+    log = null;
+  }
+
+  /**
+   * A record representing the key of a log entry.
+   *
+   * @param state the state that was looked up
+   * @param county the county that was looked up
+   * @param variable the census variable that was looked up
+   */
+  private record Key(String state, String county, String variable) {}
+
+  /**
+   * A record representing the value of a log entry.
+   *
+   * @param value the value of the variable
+   * @param lookedUpAt the time of the lookup, in epoch milliseconds
+   */
+  private record Entry(double value, long lookedUpAt) {}
+}
@@ -0,0 +1,77 @@
+package edu.brown.cs.student.main.sources;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * This is the SingleFlight class, which coalesces concurrent calls for the same key into one call.
+ * The first caller for a key starts the call, and every caller that asks for that key before the
+ * call completes is given the same result, instead of starting a call of its own. Once the call
+ * completes, the key is forgotten, so a later caller starts a new call and never gets an old
+ * result.
+ *
+ * @param <K> the type of the keys that identify a call
+ * @param <V> the type of the result of a call
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class SingleFlight<K, V> {
+  private final Map<K, CompletableFuture<V>> inFlight;
+
+  /** Constructor for the SingleFlight class, which starts with no calls in flight. */
+  public SingleFlight() {
+    this.inFlight = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * A method that returns the result of the call in flight for the key, or starts the given call
+   * for the key if there is none. A call that returns a completed future, such as a blocking call,
+   * runs on the thread of the caller that starts it. A call that throws, even an Error, or returns
+   * no future fails every caller of its flight, and the key is forgotten as for any other result.
+   *
+   * @param key the key that identifies the call
+   * @param call the call to start if none is in flight for the key
+   * @return a future of the call's result, which completes exceptionally if the call fails
+   */
+  public CompletableFuture<V> run(K key, Supplier<CompletableFuture<V>> call) {
+    CompletableFuture<V> flight = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+    if (existing != null) {
+      return existing.copy();
+    }
+    CompletableFuture<V> result;
+    try {
+      result = call.get();
+      if (result == null) {
+        result =
+            CompletableFuture.failedFuture(new NullPointerException("The call had no future."));
+      }
+    } catch (Throwable e) {
+      // Caught whatever it is, so the key is never left with a flight that does not complete
+      result = CompletableFuture.failedFuture(e);
+    }
+    result.whenComplete(
+        (value, failure) -> {
+          // Forgotten before completing, so callers woken by the result start fresh calls
+          inFlight.remove(key, flight);
+          if (failure != null) {
+            flight.completeExceptionally(failure);
+          } else {
+            flight.complete(value);
+          }
+        });
+    // Callers get copies, so one cancelling its future does not fail the others
+    return flight.copy();
+  }
+
+  /**
+   * A getter method for the number of keys with a call in flight.
+   *
+   * @return the number of calls that have started and not completed
+   */
+  public int getInFlightCount() {
+    return inFlight.size();
+  }
+}
@@ -0,0 +1,27 @@
+package edu.brown.cs.student.main.sources;
+
+import java.util.Map;
+
+/**
+ * This is an interface that represents a census source object that can also look up the broadband
+ * access of every county in a state at once. A BroadbandHandler with a cache that is given a
+ * StateCensusSource makes one such lookup on the first miss in a state and caches every county in
+ * it, so later requests for other counties in that state are answered without the source.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public interface StateCensusSource extends CensusSource {
+
+  /**
+   * This method returns the broadband access of every county in the given state that the source
+   * has data for.
+   *
+   * @param state the String representing the state to get broadband access data about
+   * @return a map from each county name, as it would be passed to getBroadbandAccess, to a
+   *     CensusData object that contains a Double representing broadband access in that county
+   * @throws DataSourceException if the census source fails to find broadband access data for the
+   *     state
+   */
+  Map<String, CensusData> getStateBroadbandAccess(String state) throws DataSourceException;
+}
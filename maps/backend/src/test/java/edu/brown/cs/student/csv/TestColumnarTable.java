@@ -0,0 +1,116 @@
+package edu.brown.cs.student.csv;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.brown.cs.student.main.creator.ListStringFromRow;
+import edu.brown.cs.student.main.csv.ColumnarTable;
+import edu.brown.cs.student.main.csv.parse.CsvParser;
+import edu.brown.cs.student.main.csv.parse.FactoryFailureException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This is a testing class that tests the ColumnarTable class, which stores CSV rows as per-column
+ * dictionaries and int codes, and gives them back as a List of List of String.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TestColumnarTable {
+
+  /**
+   * Tests that rows of different lengths read back the same, and that short rows fail to read past
+   * their end like a List.
+   */
+  @Test
+  public void testRaggedRows() {
+    List<List<String>> rows =
+        List.of(
+            List.of("a", "b", "c"),
+            List.of(),
+            List.of("a", "x"),
+            List.of("c", "b", "c", "d"),
+            List.of("b"));
+    ColumnarTable table = ColumnarTable.of(rows);
+
+    assertEquals(rows, table.asRows());
+    assertEquals(rows.hashCode(), table.asRows().hashCode());
+    assertEquals(5, table.getRowCount());
+    assertEquals(4, table.getColumnCount());
+    assertEquals(2, table.getRowLength(2));
+    assertEquals(-1, table.getCode(1, 0));
+    for (int row = 0; row < rows.size(); row++) {
+      for (int col : new int[] {-1, 4}) {
+        List<String> actual = table.asRows().get(row);
+        assertThrows(IndexOutOfBoundsException.class, () -> actual.get(col));
+      }
+    }
+    assertThrows(UnsupportedOperationException.class, () -> table.asRows().get(0).set(0, "z"));
+  }
+
+  /**
+   * Tests that one malformed row much longer than the rest, first or last, is stored and read back
+   * without the short rows gaining its columns.
+   */
+  @Test
+  public void testOneLongRow() {
+    List<String> longRow = new ArrayList<>();
+    for (int col = 0; col < 1000; col++) {
+      longRow.add("item " + col);
+    }
+    List<List<String>> rows = new ArrayList<>();
+    for (int row = 0; row < 100; row++) {
+      rows.add(List.of("row " + row, "RI"));
+    }
+    rows.add(longRow);
+    rows.add(0, longRow);
+    ColumnarTable table = ColumnarTable.of(rows);
+
+    assertEquals(rows, table.asRows());
+    assertEquals(1000, table.getColumnCount());
+    assertEquals(1000, table.getRowLength(101));
+    assertEquals(2, table.getRowLength(50));
+    assertEquals(-1, table.getCode(50, 2));
+    assertEquals(-1, table.getCode(50, 999));
+    assertEquals(table.getCode(0, 999), table.getCode(101, 999));
+    assertEquals(table.getCode(1, 1), table.getCode(100, 1));
+    assertThrows(IndexOutOfBoundsException.class, () -> table.getCode(102, 0));
+  }
+
+  /**
+   * Tests that each column stores every distinct value once, and that values are read by code.
+   */
+  @Test
+  public void testDictionaries() {
+    ColumnarTable table =
+        ColumnarTable.of(List.of(List.of("RI", "2020"), List.of("MA", "2020"), List.of("RI", "2021")));
+
+    assertArrayEquals(new String[] {"RI", "MA"}, table.getDictionary(0));
+    assertArrayEquals(new String[] {"2020", "2021"}, table.getDictionary(1));
+    assertEquals(table.getCode(0, 0), table.getCode(2, 0));
+    assertEquals("2021", table.getDictionary(1)[table.getCode(2, 1)]);
+  }
+
+  /**
+   * Tests that a census CSV reads back exactly as parsed.
+   *
+   * @throws IOException if file reading fails
+   * @throws FactoryFailureException if row creation fails
+   */
+  @Test
+  public void testCensusData() throws IOException, FactoryFailureException {
+    CsvParser<List<String>> parser =
+        new CsvParser<>(
+            new FileReader("data/census/income_by_race_edited.csv"), new ListStringFromRow());
+    parser.parseCsv();
+    List<List<String>> rows = parser.getStoreRows();
+
+    assertEquals(rows, ColumnarTable.of(rows).asRows());
+    assertEquals(List.of(), ColumnarTable.of(List.of()).asRows());
+  }
+}
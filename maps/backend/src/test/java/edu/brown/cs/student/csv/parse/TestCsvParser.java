@@ -16,6 +16,7 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
@@ -143,6 +144,70 @@ public class TestCsvParser {
     assertEquals(listLinkedList, stringParser.getStoreRows());
   }
 
+  /**
+   * Given a StringReader and a ListStringFromRow, parses a quoted field that spans two lines as part
+   * of a single row, keeping the line break and the quotes in the field
+   *
+   * @throws IOException if file reading were to fail
+   * @throws FactoryFailureException if row creation were to fail
+   */
+  @Test
+  public void parseQuotedNewline() throws IOException, FactoryFailureException {
+    String dataString = "name,note\nAnn,\"first line\nsecond, line\"\nBob,plain";
+    CsvParser<List<String>> stringParser =
+        new CsvParser<>(new StringReader(dataString), new ListStringFromRow());
+    stringParser.parseCsv();
+    List<List<String>> expected =
+        List.of(
+            List.of("name", "note"),
+            List.of("Ann", "\"first line\nsecond, line\""),
+            List.of("Bob", "plain"));
+    assertEquals(expected, stringParser.getStoreRows());
+  }
+
+  /**
+   * Given a FileReader and a ListStringFromRow, streams the rows of the ten-star csv file to a
+   * RowVisitor in the same order that parseCsv stores them, without storing them itself.
+   *
+   * @throws IOException if file reading were to fail
+   * @throws FactoryFailureException if row creation were to fail
+   */
+  @Test
+  public void streamStarDataToVisitor() throws IOException, FactoryFailureException {
+    CsvParser<List<String>> storingParser =
+        new CsvParser<>(new FileReader("data/stars/ten-star.csv"), new ListStringFromRow());
+    storingParser.parseCsv();
+
+    CsvParser<List<String>> streamingParser =
+        new CsvParser<>(new FileReader("data/stars/ten-star.csv"), new ListStringFromRow());
+    List<List<String>> visited = new ArrayList<>();
+    streamingParser.parseCsv(visited::add);
+    assertEquals(storingParser.getStoreRows(), visited);
+    assertEquals(List.of(), streamingParser.getStoreRows());
+  }
+
+  /**
+   * Given a StringReader and a ListStringFromRow, stops streaming rows as soon as the RowVisitor
+   * throws, and passes its exception along.
+   */
+  @Test
+  public void streamStopsWhenVisitorThrows() {
+    CsvParser<List<String>> parser =
+        new CsvParser<>(new StringReader("a\nb\nstop\nc"), new ListStringFromRow());
+    List<List<String>> visited = new ArrayList<>();
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            parser.parseCsv(
+                row -> {
+                  if (row.get(0).equals("stop")) {
+                    throw new IllegalStateException("stopped");
+                  }
+                  visited.add(row);
+                }));
+    assertEquals(List.of(List.of("a"), List.of("b")), visited);
+  }
+
   /**
    * Given a FileReader and a ListStringFromRow, parses the ten-star csv file and stores it as a
    * list of list of strings in the StoreRow field.
@@ -0,0 +1,92 @@
+package edu.brown.cs.student.csv.parse;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.brown.cs.student.main.csv.parse.CsvTokenizer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This is a testing class that tests the CsvTokenizer class, which splits CSV records into fields.
+ * Its splits are checked against the lookahead regex that CsvParser used before the tokenizer.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TestCsvTokenizer {
+
+  final static Pattern REGEX_SPLIT = Pattern.compile(",(?=([^\"]*\"[^\"]*\")*(?![^\"]*\"))");
+
+  /**
+   * Tests splits of records with quotes, escaped quotes, and empty fields.
+   */
+  @Test
+  public void testSplit() {
+    assertArrayEquals(new String[] {"a", "b", "c"}, CsvTokenizer.split("a,b,c"));
+    assertArrayEquals(
+        new String[] {"\"Bristol County, RI\"", "1"}, CsvTokenizer.split("\"Bristol County, RI\",1"));
+    assertArrayEquals(
+        new String[] {"\"say \"\"hi, there\"\"\"", "x"},
+        CsvTokenizer.split("\"say \"\"hi, there\"\"\",x"));
+    assertArrayEquals(new String[] {"", "a"}, CsvTokenizer.split(",a"));
+    assertArrayEquals(new String[] {"a"}, CsvTokenizer.split("a,,"));
+    assertArrayEquals(new String[] {""}, CsvTokenizer.split(""));
+    assertArrayEquals(new String[0], CsvTokenizer.split(",,"));
+    assertArrayEquals(new String[] {"\"a\nb\"", "c"}, CsvTokenizer.split("\"a\nb\",c"));
+  }
+
+  /**
+   * Tests whether records end inside a quoted field.
+   */
+  @Test
+  public void testIsOpen() {
+    assertTrue(CsvTokenizer.isOpen("a,\"b"));
+    assertFalse(CsvTokenizer.isOpen("a,\"b\""));
+    assertFalse(CsvTokenizer.isOpen("a,\"\"\"b\"\"\""));
+  }
+
+  /**
+   * Tests that every line of the data CSVs splits the same way as with the regex.
+   *
+   * @throws IOException if file reading fails
+   */
+  @Test
+  public void testMatchesRegexOnData() throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(Path.of("data"))) {
+      files = paths.filter(path -> path.toString().endsWith(".csv")).toList();
+    }
+    for (Path file : files) {
+      for (String line : Files.readAllLines(file)) {
+        assertArrayEquals(REGEX_SPLIT.split(line), CsvTokenizer.split(line), line);
+      }
+    }
+  }
+
+  /**
+   * Tests that random records of commas, quotes, and letters, balanced or not, split the same way as
+   * with the regex.
+   */
+  @Test
+  public void testMatchesRegexFuzz() {
+    Random random = new Random(11);
+    char[] alphabet = {',', '"', 'a', 'b', ' '};
+    for (int trial = 0; trial < 5000; trial++) {
+      StringBuilder record = new StringBuilder();
+      int length = random.nextInt(20);
+      for (int i = 0; i < length; i++) {
+        record.append(alphabet[random.nextInt(alphabet.length)]);
+      }
+      String line = record.toString();
+      assertArrayEquals(REGEX_SPLIT.split(line), CsvTokenizer.split(line), line);
+    }
+  }
+}
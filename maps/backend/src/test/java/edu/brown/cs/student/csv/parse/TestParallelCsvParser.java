@@ -0,0 +1,159 @@
+package edu.brown.cs.student.csv.parse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.brown.cs.student.main.creator.ListStringFromRow;
+import edu.brown.cs.student.main.creator.PairStringListFromRow;
+import edu.brown.cs.student.main.csv.parse.CsvParser;
+import edu.brown.cs.student.main.csv.parse.FactoryFailureException;
+import edu.brown.cs.student.main.csv.parse.ParallelCsvParser;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This is a testing class that tests the ParallelCsvParser class, which parses CSV data in chunks
+ * on several threads. Its rows are checked against those of the sequential CsvParser.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TestParallelCsvParser {
+
+  /**
+   * A helper method that parses a String with a CsvParser.
+   *
+   * @param data the CSV data
+   * @return the rows of the data
+   */
+  private static List<List<String>> parseSequential(String data)
+      throws IOException, FactoryFailureException {
+    CsvParser<List<String>> parser = new CsvParser<>(new StringReader(data), new ListStringFromRow());
+    parser.parseCsv();
+    return parser.getStoreRows();
+  }
+
+  /**
+   * A helper method that parses a String with a ParallelCsvParser in the given number of chunks.
+   *
+   * @param data the CSV data
+   * @param chunkCount the number of chunks to aim for
+   * @return the rows of the data
+   */
+  private static List<List<String>> parseParallel(String data, int chunkCount)
+      throws IOException, FactoryFailureException {
+    ParallelCsvParser<List<String>> parser =
+        new ParallelCsvParser<>(
+            ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8)),
+            new ListStringFromRow(),
+            ForkJoinPool.commonPool(),
+            chunkCount);
+    parser.parseCsv();
+    return parser.getStoreRows();
+  }
+
+  /**
+   * Tests that every data CSV parses into the same rows as with a CsvParser, however many chunks
+   * the data is cut into.
+   *
+   * @throws IOException if file reading fails
+   * @throws FactoryFailureException if row creation fails
+   */
+  @Test
+  public void testMatchesSequentialOnData() throws IOException, FactoryFailureException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(Path.of("data"))) {
+      files = paths.filter(path -> path.toString().endsWith(".csv")).toList();
+    }
+    for (Path file : files) {
+      String data = Files.readString(file);
+      List<List<String>> expected = parseSequential(data);
+      for (int chunkCount : new int[] {1, 2, 3, 7, 64, 10000}) {
+        assertEquals(expected, parseParallel(data, chunkCount), file + " in " + chunkCount);
+      }
+    }
+  }
+
+  /**
+   * Tests that records with quoted line breaks, blank lines, and carriage returns are never cut
+   * apart.
+   *
+   * @throws IOException if parsing is interrupted
+   * @throws FactoryFailureException if row creation fails
+   */
+  @Test
+  public void testQuotedLineBreaks() throws IOException, FactoryFailureException {
+    String data = "a,\"b\nc,d\ne\",f\r\n\n\"x\ny\"\r\nlast,\"open\nrow";
+    List<List<String>> expected = parseSequential(data);
+    assertEquals(4, expected.size());
+    for (int chunkCount = 1; chunkCount <= data.length(); chunkCount++) {
+      assertEquals(expected, parseParallel(data, chunkCount));
+    }
+  }
+
+  /**
+   * Tests that the empty String parses into no rows.
+   *
+   * @throws IOException if parsing is interrupted
+   * @throws FactoryFailureException if row creation fails
+   */
+  @Test
+  public void testEmpty() throws IOException, FactoryFailureException {
+    assertEquals(List.of(), parseParallel("", 8));
+  }
+
+  /**
+   * Tests that a row that cannot be created fails the parse, like with a CsvParser.
+   */
+  @Test
+  public void testFactoryFailure() {
+    String data = "a,b\nc,d\n\ne,f\n";
+    ParallelCsvParser<?> parser =
+        new ParallelCsvParser<>(
+            ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8)),
+            new PairStringListFromRow(),
+            ForkJoinPool.commonPool(),
+            4);
+    assertThrows(FactoryFailureException.class, parser::parseCsv);
+  }
+
+  /**
+   * Tests that a mapped file parses into the same rows as with a CsvParser, when it is scanned
+   * through windows small enough that quoted line breaks and chunk starts fall across them.
+   *
+   * @param directory a temporary directory for the CSV file
+   * @throws IOException if the file cannot be written or read
+   * @throws FactoryFailureException if row creation fails
+   */
+  @Test
+  public void testMappedFileWindows(@TempDir Path directory)
+      throws IOException, FactoryFailureException {
+    String data = "a,\"b\nc,d\ne\",f\r\n\n\"x\ny\"\r\nlast,\"open\nrow";
+    Path file = directory.resolve("windows.csv");
+    Files.writeString(file, data, StandardCharsets.UTF_8);
+    List<List<String>> expected = parseSequential(data);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      for (int windowBytes : new int[] {1, 2, 3, 5, 8, 1 << 30}) {
+        for (int chunkCount : new int[] {1, 2, 7, 64}) {
+          ParallelCsvParser<List<String>> parser =
+              new ParallelCsvParser<>(
+                  channel, new ListStringFromRow(), ForkJoinPool.commonPool(), chunkCount,
+                  windowBytes);
+          parser.parseCsv();
+          assertEquals(expected, parser.getStoreRows(), windowBytes + " in " + chunkCount);
+        }
+      }
+    }
+  }
+}
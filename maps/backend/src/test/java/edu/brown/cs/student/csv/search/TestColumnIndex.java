@@ -0,0 +1,89 @@
+package edu.brown.cs.student.csv.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.brown.cs.student.main.csv.ColumnarTable;
+import edu.brown.cs.student.main.csv.search.ColumnIndex;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This is a testing class that tests the ColumnIndex class, which indexes the values of one column,
+ * or every column, of CSV data for exact, prefix, and range searches.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TestColumnIndex {
+
+  final static List<List<String>> ROWS =
+      List.of(
+          List.of("name", "state"),
+          List.of("Ann", "RI"),
+          List.of("Bob", "MA"),
+          List.of("Anna", "RI"),
+          List.of("RI", "RI"),
+          List.of("Cal"));
+
+  /**
+   * Tests exact matches in one column, with and without the header row.
+   */
+  @Test
+  public void testRowsEqualTo() {
+    ColumnIndex state = ColumnIndex.ofColumn(ROWS, 1);
+
+    assertArrayEquals(new int[] {1, 3, 4}, state.rowsEqualTo("RI", 0));
+    assertArrayEquals(new int[] {3, 4}, state.rowsEqualTo("RI", 2));
+    assertArrayEquals(new int[] {0}, state.rowsEqualTo("state", 0));
+    assertArrayEquals(new int[0], state.rowsEqualTo("state", 1));
+    assertArrayEquals(new int[0], state.rowsEqualTo("ri", 0));
+    assertEquals(5, state.getFirstShortRow());
+    assertEquals(-1, ColumnIndex.ofColumn(ROWS, 0).getFirstShortRow());
+  }
+
+  /**
+   * Tests that an index of every column lists a row once per matching item.
+   */
+  @Test
+  public void testAllColumns() {
+    ColumnIndex all = ColumnIndex.ofAllColumns(ROWS);
+
+    assertArrayEquals(new int[] {1, 3, 4, 4}, all.rowsEqualTo("RI", 1));
+    assertArrayEquals(new int[] {5}, all.rowsEqualTo("Cal", 1));
+  }
+
+  /**
+   * Tests prefix and range searches over the sorted values.
+   */
+  @Test
+  public void testPrefixAndRange() {
+    ColumnIndex name = ColumnIndex.ofColumn(ROWS, 0);
+
+    assertArrayEquals(new int[] {1, 3}, name.rowsWithPrefix("Ann", 1));
+    assertArrayEquals(new int[] {1, 2, 3, 4, 5}, name.rowsWithPrefix("", 1));
+    assertArrayEquals(new int[0], name.rowsWithPrefix("Z", 0));
+    assertArrayEquals(new int[] {2, 5}, name.rowsInRange("B", "D", 1));
+    assertArrayEquals(new int[] {1, 3}, name.rowsInRange("Ann", "Anna!", 0));
+  }
+
+  /**
+   * Tests that an index built from a ColumnarTable's codes answers like one built from its rows.
+   */
+  @Test
+  public void testOfColumnarTable() {
+    ColumnarTable table = ColumnarTable.of(ROWS);
+    for (int col = 0; col < 3; col++) {
+      ColumnIndex fromRows = ColumnIndex.ofColumn(ROWS, col);
+      ColumnIndex fromTable = ColumnIndex.ofColumn(table, col);
+
+      assertEquals(fromRows.getFirstShortRow(), fromTable.getFirstShortRow());
+      for (String value : List.of("RI", "Ann", "state", "Cal", "none")) {
+        assertArrayEquals(fromRows.rowsEqualTo(value, 0), fromTable.rowsEqualTo(value, 0));
+        assertArrayEquals(fromRows.rowsEqualTo(value, 1), fromTable.rowsEqualTo(value, 1));
+        assertArrayEquals(fromRows.rowsWithPrefix(value, 1), fromTable.rowsWithPrefix(value, 1));
+      }
+      assertArrayEquals(fromRows.rowsInRange("A", "S", 0), fromTable.rowsInRange("A", "S", 0));
+    }
+  }
+}
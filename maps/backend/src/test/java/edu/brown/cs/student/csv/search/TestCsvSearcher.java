@@ -7,8 +7,10 @@ import edu.brown.cs.student.main.creator.CreatorFromRow;
 import edu.brown.cs.student.main.creator.ListStringFromRow;
 import edu.brown.cs.student.main.csv.parse.CsvParser;
 import edu.brown.cs.student.main.csv.parse.FactoryFailureException;
+import edu.brown.cs.student.main.csv.search.CsvIndex;
 import edu.brown.cs.student.main.csv.search.CsvSearcher;
 import edu.brown.cs.student.main.csv.search.SearchException;
+import edu.brown.cs.student.main.csv.search.ValueMatcher;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
@@ -483,4 +485,68 @@ public class TestCsvSearcher {
         List.of(List.of("A", "B", "C", "D", "E"), List.of("A", "G", "H", "I", "E"));
     assertEquals(rowsFound, searchData.search(true, "A", "Letter"));
   }
+
+  /**
+   * Given the rows of a census CSV, and a CsvSearcher with and without a CsvIndex, the indexed
+   * searcher finds the same rows as the scan for searches in every column and in one column, by
+   * column name and by index.
+   *
+   * @throws IOException if file reading fails
+   * @throws FactoryFailureException if row creation fails
+   * @throws SearchException if row searching fails
+   */
+  @Test
+  public void indexedSearchMatchesScan()
+      throws IOException, FactoryFailureException, SearchException {
+    FileReader fileRead = new FileReader("data/census/income_by_race_edited.csv");
+    CsvParser<List<String>> parseData = new CsvParser<>(fileRead, new ListStringFromRow());
+    parseData.parseCsv();
+    List<List<String>> rows = parseData.getStoreRows();
+    CsvSearcher scan = new CsvSearcher(rows);
+    CsvSearcher indexed = new CsvSearcher(rows, new CsvIndex(rows));
+
+    for (String value : List.of("Providence County, RI", "Total", "2020", "missing")) {
+      assertEquals(scan.search(true, value, "*"), indexed.search(true, value, "*"));
+      assertEquals(scan.search(false, value, "*"), indexed.search(false, value, "*"));
+      assertEquals(scan.search(true, value, "1"), indexed.search(true, value, "1"));
+      assertEquals(scan.search(true, value, "Geography"), indexed.search(true, value, "Geography"));
+    }
+  }
+
+  /**
+   * Given the rows of a census CSV, and a CsvSearcher with and without a CsvIndex, the indexed
+   * searcher finds the same rows as the scan for prefix and range searches, in every column and in
+   * one column.
+   *
+   * @throws IOException if file reading fails
+   * @throws FactoryFailureException if row creation fails
+   * @throws SearchException if row searching fails
+   */
+  @Test
+  public void indexedPrefixAndRangeMatchScan()
+      throws IOException, FactoryFailureException, SearchException {
+    FileReader fileRead = new FileReader("data/census/income_by_race_edited.csv");
+    CsvParser<List<String>> parseData = new CsvParser<>(fileRead, new ListStringFromRow());
+    parseData.parseCsv();
+    List<List<String>> rows = parseData.getStoreRows();
+    CsvSearcher scan = new CsvSearcher(rows);
+    CsvSearcher indexed = new CsvSearcher(rows, new CsvIndex(rows));
+
+    List<ValueMatcher> matchers =
+        List.of(
+            ValueMatcher.prefix("Providence"),
+            ValueMatcher.prefix(""),
+            ValueMatcher.range("2018", "2020"),
+            ValueMatcher.range("B", "A"));
+    for (ValueMatcher matcher : matchers) {
+      assertEquals(scan.search(true, matcher, "*"), indexed.search(true, matcher, "*"));
+      assertEquals(scan.search(false, matcher, "*"), indexed.search(false, matcher, "*"));
+      assertEquals(scan.search(true, matcher, "Geography"),
+          indexed.search(true, matcher, "Geography"));
+    }
+    assertEquals(
+        scan.search(true, "Providence County, RI", "Geography"),
+        indexed.search(true, ValueMatcher.range("Providence County, RI", "Providence County, RJ"),
+            "Geography"));
+  }
 }
@@ -0,0 +1,97 @@
+package edu.brown.cs.student.csv.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.brown.cs.student.main.creator.ListStringFromRow;
+import edu.brown.cs.student.main.csv.parse.CsvParser;
+import edu.brown.cs.student.main.csv.parse.FactoryFailureException;
+import edu.brown.cs.student.main.csv.search.CsvSearcher;
+import edu.brown.cs.student.main.csv.search.SearchException;
+import edu.brown.cs.student.main.csv.search.StreamingCsvSearcher;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This is a testing class that tests the StreamingCsvSearcher class, which searches CSV rows as a
+ * CsvParser reads them. Its rows found and error messages are checked against CsvSearcher's.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TestStreamingCsvSearcher {
+
+  /**
+   * A helper method that searches a CSV file with CsvSearcher.
+   *
+   * @return the rows found, or the message of the SearchException thrown
+   */
+  private static Object searchStored(
+      String filepath, boolean hasHeaders, String searchValue, String colId)
+      throws IOException, FactoryFailureException {
+    CsvParser<List<String>> parser =
+        new CsvParser<>(new FileReader(filepath), new ListStringFromRow());
+    parser.parseCsv();
+    try {
+      return new CsvSearcher(parser.getStoreRows()).search(hasHeaders, searchValue, colId);
+    } catch (SearchException se) {
+      return se.getMessage();
+    }
+  }
+
+  /**
+   * A helper method that searches a CSV file with a StreamingCsvSearcher.
+   *
+   * @return the rows found, or the message of the SearchException thrown
+   */
+  private static Object searchStreaming(
+      String filepath, boolean hasHeaders, String searchValue, String colId)
+      throws IOException, FactoryFailureException {
+    CsvParser<List<String>> parser =
+        new CsvParser<>(new FileReader(filepath), new ListStringFromRow());
+    List<List<String>> rowsFound = new ArrayList<>();
+    StreamingCsvSearcher searcher =
+        new StreamingCsvSearcher(hasHeaders, searchValue, colId, rowsFound::add);
+    try {
+      parser.parseCsv(searcher);
+    } catch (SearchException se) {
+      return se.getMessage();
+    }
+    assertEquals(rowsFound.size(), searcher.getMatchCount());
+    return rowsFound;
+  }
+
+  /**
+   * Tests that searches of every kind, including ones that fail, find the same rows or throw the
+   * same messages as CsvSearcher.
+   *
+   * @throws IOException if file reading fails
+   * @throws FactoryFailureException if row creation fails
+   */
+  @Test
+  public void testMatchesCsvSearcher() throws IOException, FactoryFailureException {
+    List<String> files =
+        List.of(
+            "data/census/income_by_race_edited.csv",
+            "data/custom/people_rows_different_lengths.csv",
+            "data/custom/all_header_same_name.csv",
+            "data/custom/empty.csv",
+            "data/stars/ten-star.csv");
+    List<String> searchValues = List.of("Total", "RI", "A", "Sol", "USA", "missing");
+    List<String> colIds = List.of("*", "0", "1", "4", "5", "-1", "99", "Letter", "State", "nope");
+    for (String file : files) {
+      for (boolean hasHeaders : new boolean[] {true, false}) {
+        for (String searchValue : searchValues) {
+          for (String colId : colIds) {
+            assertEquals(
+                searchStored(file, hasHeaders, searchValue, colId),
+                searchStreaming(file, hasHeaders, searchValue, colId),
+                file + " " + hasHeaders + " " + searchValue + " " + colId);
+          }
+        }
+      }
+    }
+  }
+}
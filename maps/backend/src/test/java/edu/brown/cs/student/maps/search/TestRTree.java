@@ -0,0 +1,141 @@
+package edu.brown.cs.student.maps.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.brown.cs.student.main.maps.search.RTree;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This is a testing class that tests the RTree class, a packed R-tree bulk loaded with STR. Its
+ * search method is compared against a brute force scan over the same boxes.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TestRTree {
+
+  // Number of trials for fuzz testing
+  final static int TRIAL_LENGTH = 100;
+
+  /**
+   * Tests that a tree with no items finds nothing.
+   */
+  @Test
+  public void testEmptyTree() {
+    RTree tree = new RTree(new double[0], new double[0], new double[0], new double[0]);
+    assertEquals(0, tree.size());
+    assertArrayEquals(new int[0], tree.search(-180, -90, 180, 90));
+  }
+
+  /**
+   * Tests that a tree with a single item finds it only when the query box touches it.
+   */
+  @Test
+  public void testSingleItem() {
+    RTree tree = new RTree(new double[] {1}, new double[] {1}, new double[] {2}, new double[] {2});
+    assertArrayEquals(new int[] {0}, tree.search(0, 0, 1, 1));
+    assertArrayEquals(new int[] {0}, tree.search(1.5, 1.5, 1.6, 1.6));
+    assertArrayEquals(new int[0], tree.search(3, 3, 4, 4));
+  }
+
+  /**
+   * Tests that items with an empty box are left out of the tree and never found.
+   */
+  @Test
+  public void testEmptyBoxesSkipped() {
+    double inf = Double.POSITIVE_INFINITY;
+    RTree tree =
+        new RTree(
+            new double[] {0, inf, 5}, new double[] {0, inf, 5},
+            new double[] {1, -inf, 6}, new double[] {1, -inf, 6});
+    assertEquals(2, tree.size());
+    assertArrayEquals(new int[] {0, 2}, tree.search(-10, -10, 10, 10));
+  }
+
+  /**
+   * Fuzz tests the tree against a brute force scan, with enough items for several levels of nodes.
+   */
+  @Test
+  public void testSearchMatchesLinearScan() {
+    Random random = new Random(32);
+    int size = 5000;
+    double[] minX = new double[size];
+    double[] minY = new double[size];
+    double[] maxX = new double[size];
+    double[] maxY = new double[size];
+    for (int i = 0; i < size; i++) {
+      minX[i] = -180 + 360 * random.nextDouble();
+      minY[i] = -90 + 180 * random.nextDouble();
+      maxX[i] = minX[i] + random.nextDouble();
+      maxY[i] = minY[i] + random.nextDouble();
+    }
+    RTree tree = new RTree(minX, minY, maxX, maxY);
+    assertEquals(size, tree.size());
+
+    for (int trial = 0; trial < TRIAL_LENGTH; trial++) {
+      double queryMinX = -180 + 360 * random.nextDouble();
+      double queryMinY = -90 + 180 * random.nextDouble();
+      double queryMaxX = queryMinX + 40 * random.nextDouble();
+      double queryMaxY = queryMinY + 40 * random.nextDouble();
+      int[] expected =
+          IntStream.range(0, size)
+              .filter(
+                  i ->
+                      minX[i] <= queryMaxX
+                          && minY[i] <= queryMaxY
+                          && maxX[i] >= queryMinX
+                          && maxY[i] >= queryMinY)
+              .toArray();
+      assertArrayEquals(expected, tree.search(queryMinX, queryMinY, queryMaxX, queryMaxY));
+    }
+  }
+
+  /**
+   * Tests that a tree read back from what it wrote finds the same items, and that reading leaves
+   * the buffer just past the tree.
+   *
+   * @throws IOException if the tree cannot be written
+   */
+  @Test
+  public void testWriteAndRead() throws IOException {
+    Random random = new Random(9);
+    int size = 1000;
+    double[] minX = new double[size];
+    double[] minY = new double[size];
+    double[] maxX = new double[size];
+    double[] maxY = new double[size];
+    for (int i = 0; i < size; i++) {
+      minX[i] = 100 * random.nextDouble();
+      minY[i] = 100 * random.nextDouble();
+      maxX[i] = minX[i] + random.nextDouble();
+      maxY[i] = minY[i] + random.nextDouble();
+    }
+    RTree tree = new RTree(minX, minY, maxX, maxY);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(7);
+      tree.write(out);
+      out.writeInt(8);
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+    assertEquals(7, buffer.getInt());
+    RTree read = RTree.read(buffer);
+    assertEquals(8, buffer.getInt());
+    assertEquals(size, read.size());
+    for (int trial = 0; trial < TRIAL_LENGTH; trial++) {
+      double queryMinX = 100 * random.nextDouble();
+      double queryMinY = 100 * random.nextDouble();
+      assertArrayEquals(
+          tree.search(queryMinX, queryMinY, queryMinX + 10, queryMinY + 10),
+          read.search(queryMinX, queryMinY, queryMinX + 10, queryMinY + 10));
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package edu.brown.cs.student.maps.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.brown.cs.student.main.maps.search.TermIndex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This is a testing class that tests the TermIndex class, an inverted index from words to the
+ * documents containing them, with AND and OR queries.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TestTermIndex {
+
+  final static List<String> DOCUMENTS =
+      Arrays.asList(
+          "Good schools, near the river.",
+          null,
+          "Old houses near the RAILROAD; river floods.",
+          "New houses and good schools");
+
+  /**
+   * Tests that text is split on non-word characters, lowercased, and deduplicated.
+   */
+  @Test
+  public void testTokenize() {
+    assertEquals(
+        List.of("good", "schools", "near", "1929"),
+        TermIndex.tokenize("Good schools, near... good 1929!"));
+    assertEquals(List.of(), TermIndex.tokenize(null));
+    assertEquals(List.of(), TermIndex.tokenize(" ,.; "));
+  }
+
+  /**
+   * Tests single term lookups, ignoring case, including terms that are in no document.
+   */
+  @Test
+  public void testSearch() {
+    TermIndex index = new TermIndex(DOCUMENTS);
+
+    assertArrayEquals(new int[] {0, 2}, index.search("river"));
+    assertArrayEquals(new int[] {2}, index.search("Railroad"));
+    assertArrayEquals(new int[0], index.search("rail"));
+  }
+
+  /**
+   * Tests AND queries, which need every word to be in the document.
+   */
+  @Test
+  public void testSearchAll() {
+    TermIndex index = new TermIndex(DOCUMENTS);
+
+    assertArrayEquals(new int[] {0, 3}, index.searchAll("good schools"));
+    assertArrayEquals(new int[] {2}, index.searchAll("houses_river"));
+    assertArrayEquals(new int[0], index.searchAll("good railroad"));
+    assertArrayEquals(new int[0], index.searchAll("good missing"));
+    assertArrayEquals(new int[0], index.searchAll(""));
+  }
+
+  /**
+   * Tests OR queries, which need any word to be in the document.
+   */
+  @Test
+  public void testSearchAny() {
+    TermIndex index = new TermIndex(DOCUMENTS);
+
+    assertArrayEquals(new int[] {0, 2, 3}, index.searchAny("river new"));
+    assertArrayEquals(new int[] {2}, index.searchAny("railroad missing"));
+    assertArrayEquals(new int[0], index.searchAny(""));
+  }
+
+  /**
+   * Fuzz tests AND and OR queries against a brute force scan over generated documents.
+   */
+  @Test
+  public void testSearchMatchesLinearScan() {
+    String[] words = {"a", "b", "c", "d", "e", "f", "g", "h"};
+    Random random = new Random(32);
+    List<String> documents = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      StringBuilder text = new StringBuilder();
+      for (int w = 0; w < 3; w++) {
+        text.append(words[random.nextInt(words.length)]).append(' ');
+      }
+      documents.add(text.toString());
+    }
+    TermIndex index = new TermIndex(documents);
+
+    for (int trial = 0; trial < 100; trial++) {
+      String first = words[random.nextInt(words.length)];
+      String second = words[random.nextInt(words.length)];
+      List<Integer> all = new ArrayList<>();
+      List<Integer> any = new ArrayList<>();
+      for (int id = 0; id < documents.size(); id++) {
+        List<String> terms = TermIndex.tokenize(documents.get(id));
+        if (terms.contains(first) && terms.contains(second)) {
+          all.add(id);
+        }
+        if (terms.contains(first) || terms.contains(second)) {
+          any.add(id);
+        }
+      }
+      assertArrayEquals(
+          all.stream().mapToInt(Integer::intValue).toArray(),
+          index.searchAll(first + " " + second));
+      assertArrayEquals(
+          any.stream().mapToInt(Integer::intValue).toArray(),
+          index.searchAny(first + " " + second));
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package edu.brown.cs.student.maps.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import edu.brown.cs.student.main.maps.search.TrigramIndex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This is a testing class that tests the TrigramIndex class, a substring index whose results are
+ * compared against calling contains on every document.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TestTrigramIndex {
+
+  // Number of trials for fuzz testing
+  final static int TRIAL_LENGTH = 200;
+
+  final static List<String> DOCUMENTS =
+      Arrays.asList("Good schools, near the river.", null, "Railroad; RIVER floods", "");
+
+  /**
+   * Tests substring searches that ignore case and cross word boundaries.
+   */
+  @Test
+  public void testSearch() {
+    TrigramIndex index = new TrigramIndex(DOCUMENTS);
+
+    assertArrayEquals(new int[] {0, 2}, index.search("River"));
+    assertArrayEquals(new int[] {0}, index.search("s, near t"));
+    assertArrayEquals(new int[] {2}, index.search("ailr"));
+    assertArrayEquals(new int[0], index.search("rivers"));
+  }
+
+  /**
+   * Tests queries shorter than a trigram, including the empty query, which matches every document
+   * with text.
+   */
+  @Test
+  public void testShortQueries() {
+    TrigramIndex index = new TrigramIndex(DOCUMENTS);
+
+    assertArrayEquals(new int[] {0, 2, 3}, index.search(""));
+    assertArrayEquals(new int[] {0, 2}, index.search("r"));
+    assertArrayEquals(new int[] {2}, index.search("Ra"));
+  }
+
+  /**
+   * Fuzz tests the index against contains on every document, over a small alphabet so that
+   * candidates often fail the final check.
+   */
+  @Test
+  public void testSearchMatchesLinearScan() {
+    Random random = new Random(32);
+    List<String> documents = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      documents.add(randomText(random, 20 + random.nextInt(40)));
+    }
+    TrigramIndex index = new TrigramIndex(documents);
+
+    for (int trial = 0; trial < TRIAL_LENGTH; trial++) {
+      String query = randomText(random, random.nextInt(7));
+      int[] expected =
+          IntStream.range(0, documents.size())
+              .filter(i -> documents.get(i).toLowerCase().contains(query.toLowerCase()))
+              .toArray();
+      assertArrayEquals(expected, index.search(query));
+    }
+  }
+
+  /**
+   * A helper method that makes random text over a small mixed-case alphabet.
+   *
+   * @param random the source of randomness
+   * @param length the length of the text
+   * @return the random text
+   */
+  private static String randomText(Random random, int length) {
+    String alphabet = "abcABC d";
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,119 @@
+package edu.brown.cs.student.maptypes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.maptypes.Feature;
+import edu.brown.cs.student.main.maptypes.FeatureSnapshot;
+import edu.brown.cs.student.main.maptypes.GeometryAdapter;
+import edu.brown.cs.student.main.server.FeatureStore;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class tests the FeatureSnapshot class, which writes parsed features to a binary file and
+ * maps them back in on a later start.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TestFeatureSnapshot {
+
+  final static String MOCK_PATH = "data/geojson/mocked.geojson";
+
+  final static double[] MIN_LAT = {1, Double.POSITIVE_INFINITY};
+  final static double[] MAX_LAT = {2, Double.NEGATIVE_INFINITY};
+  final static double[] MIN_LNG = {3, Double.POSITIVE_INFINITY};
+  final static double[] MAX_LNG = {4, Double.NEGATIVE_INFINITY};
+
+  /**
+   * Tests that features and envelopes read back from a snapshot equal the ones written.
+   */
+  @Test
+  public void testRoundTrip(@TempDir Path directory) throws IOException {
+    List<Feature> features = new FeatureStore(MOCK_PATH).getFeatures();
+    Path path = directory.resolve("mocked.snapshot");
+    FeatureSnapshot.write(path, 100, 200, features, MIN_LAT, MAX_LAT, MIN_LNG, MAX_LNG);
+
+    FeatureSnapshot snapshot = FeatureSnapshot.open(path, 100, 200);
+    JsonAdapter<List<Feature>> adapter =
+        new Moshi.Builder()
+            .add(new GeometryAdapter())
+            .build()
+            .adapter(Types.newParameterizedType(List.class, Feature.class));
+    assertEquals(adapter.toJson(features), adapter.toJson(snapshot.getFeatures()));
+    assertArrayEquals(MIN_LAT, toArray(snapshot.getMinLat()));
+    assertArrayEquals(MAX_LAT, toArray(snapshot.getMaxLat()));
+    assertArrayEquals(MIN_LNG, toArray(snapshot.getMinLng()));
+    assertArrayEquals(MAX_LNG, toArray(snapshot.getMaxLng()));
+  }
+
+  /**
+   * Tests that the RTree is served from the snapshot, and that features and their properties are
+   * decoded one at a time, as queries ask for them.
+   */
+  @Test
+  public void testMappedQueries(@TempDir Path directory) throws IOException {
+    List<Feature> features = new FeatureStore(MOCK_PATH).getFeatures();
+    Path path = directory.resolve("mocked.snapshot");
+    FeatureSnapshot.write(path, 100, 200, features, MIN_LAT, MAX_LAT, MIN_LNG, MAX_LNG);
+
+    FeatureSnapshot snapshot = FeatureSnapshot.open(path, 100, 200);
+    assertEquals(2, snapshot.size());
+    assertEquals(1, snapshot.getSpatialIndex().size());
+    assertArrayEquals(new int[] {0}, snapshot.getSpatialIndex().search(3.5, 1.5, 3.5, 1.5));
+    assertArrayEquals(new int[0], snapshot.getSpatialIndex().search(5, 5, 6, 6));
+    assertEquals(0, snapshot.getEmptyGeometryIds().limit());
+
+    assertEquals("Birmingham", snapshot.getFeature(0).getProperties().getCity());
+    assertEquals(
+        features.get(1).getProperties().getArea_description_data(),
+        snapshot.getProperties(1).getArea_description_data());
+    assertEquals(
+        features.get(1).getGeometry().getPointCount(),
+        snapshot.getFeature(1).getGeometry().getPointCount());
+    assertThrows(IndexOutOfBoundsException.class, () -> snapshot.getFeature(2));
+    assertThrows(UnsupportedOperationException.class, () -> snapshot.getFeatures().remove(0));
+  }
+
+  /**
+   * Tests that a snapshot of a different source, a missing file, and a file that is not a
+   * snapshot are all rejected.
+   */
+  @Test
+  public void testStaleOrMissingSnapshot(@TempDir Path directory) throws IOException {
+    List<Feature> features = new FeatureStore(MOCK_PATH).getFeatures();
+    Path path = directory.resolve("mocked.snapshot");
+    FeatureSnapshot.write(path, 100, 200, features, MIN_LAT, MAX_LAT, MIN_LNG, MAX_LNG);
+
+    assertNull(FeatureSnapshot.open(path, 101, 200));
+    assertNull(FeatureSnapshot.open(path, 100, 201));
+    assertNull(FeatureSnapshot.open(directory.resolve("missing.snapshot"), 100, 200));
+
+    Path other = directory.resolve("other.snapshot");
+    Files.writeString(other, "this file is not a feature snapshot at all");
+    assertNull(FeatureSnapshot.open(other, 100, 200));
+  }
+
+  /**
+   * Helper that copies a view of the snapshot into an array.
+   *
+   * @param view the view
+   * @return the values of the view
+   */
+  private static double[] toArray(DoubleBuffer view) {
+    double[] values = new double[view.limit()];
+    view.get(0, values);
+    return values;
+  }
+}
@@ -0,0 +1,70 @@
+package edu.brown.cs.student.maptypes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import edu.brown.cs.student.main.maptypes.Feature;
+import edu.brown.cs.student.main.maptypes.GeometryAdapter;
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the GeometryAdapter class, which packs GEOJSON MultiPolygon coordinates into
+ * flat arrays when parsing and writes them back out as nested coordinates.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TestGeometryAdapter {
+
+  final static String GEOMETRY =
+      "{\"type\":\"MultiPolygon\",\"coordinates\":"
+          + "[[[[-86.1,33.1],[-86.2,33.2],[-86.1,33.1]],[[-86.15,33.15],[-86.16,33.16]]],"
+          + "[[[-87.0,34.0],[-87.5,34.5],[-87.0,34.0]]]]}";
+
+  private final JsonAdapter<Feature.Geometry> adapter =
+      new Moshi.Builder().add(new GeometryAdapter()).build().adapter(Feature.Geometry.class);
+
+  /**
+   * Tests that points, rings, and polygons are packed in order.
+   */
+  @Test
+  public void testFromJson() throws IOException {
+    Feature.Geometry geometry = adapter.fromJson(GEOMETRY);
+
+    assertEquals("MultiPolygon", geometry.getType());
+    assertEquals(8, geometry.getPointCount());
+    assertEquals(2, geometry.getPolygonCount());
+    assertEquals(-86.2, geometry.getLng(1));
+    assertEquals(33.2, geometry.getLat(1));
+    assertEquals(-87.5, geometry.getLng(6));
+    assertEquals(
+        List.of(List.of(-86.15, 33.15), List.of(-86.16, 33.16)),
+        geometry.getCoordinates().get(0).get(1));
+    assertEquals(1, geometry.getCoordinates().get(1).size());
+  }
+
+  /**
+   * Tests that writing a packed geometry gives back the original GEOJSON.
+   */
+  @Test
+  public void testRoundTrip() throws IOException {
+    assertEquals(GEOMETRY, adapter.toJson(adapter.fromJson(GEOMETRY)));
+  }
+
+  /**
+   * Tests that null geometries and empty coordinates are handled.
+   */
+  @Test
+  public void testEmptyGeometry() throws IOException {
+    assertNull(adapter.fromJson("null"));
+
+    Feature.Geometry geometry = adapter.fromJson("{\"type\":\"MultiPolygon\",\"coordinates\":[]}");
+    assertEquals(0, geometry.getPointCount());
+    assertEquals(0, geometry.getPolygonCount());
+    assertEquals(List.of(), geometry.getCoordinates());
+  }
+}
@@ -0,0 +1,201 @@
+package edu.brown.cs.student.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import com.google.common.cache.CacheBuilder;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.server.BroadbandBatchHandler;
+import edu.brown.cs.student.main.server.BroadbandHandler;
+import edu.brown.cs.student.main.sources.AcsCensusSource;
+import edu.brown.cs.student.main.sources.mocks.StaleMockCensusSource;
+import edu.brown.cs.student.sources.StubCensusServer;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import spark.Spark;
+
+/**
+ * Integration tests for the /broadbandbatch endpoint, which send real web requests to the server as
+ * it is running, with census data from a mock source or a local stub of the census API.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TestBroadbandBatchHandler {
+
+  private JsonAdapter<Map<String, Object>> adapter;
+
+  @BeforeEach
+  public void setup() {
+    Moshi moshi = new Moshi.Builder().build();
+    adapter = moshi.adapter(Types.newParameterizedType(Map.class, String.class, Object.class));
+  }
+
+  @AfterEach
+  public void tearDown() {
+    Spark.unmap("/broadband");
+    Spark.unmap("/broadbandbatch");
+    Spark.awaitStop();
+  }
+
+  /**
+   * Helper to make a request to a specific API endpoint/params and read its response.
+   *
+   * @param apiCall the call string, including endpoint and params
+   * @return the body of the response
+   * @throws IOException if the connection fails for some reason
+   */
+  private Map<String, Object> request(String apiCall) throws IOException {
+    URL requestURL = new URL("http://localhost:" + Spark.port() + "/" + apiCall);
+    HttpURLConnection clientConnection = (HttpURLConnection) requestURL.openConnection();
+    clientConnection.connect();
+    assertEquals(200, clientConnection.getResponseCode());
+    Map<String, Object> body =
+        adapter.fromJson(new Buffer().readFrom(clientConnection.getInputStream()));
+    clientConnection.disconnect();
+    return body;
+  }
+
+  /**
+   * Test case to verify that a batch answers each county in order, looks up each state once, looks
+   * up a county missing from its state on its own, and shares its cache with /broadband.
+   *
+   * @throws IOException if an I/O error occurs while making the HTTP requests
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testBatchGroupsLookupsByState() throws IOException {
+    try (StubCensusServer stub = new StubCensusServer()) {
+      BroadbandHandler handler =
+          new BroadbandHandler(
+              new AcsCensusSource(stub.getUri()),
+              CacheBuilder.newBuilder().maximumSize(1000).expireAfterWrite(10, TimeUnit.MINUTES));
+      Spark.get("/broadband", handler);
+      Spark.get("/broadbandbatch", new BroadbandBatchHandler(handler));
+      Spark.awaitInitialization();
+
+      Map<String, Object> body =
+          request(
+              "broadbandbatch?counties=North%20Carolina,Durham;North%20Carolina,Wake;"
+                  + "Rhode%20Island,Kent;North%20Carolina,Dur");
+      assertEquals("success", body.get("result"));
+      List<Map<String, Object>> responses = (List<Map<String, Object>>) body.get("responses");
+      assertEquals(4, responses.size());
+      assertEquals("Durham", responses.get(0).get("county"));
+      assertEquals(90.0, responses.get(0).get("broadband_access_percent"));
+      assertEquals(94.1, responses.get(1).get("broadband_access_percent"));
+      assertEquals("Rhode Island", responses.get(2).get("state"));
+      assertEquals(89.5, responses.get(2).get("broadband_access_percent"));
+      assertEquals("error_bad_request", responses.get(3).get("result"));
+      assertEquals(
+          "County Dur not found in state North Carolina.", responses.get(3).get("error_message"));
+      assertEquals(2, stub.countQueries("S2802_C03_022E&for=county:*"));
+      assertEquals(1, stub.countQueries("for=state:*"));
+
+      // Every county of both states is now cached for /broadband
+      assertEquals(6, handler.getCache().size());
+      Map<String, Object> orange = request("broadband?state=North%20Carolina&county=Orange");
+      assertEquals(91.9, orange.get("broadband_access_percent"));
+      assertEquals(2, stub.countQueries("S2802_C03_022E"));
+    }
+  }
+
+  /**
+   * Test case to verify that a batch works without a cache and with a source that can only look up
+   * one county at a time.
+   *
+   * @throws IOException if an I/O error occurs while making the HTTP requests
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testBatchWithoutCache() throws IOException {
+    BroadbandHandler handler = new BroadbandHandler(new StaleMockCensusSource(), null);
+    Spark.get("/broadbandbatch", new BroadbandBatchHandler(handler));
+    Spark.awaitInitialization();
+
+    Map<String, Object> body =
+        request("broadbandbatch?counties=North%20Carolina,Durham;%20North%20Carolina%20,%20Pitt");
+    assertEquals("success", body.get("result"));
+    List<Map<String, Object>> responses = (List<Map<String, Object>>) body.get("responses");
+    assertEquals(90.0, responses.get(0).get("broadband_access_percent"));
+    assertEquals("Pitt", responses.get(1).get("county"));
+    assertEquals(75.5, responses.get(1).get("broadband_access_percent"));
+    assertEquals(0, handler.getCache().size());
+  }
+
+  /**
+   * Test case to verify that batches are not looked up on the executor that refreshes cache
+   * entries, so a batch is answered while every refresh thread is busy.
+   *
+   * @throws Exception if an error occurs while making the HTTP requests
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testBatchDoesNotUseRefreshExecutor() throws Exception {
+    ExecutorService refresher = Executors.newSingleThreadExecutor();
+    CountDownLatch release = new CountDownLatch(1);
+    refresher.submit(
+        () -> {
+          release.await();
+          return null;
+        });
+    BroadbandHandler handler =
+        new BroadbandHandler(
+            new StaleMockCensusSource(),
+            BroadbandHandler.staleWhileRevalidate(
+                1000, Duration.ofMinutes(10), Duration.ofHours(1)),
+            refresher);
+    Spark.get("/broadbandbatch", new BroadbandBatchHandler(handler));
+    Spark.awaitInitialization();
+
+    String batch = "broadbandbatch?counties=North%20Carolina,Durham;North%20Carolina,Pitt";
+    try {
+      Map<String, Object> body =
+          assertTimeoutPreemptively(Duration.ofSeconds(10), () -> request(batch));
+      List<Map<String, Object>> responses = (List<Map<String, Object>>) body.get("responses");
+      assertEquals(90.0, responses.get(0).get("broadband_access_percent"));
+      assertEquals(75.5, responses.get(1).get("broadband_access_percent"));
+      assertEquals(2, handler.getCache().size());
+    } finally {
+      release.countDown();
+      refresher.shutdown();
+    }
+  }
+
+  /**
+   * Test case to verify that a batch without counties, or with a malformed pair, fails.
+   *
+   * @throws IOException if an I/O error occurs while making the HTTP requests
+   */
+  @Test
+  public void testBatchBadRequests() throws IOException {
+    BroadbandHandler handler = new BroadbandHandler(new StaleMockCensusSource(), null);
+    Spark.get("/broadbandbatch", new BroadbandBatchHandler(handler));
+    Spark.awaitInitialization();
+
+    Map<String, Object> missing = request("broadbandbatch");
+    assertEquals("error_bad_request", missing.get("result"));
+    assertEquals("Required parameter missing: counties", missing.get("error_message"));
+
+    Map<String, Object> malformed = request("broadbandbatch?counties=North%20Carolina,Durham;Pitt");
+    assertEquals("error_bad_request", malformed.get("result"));
+    assertEquals("Expected state,county but got: Pitt", malformed.get("error_message"));
+
+    Map<String, Object> empty = request("broadbandbatch?counties=;");
+    assertEquals("No counties given", empty.get("error_message"));
+  }
+}
@@ -1,25 +1,38 @@
 package edu.brown.cs.student.server;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.*;
 
+import com.google.common.base.Ticker;
 import com.google.common.cache.CacheBuilder;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
 import edu.brown.cs.student.main.server.BroadbandHandler;
+import edu.brown.cs.student.main.sources.AcsCensusSource;
 import edu.brown.cs.student.main.sources.CensusData;
 import edu.brown.cs.student.main.sources.CensusSource;
+import edu.brown.cs.student.main.sources.DataSourceException;
 import edu.brown.cs.student.main.sources.mocks.EchoMockCensusSource;
 import edu.brown.cs.student.main.sources.mocks.StaleMockCensusSource;
+import edu.brown.cs.student.sources.StubCensusServer;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import kotlin.Pair;
 import okio.Buffer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -388,6 +401,212 @@ public class TestBroadbandHandler {
     connection.disconnect();
   }
 
+  /**
+   * Test case to verify that a handler with a cache and a source that can look up whole states
+   * caches every county of a state on the first miss, so a request for a sibling county does not
+   * reach the source, and that a county the state lookup did not include is still looked up on its
+   * own, without looking up the whole state again.
+   *
+   * @throws IOException if an I/O error occurs while making the HTTP requests
+   */
+  @Test
+  public void testBroadbandStatePrefetch() throws IOException {
+    try (StubCensusServer stub = new StubCensusServer()) {
+      BroadbandHandler handler =
+          new BroadbandHandler(
+              new AcsCensusSource(stub.getUri()),
+              CacheBuilder.newBuilder().maximumSize(1000).expireAfterWrite(10, TimeUnit.MINUTES));
+      Spark.get("/broadband", handler);
+      Spark.awaitInitialization();
+
+      HttpURLConnection connection1 = tryRequest("broadband?state=North%20Carolina&county=Durham");
+      assertEquals(200, connection1.getResponseCode());
+      Map<String, Object> body1 =
+          adapter.fromJson(new Buffer().readFrom(connection1.getInputStream()));
+      assertEquals("success", body1.get("result"));
+      assertEquals(90.0, body1.get("broadband_access_percent"));
+      assertEquals(3, handler.getCache().size());
+      connection1.disconnect();
+
+      HttpURLConnection connection2 = tryRequest("broadband?state=North%20Carolina&county=Wake");
+      Map<String, Object> body2 =
+          adapter.fromJson(new Buffer().readFrom(connection2.getInputStream()));
+      assertEquals("success", body2.get("result"));
+      assertEquals("Wake", body2.get("county"));
+      assertEquals(94.1, body2.get("broadband_access_percent"));
+      assertEquals(1, stub.countQueries("S2802_C03_022E"));
+      connection2.disconnect();
+
+      HttpURLConnection connection3 = tryRequest("broadband?state=North%20Carolina&county=Dur");
+      Map<String, Object> body3 =
+          adapter.fromJson(new Buffer().readFrom(connection3.getInputStream()));
+      assertEquals("error_bad_request", body3.get("result"));
+      assertEquals("County Dur not found in state North Carolina.", body3.get("error_message"));
+      connection3.disconnect();
+
+      // A state is only looked up as a whole once, so other misses in it are looked up alone
+      HttpURLConnection connection4 =
+          tryRequest("broadband?state=North%20Carolina&county=Durham%20County");
+      Map<String, Object> body4 =
+          adapter.fromJson(new Buffer().readFrom(connection4.getInputStream()));
+      assertEquals("error_bad_request", body4.get("result"));
+      assertEquals(1, stub.countQueries("S2802_C03_022E&for=county:*"));
+      connection4.disconnect();
+    }
+  }
+
+  /**
+   * Test case to verify the stale-while-revalidate cache. A response due for a refresh is served
+   * without waiting while the source is looked up again in the background, a failed refresh keeps
+   * the old response, and a response past the max staleness is looked up before it is served.
+   *
+   * @throws Exception if an error occurs while making the HTTP requests or refreshing
+   */
+  @Test
+  public void testBroadbandStaleWhileRevalidate() throws Exception {
+    AtomicLong nanos = new AtomicLong();
+    Ticker ticker =
+        new Ticker() {
+          @Override
+          public long read() {
+            return nanos.get();
+          }
+        };
+    AtomicReference<Double> percent = new AtomicReference<>(80.0);
+    AtomicReference<CountDownLatch> gate = new AtomicReference<>(new CountDownLatch(0));
+    CensusSource source =
+        (state, county) -> {
+          try {
+            gate.get().await();
+          } catch (InterruptedException e) {
+            throw new DataSourceException("interrupted");
+          }
+          if (percent.get() == null) {
+            throw new DataSourceException("source is down");
+          }
+          return new CensusData(percent.get());
+        };
+    ExecutorService refresher = Executors.newSingleThreadExecutor();
+    BroadbandHandler handler =
+        new BroadbandHandler(
+            source,
+            BroadbandHandler.staleWhileRevalidate(1000, Duration.ofMinutes(10), Duration.ofHours(1))
+                .ticker(ticker),
+            refresher);
+    Spark.get("/broadband", handler);
+    Spark.awaitInitialization();
+    String durham = "broadband?state=North%20Carolina&county=Durham";
+    assertEquals(80.0, requestPercent(durham));
+
+    // Due for a refresh, served stale while the refresh waits on the source
+    CountDownLatch blocked = new CountDownLatch(1);
+    gate.set(blocked);
+    percent.set(85.0);
+    nanos.addAndGet(Duration.ofMinutes(11).toNanos());
+    assertEquals(80.0, requestPercent(durham));
+    blocked.countDown();
+    refresher.submit(() -> {}).get();
+    assertEquals(85.0, requestPercent(durham));
+
+    // A failed refresh keeps the old response
+    percent.set(null);
+    nanos.addAndGet(Duration.ofMinutes(11).toNanos());
+    assertEquals(85.0, requestPercent(durham));
+    refresher.submit(() -> {}).get();
+    assertEquals(85.0, requestPercent(durham));
+
+    // Past the max staleness, the request waits for the source
+    percent.set(90.0);
+    nanos.addAndGet(Duration.ofHours(2).toNanos());
+    assertEquals(90.0, requestPercent(durham));
+    refresher.shutdown();
+  }
+
+  /**
+   * Test case to verify that a warmed cache serves a value looked up before with the date_time of
+   * that lookup, without asking the source, that a value looked up too long ago is not warmed, and
+   * that the refresh of a warmed entry asks the source to look up again rather than answer from
+   * values it keeps.
+   *
+   * @throws Exception if an error occurs while making the HTTP requests or refreshing
+   */
+  @Test
+  public void testBroadbandWarmAndRefresh() throws Exception {
+    AtomicLong nanos = new AtomicLong();
+    Ticker ticker =
+        new Ticker() {
+          @Override
+          public long read() {
+            return nanos.get();
+          }
+        };
+    AtomicInteger refreshes = new AtomicInteger();
+    CensusSource source =
+        new CensusSource() {
+          @Override
+          public CensusData getBroadbandAccess(String state, String county)
+              throws DataSourceException {
+            throw new DataSourceException("only refreshes reach the source");
+          }
+
+          @Override
+          public CensusData refreshBroadbandAccess(String state, String county) {
+            refreshes.incrementAndGet();
+            return new CensusData(85.0);
+          }
+        };
+    ExecutorService refresher = Executors.newSingleThreadExecutor();
+    BroadbandHandler handler =
+        new BroadbandHandler(
+            source,
+            BroadbandHandler.staleWhileRevalidate(1000, Duration.ofMinutes(10), Duration.ofHours(1))
+                .ticker(ticker),
+            refresher);
+    long lookedUpAt = System.currentTimeMillis() - Duration.ofMinutes(5).toMillis();
+    long tooOld = System.currentTimeMillis() - Duration.ofMinutes(59).toMillis();
+    assertEquals(
+        1,
+        handler.warm(
+            Map.of(
+                new Pair<>("North Carolina", "Durham"), new CensusData(90.0, lookedUpAt),
+                new Pair<>("North Carolina", "Pitt"), new CensusData(75.5, tooOld)),
+            Duration.ofMinutes(10)));
+    Spark.get("/broadband", handler);
+    Spark.awaitInitialization();
+
+    HttpURLConnection connection = tryRequest("broadband?state=North%20Carolina&county=Durham");
+    Map<String, Object> body = adapter.fromJson(new Buffer().readFrom(connection.getInputStream()));
+    assertEquals("success", body.get("result"));
+    assertEquals(90.0, body.get("broadband_access_percent"));
+    assertEquals(
+        new SimpleDateFormat("MM/dd/yyyy HH:mm").format(lookedUpAt), body.get("date_time"));
+    connection.disconnect();
+    assertNull(requestPercent("broadband?state=North%20Carolina&county=Pitt"));
+
+    String durham = "broadband?state=North%20Carolina&county=Durham";
+    nanos.addAndGet(Duration.ofMinutes(11).toNanos());
+    requestPercent(durham);
+    refresher.submit(() -> {}).get();
+    assertEquals(85.0, requestPercent(durham));
+    assertEquals(1, refreshes.get());
+    refresher.shutdown();
+  }
+
+  /**
+   * Helper that makes a /broadband request and reads the broadband access percent of its response.
+   *
+   * @param apiCall the call string, including endpoint and params
+   * @return the broadband_access_percent of the response
+   * @throws IOException if the connection fails for some reason
+   */
+  private Object requestPercent(String apiCall) throws IOException {
+    HttpURLConnection connection = tryRequest(apiCall);
+    Map<String, Object> body = adapter.fromJson(new Buffer().readFrom(connection.getInputStream()));
+    showDetailsIfError(body);
+    connection.disconnect();
+    return body.get("broadband_access_percent");
+  }
+
   // add to check if cache is still empty after invalid  request
   private void showDetailsIfError(Map<String, Object> body) {
     if (body.containsKey("type") && "error".equals(body.get("type"))) {
@@ -0,0 +1,218 @@
+package edu.brown.cs.student.server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.brown.cs.student.main.maptypes.Feature;
+import edu.brown.cs.student.main.server.FeatureStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class tests the FeatureStore class, which parses a GEOJSON file from resources once and
+ * shares the parsed features between the map handlers.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TestFeatureStore {
+
+  final static String MOCK_PATH = "data/geojson/mocked.geojson";
+
+  /**
+   * Tests that the mocked GEOJSON file is found and parsed into its two features.
+   */
+  @Test
+  public void testLoadMockedGeojson() {
+    FeatureStore store = new FeatureStore(MOCK_PATH);
+
+    assertTrue(store.isFound());
+    assertTrue(store.isParsed());
+    assertNotNull(store.getCollection());
+    assertEquals(2, store.getFeatures().size());
+    assertEquals("Birmingham", store.getFeatures().get(0).getProperties().getCity());
+  }
+
+  /**
+   * Tests that the same parsed features are returned on every call rather than re-parsed.
+   */
+  @Test
+  public void testFeaturesParsedOnce() {
+    FeatureStore store = new FeatureStore(MOCK_PATH);
+
+    assertSame(store.getFeatures(), store.getFeatures());
+    assertSame(store.getFeatures().get(0), store.getFeatures().get(0));
+  }
+
+  /**
+   * Tests that the features exposed by the store cannot be modified by a caller.
+   */
+  @Test
+  public void testFeaturesImmutable() {
+    FeatureStore store = new FeatureStore(MOCK_PATH);
+    List<Feature> features = store.getFeatures();
+
+    assertThrows(UnsupportedOperationException.class, () -> features.remove(0));
+    assertThrows(UnsupportedOperationException.class, features::clear);
+  }
+
+  /**
+   * Tests that a missing file leaves the store empty instead of throwing.
+   */
+  @Test
+  public void testMissingFile() {
+    FeatureStore store = new FeatureStore("data/geojson/does_not_exist.geojson");
+
+    assertFalse(store.isFound());
+    assertFalse(store.isParsed());
+    assertNull(store.getCollection());
+    assertEquals(List.of(), store.getFeatures());
+  }
+
+  /**
+   * Tests that a file which is not GEOJSON is found but not parsed.
+   */
+  @Test
+  public void testUnparsableFile() {
+    FeatureStore store = new FeatureStore("data/stars/ten-star.csv");
+
+    assertTrue(store.isFound());
+    assertFalse(store.isParsed());
+    assertEquals(List.of(), store.getFeatures());
+  }
+
+  /**
+   * Tests that top-level keys after the features are skipped while streaming, including one whose
+   * value holds its own features key, and that a newline after the collection is allowed.
+   */
+  @Test
+  public void testExtraTopLevelKeys() {
+    FeatureStore store = new FeatureStore("data/geojson/mocked_extra_keys.geojson");
+
+    assertTrue(store.isParsed());
+    assertEquals(2, store.getFeatures().size());
+    assertEquals("College Hill", store.getFeatures().get(0).getProperties().getName());
+    assertEquals("Fox Point", store.getFeatures().get(1).getProperties().getName());
+  }
+
+  /**
+   * Tests that top-level keys before the features, such as a crs object, are skipped while
+   * streaming and the features after them are still read.
+   */
+  @Test
+  public void testKeysBeforeFeatures() {
+    FeatureStore store = new FeatureStore("data/geojson/mocked_keys_first.geojson");
+
+    assertTrue(store.isParsed());
+    assertEquals(1, store.getFeatures().size());
+    assertEquals("Fox Point", store.getFeatures().get(0).getProperties().getName());
+    assertArrayEquals(new int[] {0}, store.findWithin(41.8, 41.83, -71.4, -71.37));
+  }
+
+  /**
+   * Tests that a file with more JSON after its FeatureCollection is found but not parsed, rather
+   * than loaded from its first collection.
+   */
+  @Test
+  public void testTrailingContent() {
+    FeatureStore store = new FeatureStore("data/geojson/mocked_trailing.geojson");
+
+    assertTrue(store.isFound());
+    assertFalse(store.isParsed());
+    assertEquals(List.of(), store.getFeatures());
+  }
+
+  /**
+   * Tests that the spatial index only returns features whose envelope touches the query box.
+   */
+  @Test
+  public void testFindCandidates() {
+    FeatureStore store = new FeatureStore(MOCK_PATH);
+
+    // Box around the first feature only
+    assertArrayEquals(
+        new int[] {0}, store.findCandidates(33.471542, 33.48, -86.773296, -86.724829));
+    // Box around both features
+    assertArrayEquals(new int[] {0, 1}, store.findCandidates(33.0, 34.0, -87.0, -86.0));
+    // Box far away from both features
+    assertArrayEquals(new int[0], store.findCandidates(40.0, 41.0, -72.0, -71.0));
+  }
+
+  /**
+   * Tests that only features whose whole envelope lies inside the query box are found, even when
+   * the box overlaps other features.
+   */
+  @Test
+  public void testFindWithin() {
+    FeatureStore store = new FeatureStore(MOCK_PATH);
+
+    // Box exactly covering the first feature, which overlaps the second
+    assertArrayEquals(
+        new int[] {0}, store.findWithin(33.471542, 33.501794, -86.773296, -86.724829));
+    // Box covering both features
+    assertArrayEquals(new int[] {0, 1}, store.findWithin(33.0, 34.0, -87.0, -86.0));
+    // Box slightly too small for either feature
+    assertArrayEquals(new int[0], store.findWithin(33.48, 33.50, -86.77, -86.73));
+  }
+
+  /**
+   * Tests that whole-word searches find features by the words of their area description.
+   */
+  @Test
+  public void testSearchTerms() {
+    FeatureStore store = new FeatureStore(MOCK_PATH);
+
+    // Both descriptions share these words
+    assertArrayEquals(new int[] {0, 1}, store.searchTerms("Rental Prices", true));
+    // Only the first description mentions 1925, only the second 1926
+    assertArrayEquals(new int[] {0}, store.searchTerms("1925", true));
+    assertArrayEquals(new int[] {0, 1}, store.searchTerms("1925 1926", false));
+    assertArrayEquals(new int[0], store.searchTerms("1925 1926", true));
+    // Substrings of words are not words
+    assertArrayEquals(new int[0], store.searchTerms("rent", false));
+  }
+
+  /**
+   * Tests that substring searches find features by any part of their area description.
+   */
+  @Test
+  public void testSearchSubstring() {
+    FeatureStore store = new FeatureStore(MOCK_PATH);
+
+    assertArrayEquals(new int[] {0, 1}, store.searchSubstring("RENT"));
+    assertArrayEquals(new int[] {0}, store.searchSubstring("1925-2"));
+    assertArrayEquals(new int[] {1}, store.searchSubstring("6-28 p"));
+    assertArrayEquals(new int[0], store.searchSubstring("redlining"));
+    assertArrayEquals(new int[] {0, 1}, store.searchSubstring(""));
+  }
+
+  /**
+   * Tests that the first store writes a snapshot and a second store loads the same data from it.
+   */
+  @Test
+  public void testSnapshot(@TempDir Path directory) {
+    Path snapshot = directory.resolve("mocked.snapshot");
+    FeatureStore parsed = new FeatureStore(MOCK_PATH, snapshot);
+    assertTrue(Files.isRegularFile(snapshot));
+
+    FeatureStore loaded = new FeatureStore(MOCK_PATH, snapshot);
+    assertTrue(loaded.isFound());
+    assertTrue(loaded.isParsed());
+    assertEquals(2, loaded.getFeatures().size());
+    assertEquals("Birmingham", loaded.getFeatures().get(0).getProperties().getCity());
+    assertArrayEquals(
+        parsed.findWithin(33.471542, 33.501794, -86.773296, -86.724829),
+        loaded.findWithin(33.471542, 33.501794, -86.773296, -86.724829));
+    assertArrayEquals(parsed.searchSubstring("1925-2"), loaded.searchSubstring("1925-2"));
+    assertArrayEquals(parsed.searchTerms("rental", true), loaded.searchTerms("rental", true));
+  }
+}
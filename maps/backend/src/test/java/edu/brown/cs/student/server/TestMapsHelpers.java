@@ -9,6 +9,7 @@ import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import edu.brown.cs.student.main.maptypes.Feature;
 import edu.brown.cs.student.main.maptypes.FeatureCollection;
+import edu.brown.cs.student.main.maptypes.GeometryAdapter;
 import edu.brown.cs.student.main.server.BoundaryBoxHandler;
 import edu.brown.cs.student.main.server.LoadCsvHandler;
 import edu.brown.cs.student.main.server.SearchAreasHandler;
@@ -60,7 +61,7 @@ public class TestMapsHelpers {
         String jsonContent = new String(inputStream.readAllBytes());
 
         // Build Moshi instance
-        Moshi moshi = new Moshi.Builder().build();
+        Moshi moshi = new Moshi.Builder().add(new GeometryAdapter()).build();
         JsonAdapter<FeatureCollection> adapter = moshi.adapter(FeatureCollection.class);
 
         // Deserialize the GEOJSON content into a FeatureCollection
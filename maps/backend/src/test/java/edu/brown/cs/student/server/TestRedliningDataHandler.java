@@ -2,6 +2,8 @@ package edu.brown.cs.student.server;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import com.google.common.cache.CacheBuilder;
 import com.squareup.moshi.JsonAdapter;
@@ -19,6 +21,7 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 /**
  * This class contains JUnit tests for the RedliningDataHandler class.
@@ -33,6 +36,8 @@ public class TestRedliningDataHandler {
   //filepaths to geojsons
   final static String ACTUAL_PATH = "data\\geojson\\fullDownload.geojson";
   final static String MOCK_PATH = "data\\geojson\\mocked.geojson";
+  // The mocked geojson with forward slashes, which resolves on every platform
+  final static String PORTABLE_MOCK_PATH = "data/geojson/mocked.geojson";
 
   /**
    * Setup method executed before each test.
@@ -231,6 +236,56 @@ public class TestRedliningDataHandler {
     connection.disconnect();
   }
 
+  /**
+   * Test for the encoded response for mocked data: gzip when the client accepts it, and a 304 with
+   * no body when the client already has the response's ETag.
+   *
+   * @throws IOException if an I/O error occurs during the test.
+   */
+  @Test
+  public void testMockRedliningDataHandlerEncoding() throws IOException {
+    CacheBuilder cacheBuilder = CacheBuilder.newBuilder().maximumSize(1000).expireAfterWrite(10, TimeUnit.MINUTES);
+    RedliningDataHandler handler = new RedliningDataHandler(PORTABLE_MOCK_PATH, cacheBuilder);
+    Spark.get("/redliningdata", handler);
+    Spark.awaitInitialization();
+
+    // Plain request
+    HttpURLConnection connection1 = tryRequest("redliningdata");
+    assertEquals(200, connection1.getResponseCode());
+    assertNull(connection1.getHeaderField("Content-Encoding"));
+    String etag = connection1.getHeaderField("ETag");
+    assertNotNull(etag);
+    Map<String, Object> body1 =
+        adapter.fromJson(new Buffer().readFrom(connection1.getInputStream()));
+    assertEquals("success", body1.get("result"));
+    connection1.disconnect();
+
+    // Gzip request, which decompresses to the same response
+    URL requestURL = new URL("http://localhost:" + Spark.port() + "/redliningdata");
+    HttpURLConnection connection2 = (HttpURLConnection) requestURL.openConnection();
+    connection2.setRequestProperty("Accept-Encoding", "gzip");
+    assertEquals(200, connection2.getResponseCode());
+    assertEquals("gzip", connection2.getHeaderField("Content-Encoding"));
+    assertEquals(etag, connection2.getHeaderField("ETag"));
+    Map<String, Object> body2 =
+        adapter.fromJson(
+            new Buffer().readFrom(new GZIPInputStream(connection2.getInputStream())));
+    assertEquals(body1, body2);
+    connection2.disconnect();
+
+    // Conditional request with the ETag
+    HttpURLConnection connection3 = (HttpURLConnection) requestURL.openConnection();
+    connection3.setRequestProperty("If-None-Match", etag);
+    assertEquals(304, connection3.getResponseCode());
+    connection3.disconnect();
+
+    // Conditional request with a stale ETag
+    HttpURLConnection connection4 = (HttpURLConnection) requestURL.openConnection();
+    connection4.setRequestProperty("If-None-Match", "\"stale\"");
+    assertEquals(200, connection4.getResponseCode());
+    connection4.disconnect();
+  }
+
   /**
    * Test for checking RedliningDataHandler cache miss for mocked data.
    *
@@ -41,6 +41,8 @@ public class TestSearchAreasHandler {
   //filepaths to geojsons
   final static String ACTUAL_PATH = "data\\geojson\\fullDownload.geojson";
   final static String MOCK_PATH = "data\\geojson\\mocked.geojson";
+  // The mocked geojson with forward slashes, which resolves on every platform
+  final static String PORTABLE_MOCK_PATH = "data/geojson/mocked.geojson";
 
   /**
    * Setup method executed before each test.
@@ -336,6 +338,53 @@ public class TestSearchAreasHandler {
     connection.disconnect();
   }
 
+  /**
+   * Test for whole-word searches with the match parameter for mocked data, which are cached
+   * separately from a substring search for the same keyword.
+   *
+   * @throws IOException if an I/O error occurs during the test.
+   */
+  @Test
+  public void testMockSearchAreasMatchWords() throws IOException {
+    SearchAreasHandler handler = new SearchAreasHandler(PORTABLE_MOCK_PATH,
+        CacheBuilder.newBuilder().maximumSize(1000).expireAfterWrite(10, TimeUnit.MINUTES));
+    Spark.get("/searchareas", handler);
+    Spark.awaitInitialization();
+
+    // Both words are in the mocked descriptions
+    HttpURLConnection connection1 = tryRequest("searchareas?keyword=rental_prices&match=all");
+    Map<String, Object> body1 =
+        adapter.fromJson(new Buffer().readFrom(connection1.getInputStream()));
+    showDetailsIfError(body1);
+    assertEquals("success", body1.get("result"));
+    assertNotEquals(List.of(), body1.get("coordinatesList"));
+    connection1.disconnect();
+
+    // "rent" is only part of a word, so no area matches
+    HttpURLConnection connection2 = tryRequest("searchareas?keyword=rent&match=any");
+    Map<String, Object> body2 =
+        adapter.fromJson(new Buffer().readFrom(connection2.getInputStream()));
+    assertEquals("success", body2.get("result"));
+    assertEquals(List.of(), body2.get("coordinatesList"));
+    connection2.disconnect();
+
+    // The substring search for "rent" is a different query
+    HttpURLConnection connection3 = tryRequest("searchareas?keyword=rent");
+    Map<String, Object> body3 =
+        adapter.fromJson(new Buffer().readFrom(connection3.getInputStream()));
+    assertEquals("success", body3.get("result"));
+    assertNotEquals(List.of(), body3.get("coordinatesList"));
+    assertEquals(3, handler.getCache().size());
+    connection3.disconnect();
+
+    // Unknown match values are rejected
+    HttpURLConnection connection4 = tryRequest("searchareas?keyword=rent&match=some");
+    Map<String, Object> body4 =
+        adapter.fromJson(new Buffer().readFrom(connection4.getInputStream()));
+    assertEquals("error_bad_request", body4.get("result"));
+    connection4.disconnect();
+  }
+
   /**
    * Fuzz testing for SearchAreasHandler for mocked data.
    *
@@ -8,11 +8,14 @@ import com.squareup.moshi.Types;
 import edu.brown.cs.student.main.server.CsvDataWrapper;
 import edu.brown.cs.student.main.server.LoadCsvHandler;
 import edu.brown.cs.student.main.server.SearchCsvHandler;
+import edu.brown.cs.student.main.server.SearchCsvHandler.SearchSuccessResponse;
 import edu.brown.cs.student.main.server.ViewCsvHandler;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +41,7 @@ public class TestSearchCsvHandler {
   private final Type mapStringObject =
       Types.newParameterizedType(Map.class, String.class, Object.class);
   private JsonAdapter<Map<String, Object>> adapter;
+  private CsvDataWrapper csvData;
 
   /**
    * This method reinitializes the /loadcsv, /viewcsv, and /searchcsv endpoints, and well as the
@@ -45,7 +49,7 @@ public class TestSearchCsvHandler {
    */
   @BeforeEach
   public void setup() {
-    CsvDataWrapper csvData = new CsvDataWrapper(new ArrayList<>(), false);
+    csvData = new CsvDataWrapper(new ArrayList<>(), false);
     Spark.get("/loadcsv", new LoadCsvHandler(csvData));
     Spark.get("/viewcsv", new ViewCsvHandler(csvData));
     Spark.get("/searchcsv", new SearchCsvHandler(csvData));
@@ -761,6 +765,102 @@ public class TestSearchCsvHandler {
     searchConnection.disconnect();
   }
 
+  /**
+   * This test verifies that /searchcsv finds the rows whose item starts with the value when match
+   * is prefix, and the rows whose item is from the value up to the to parameter when match is
+   * range, and that it rejects an unknown match or a range without to.
+   *
+   * @throws IOException if the CSV searching done by the handler's call to CsvSearcher fails
+   */
+  @Test
+  public void testLoadSearchPrefixAndRange() throws IOException {
+    HttpURLConnection loadConnection =
+        tryRequest("loadcsv?filepath=data/census/postsecondary_education.csv");
+    assertEquals(200, loadConnection.getResponseCode());
+    loadConnection.disconnect();
+
+    HttpURLConnection prefixConnection =
+        tryRequest("searchcsv?value=N&headers=true&colid=IPEDS%20Race&match=prefix");
+    Map<String, Object> prefixBody =
+        adapter.fromJson(new Buffer().readFrom(prefixConnection.getInputStream()));
+    showDetailsIfError(prefixBody);
+    assertEquals("success", prefixBody.get("result"));
+    List<List<String>> prefixRows = (List<List<String>>) prefixBody.get("data");
+    assertEquals(4, prefixRows.size());
+    for (List<String> row : prefixRows) {
+      assertEquals(true, row.get(0).startsWith("N"));
+    }
+    prefixConnection.disconnect();
+
+    HttpURLConnection rangeConnection =
+        tryRequest("searchcsv?value=A&to=B&headers=true&colid=0&match=range");
+    Map<String, Object> rangeBody =
+        adapter.fromJson(new Buffer().readFrom(rangeConnection.getInputStream()));
+    showDetailsIfError(rangeBody);
+    assertEquals("success", rangeBody.get("result"));
+    List<List<String>> rangeRows = (List<List<String>>) rangeBody.get("data");
+    assertEquals(4, rangeRows.size());
+    for (List<String> row : rangeRows) {
+      assertEquals(true, row.get(0).startsWith("A"));
+    }
+    rangeConnection.disconnect();
+
+    HttpURLConnection noToConnection = tryRequest("searchcsv?value=A&headers=true&match=range");
+    Map<String, Object> noToBody =
+        adapter.fromJson(new Buffer().readFrom(noToConnection.getInputStream()));
+    assertEquals("error_bad_request", noToBody.get("result"));
+    noToConnection.disconnect();
+
+    HttpURLConnection badConnection = tryRequest("searchcsv?value=A&headers=true&match=some");
+    Map<String, Object> badBody =
+        adapter.fromJson(new Buffer().readFrom(badConnection.getInputStream()));
+    assertEquals("error_bad_request", badBody.get("result"));
+    badConnection.disconnect();
+  }
+
+  /**
+   * This test verifies that the streamed /searchcsv body is exactly the JSON that Moshi's adapter
+   * gives for the same response record, for a value and rows that need escaping, a search without a
+   * colid, whose colid is left out, and a search that finds nothing, and that it is sent as JSON.
+   *
+   * @throws IOException if the connection fails for some reason
+   */
+  @Test
+  public void testStreamedBodyMatchesAdapter() throws IOException {
+    JsonAdapter<SearchSuccessResponse> successAdapter =
+        new Moshi.Builder().build().adapter(SearchSuccessResponse.class);
+    String value = "a \"quoted\" \\ value";
+    List<String> header = List.of("name", "note");
+    List<String> match = List.of(value, "tab\tand\nnewline </script> caf\u00e9");
+    csvData.setData(List.of(header, match, List.of("other", "row")));
+    csvData.setLoaded(true);
+
+    String encoded = URLEncoder.encode(value, StandardCharsets.UTF_8);
+    assertEquals(
+        successAdapter.toJson(new SearchSuccessResponse(value, "true", null, List.of(match))),
+        rawBody("searchcsv?headers=true&value=" + encoded));
+    assertEquals(
+        successAdapter.toJson(new SearchSuccessResponse("missing", "true", "name", List.of())),
+        rawBody("searchcsv?headers=true&value=missing&colid=name"));
+  }
+
+  /**
+   * Helper that makes a request and reads its response body as it was sent, checking that it was
+   * sent as JSON.
+   *
+   * @param apiCall the call string, including endpoint
+   * @return the response body
+   * @throws IOException if the connection fails for some reason
+   */
+  private String rawBody(String apiCall) throws IOException {
+    HttpURLConnection connection = tryRequest(apiCall);
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("application/json", connection.getContentType());
+    String body = new Buffer().readFrom(connection.getInputStream()).readUtf8();
+    connection.disconnect();
+    return body;
+  }
+
   /**
    * This helper method prints the details of an error message if the response body contains the
    * String "error" in the result field.
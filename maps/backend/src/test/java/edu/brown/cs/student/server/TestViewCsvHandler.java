@@ -1,6 +1,7 @@
 package edu.brown.cs.student.server;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
 
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
@@ -8,6 +9,8 @@ import com.squareup.moshi.Types;
 import edu.brown.cs.student.main.server.CsvDataWrapper;
 import edu.brown.cs.student.main.server.LoadCsvHandler;
 import edu.brown.cs.student.main.server.ViewCsvHandler;
+import edu.brown.cs.student.main.server.ViewCsvHandler.ViewPageResponse;
+import edu.brown.cs.student.main.server.ViewCsvHandler.ViewSuccessResponse;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
@@ -36,6 +39,7 @@ public class TestViewCsvHandler {
   private final Type mapStringObject =
       Types.newParameterizedType(Map.class, String.class, Object.class);
   private JsonAdapter<Map<String, Object>> adapter;
+  private CsvDataWrapper csvData;
 
   /**
    * This method reinitializes the /loadcsv and /viewcsv endpoints, and well as the handler, csvData
@@ -43,7 +47,7 @@ public class TestViewCsvHandler {
    */
   @BeforeEach
   public void setup() {
-    CsvDataWrapper csvData = new CsvDataWrapper(new ArrayList<>(), false);
+    csvData = new CsvDataWrapper(new ArrayList<>(), false);
     Spark.get("/loadcsv", new LoadCsvHandler(csvData));
     Spark.get("/viewcsv", new ViewCsvHandler(csvData));
     Spark.awaitInitialization();
@@ -253,4 +257,110 @@ public class TestViewCsvHandler {
       System.out.println(body);
     }
   }
+
+  /**
+   * This test verifies that /viewcsv pages through the loaded rows with offset, limit, and the
+   * cursors it returns, and that bad paging parameters and cursors from earlier loads fail.
+   *
+   * @throws IOException if the CSV parsing done by the handler's call to CsvParser fails
+   */
+  @Test
+  public void testViewPages() throws IOException {
+    String validFilepath = "data/census/dol_ri_earnings_disparity.csv";
+    HttpURLConnection loadConnection = tryRequest("loadcsv?filepath=" + validFilepath);
+    assertEquals(200, loadConnection.getResponseCode());
+    loadConnection.disconnect();
+
+    Map<String, Object> fullBody = view("viewcsv");
+    List<?> allRows = (List<?>) fullBody.get("data");
+    assertEquals(7, allRows.size());
+
+    Map<String, Object> firstPage = view("viewcsv?limit=3");
+    assertEquals("success", firstPage.get("result"));
+    assertEquals(7.0, firstPage.get("total"));
+    assertEquals(allRows.subList(0, 3), firstPage.get("data"));
+    Map<String, Object> secondPage = view("viewcsv?cursor=" + firstPage.get("next_cursor"));
+    assertEquals(3.0, secondPage.get("offset"));
+    assertEquals(allRows.subList(3, 6), secondPage.get("data"));
+    Map<String, Object> lastPage = view("viewcsv?cursor=" + secondPage.get("next_cursor"));
+    assertEquals(allRows.subList(6, 7), lastPage.get("data"));
+    assertNull(lastPage.get("next_cursor"));
+
+    assertEquals(allRows.subList(5, 7), view("viewcsv?offset=5&limit=10").get("data"));
+    assertEquals(List.of(), view("viewcsv?offset=50").get("data"));
+    assertEquals("error_bad_request", view("viewcsv?limit=0").get("result"));
+    assertEquals("error_bad_request", view("viewcsv?offset=-1").get("result"));
+    assertEquals("error_bad_request", view("viewcsv?offset=abc").get("result"));
+    assertEquals("error_bad_request", view("viewcsv?cursor=nonsense").get("result"));
+
+    loadConnection = tryRequest("loadcsv?filepath=" + validFilepath);
+    assertEquals(200, loadConnection.getResponseCode());
+    loadConnection.disconnect();
+    Map<String, Object> staleBody = view("viewcsv?cursor=" + firstPage.get("next_cursor"));
+    assertEquals("error_bad_request", staleBody.get("result"));
+  }
+
+  /**
+   * This test verifies that the streamed /viewcsv body is exactly the JSON that Moshi's adapters
+   * give for the same response records, for rows that need escaping, a page without a next cursor,
+   * and no rows at all, and that it is sent as JSON.
+   *
+   * @throws IOException if the connection fails for some reason
+   */
+  @Test
+  public void testStreamedBodyMatchesAdapter() throws IOException {
+    Moshi moshi = new Moshi.Builder().build();
+    List<List<String>> rows =
+        List.of(
+            List.of("a \"quoted\" \\ value", "tab\tand\nnewline"),
+            List.of("</script>", "caf\u00e9 \u2028"));
+    csvData.setData(rows);
+    csvData.setLoaded(true);
+    assertEquals(
+        moshi.adapter(ViewSuccessResponse.class).toJson(new ViewSuccessResponse(rows)),
+        rawBody("viewcsv"));
+    assertEquals(
+        moshi
+            .adapter(ViewPageResponse.class)
+            .toJson(new ViewPageResponse(1, 5, 2, null, rows.subList(1, 2))),
+        rawBody("viewcsv?offset=1&limit=5"));
+
+    csvData.setData(List.of());
+    assertEquals(
+        moshi.adapter(ViewSuccessResponse.class).toJson(new ViewSuccessResponse(List.of())),
+        rawBody("viewcsv"));
+  }
+
+  /**
+   * Helper that makes a request and reads its response body as it was sent, checking that it was
+   * sent as JSON.
+   *
+   * @param apiCall the call string, including endpoint
+   * @return the response body
+   * @throws IOException if the connection fails for some reason
+   */
+  private String rawBody(String apiCall) throws IOException {
+    HttpURLConnection connection = tryRequest(apiCall);
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("application/json", connection.getContentType());
+    String body = new Buffer().readFrom(connection.getInputStream()).readUtf8();
+    connection.disconnect();
+    return body;
+  }
+
+  /**
+   * Helper that makes a /viewcsv request and reads its response body.
+   *
+   * @param apiCall the call string, including endpoint
+   * @return the response body
+   * @throws IOException if the connection fails for some reason
+   */
+  private Map<String, Object> view(String apiCall) throws IOException {
+    HttpURLConnection viewConnection = tryRequest(apiCall);
+    assertEquals(200, viewConnection.getResponseCode());
+    Map<String, Object> viewBody =
+        adapter.fromJson(new Buffer().readFrom(viewConnection.getInputStream()));
+    viewConnection.disconnect();
+    return viewBody;
+  }
 }
@@ -0,0 +1,198 @@
+package edu.brown.cs.student.sources;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This is a local HTTP server that answers the three census API queries that AcsCensusSource sends,
+ * the state list, the county list of a state and the broadband variable of counties, from a few
+ * fixed rows. It records every query it is sent and every client connection, so tests can check
+ * how many upstream calls a lookup costs without sending requests to the real census API.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class StubCensusServer implements AutoCloseable {
+  private static final JsonAdapter<List<List<String>>> ROWS_ADAPTER =
+      new Moshi.Builder()
+          .build()
+          .adapter(Types.newParameterizedType(List.class, List.class, String.class));
+  private static final List<List<String>> STATES =
+      List.of(
+          List.of("NAME", "state"), List.of("North Carolina", "37"), List.of("Rhode Island", "44"));
+  // The county name, broadband access, state code and county code of each stub county
+  private static final List<List<String>> COUNTIES =
+      List.of(
+          List.of("Durham County, North Carolina", "90.0", "37", "063"),
+          List.of("Orange County, North Carolina", "91.9", "37", "135"),
+          List.of("Wake County, North Carolina", "94.1", "37", "183"),
+          List.of("Kent County, Rhode Island", "89.5", "44", "003"),
+          List.of("Providence County, Rhode Island", "85.4", "44", "007"));
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final List<String> queries;
+  private final Set<InetSocketAddress> connections;
+  private volatile long delayMillis;
+  private volatile int failureStatus;
+
+  /**
+   * Constructor for the StubCensusServer class, which starts the server on a free local port.
+   *
+   * @throws IOException if the server cannot be started
+   */
+  public StubCensusServer() throws IOException {
+    this.queries = new ArrayList<>();
+    this.connections = new HashSet<>();
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    this.executor = Executors.newCachedThreadPool();
+    this.server.setExecutor(executor);
+    this.server.createContext("/", this::answer);
+    this.server.start();
+  }
+
+  /**
+   * A getter method for the base URI of the server, to construct an AcsCensusSource with.
+   *
+   * @return the scheme, host and port of the server
+   */
+  public URI getUri() {
+    InetSocketAddress address = server.getAddress();
+    return URI.create("http://" + address.getHostString() + ":" + address.getPort());
+  }
+
+  /**
+   * A setter method for how long the server waits before answering each query, so that queries
+   * sent close together are in flight at the same time.
+   *
+   * @param delayMillis the wait in milliseconds
+   */
+  public void setDelayMillis(long delayMillis) {
+    this.delayMillis = delayMillis;
+  }
+
+  /**
+   * A setter method for a status that the server answers every query with instead of its rows, so
+   * that a failing census API can be imitated. A status of 0 answers queries normally again.
+   *
+   * @param failureStatus the status to answer with, such as 404
+   */
+  public void setFailureStatus(int failureStatus) {
+    this.failureStatus = failureStatus;
+  }
+
+  /**
+   * A method that counts the queries that the server was sent containing the given text.
+   *
+   * @param text the text to look for, such as "for=state:*"
+   * @return the number of queries containing it
+   */
+  public synchronized int countQueries(String text) {
+    int count = 0;
+    for (String query : queries) {
+      if (query.contains(text)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * A method that counts the TCP connections that clients opened to the server.
+   *
+   * @return the number of distinct client addresses that sent a query
+   */
+  public synchronized int countConnections() {
+    return connections.size();
+  }
+
+  /**
+   * A helper method that records a query and answers it like the census API would.
+   *
+   * @param exchange the request and response of the query
+   * @throws IOException if the response cannot be sent
+   */
+  private void answer(HttpExchange exchange) throws IOException {
+    String path = exchange.getRequestURI().getPath();
+    String query = exchange.getRequestURI().getRawQuery();
+    synchronized (this) {
+      queries.add(query);
+      connections.add(exchange.getRemoteAddress());
+    }
+    if (delayMillis > 0) {
+      try {
+        Thread.sleep(delayMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (failureStatus != 0) {
+      exchange.sendResponseHeaders(failureStatus, -1);
+      exchange.close();
+      return;
+    }
+    Map<String, String> params = new HashMap<>();
+    for (String param : query == null ? new String[0] : query.split("&")) {
+      String[] keyAndValue = param.split("=", 2);
+      params.put(keyAndValue[0], keyAndValue.length > 1 ? keyAndValue[1] : "");
+    }
+    String inState = params.getOrDefault("in", "").replace("state:", "");
+    String forCounty = params.getOrDefault("for", "").replace("county:", "");
+
+    List<List<String>> rows = new ArrayList<>();
+    if (path.equals("/data/2010/dec/sf1") && "state:*".equals(params.get("for"))) {
+      rows.addAll(STATES);
+    } else if (path.equals("/data/2010/dec/sf1")) {
+      rows.add(List.of("NAME", "state", "county"));
+      for (List<String> county : COUNTIES) {
+        if (county.get(2).equals(inState)) {
+          rows.add(List.of(county.get(0), county.get(2), county.get(3)));
+        }
+      }
+    } else if (path.equals("/data/2021/acs/acs1/subject/variables")) {
+      rows.add(List.of("NAME", "S2802_C03_022E", "state", "county"));
+      for (List<String> county : COUNTIES) {
+        if (county.get(2).equals(inState)
+            && (forCounty.equals("*") || county.get(3).equals(forCounty))) {
+          rows.add(county);
+        }
+      }
+    }
+    if (rows.size() <= 1) {
+      // The census API answers a query that matches nothing with no content
+      exchange.sendResponseHeaders(rows.isEmpty() ? 404 : 204, -1);
+      exchange.close();
+      return;
+    }
+    byte[] body = ROWS_ADAPTER.toJson(rows).getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  /** A method that stops the server. */
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
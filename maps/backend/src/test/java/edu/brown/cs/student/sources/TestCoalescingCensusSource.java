@@ -0,0 +1,189 @@
+package edu.brown.cs.student.sources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.brown.cs.student.main.sources.AcsCensusSource;
+import edu.brown.cs.student.main.sources.CensusData;
+import edu.brown.cs.student.main.sources.CensusSource;
+import edu.brown.cs.student.main.sources.CoalescingCensusSource;
+import edu.brown.cs.student.main.sources.DataSourceException;
+import edu.brown.cs.student.main.sources.SingleFlight;
+import edu.brown.cs.student.main.sources.mocks.StaleMockCensusSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This is a testing class that tests the SingleFlight class and the CoalescingCensusSource class,
+ * and that an AcsCensusSource sends each query only once when many lookups are in flight at once.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TestCoalescingCensusSource {
+
+  /**
+   * Tests that callers for a key in flight share its result, that other keys get calls of their
+   * own, and that a key is forgotten once its call completes.
+   *
+   * @throws Exception if a call fails
+   */
+  @Test
+  public void testSingleFlight() throws Exception {
+    SingleFlight<String, Integer> flights = new SingleFlight<>();
+    AtomicInteger calls = new AtomicInteger();
+    CompletableFuture<Integer> pending = new CompletableFuture<>();
+
+    CompletableFuture<Integer> first =
+        flights.run(
+            "a",
+            () -> {
+              calls.incrementAndGet();
+              return pending;
+            });
+    CompletableFuture<Integer> second =
+        flights.run("a", () -> CompletableFuture.completedFuture(calls.incrementAndGet()));
+    CompletableFuture<Integer> other =
+        flights.run("b", () -> CompletableFuture.completedFuture(calls.incrementAndGet()));
+    assertEquals(2, calls.get());
+    assertEquals(1, flights.getInFlightCount());
+
+    // A caller cancelling its future does not cancel the shared call
+    second.cancel(true);
+    pending.complete(7);
+    assertEquals(7, first.get());
+    assertEquals(2, other.get());
+    assertEquals(0, flights.getInFlightCount());
+
+    assertEquals(3, flights.run("a", () -> CompletableFuture.completedFuture(3)).get());
+  }
+
+  /**
+   * Tests that a call that throws an Error or returns null fails its callers and is forgotten, so
+   * later callers for the key start a new call instead of waiting forever.
+   *
+   * @throws Exception if a call fails unexpectedly
+   */
+  @Test
+  public void testSingleFlightForgetsBrokenCalls() throws Exception {
+    SingleFlight<String, Integer> flights = new SingleFlight<>();
+
+    CompletableFuture<Integer> error =
+        flights.run(
+            "a",
+            () -> {
+              throw new StackOverflowError("too deep");
+            });
+    ExecutionException thrown = assertThrows(ExecutionException.class, error::get);
+    assertTrue(thrown.getCause() instanceof StackOverflowError);
+    assertEquals(0, flights.getInFlightCount());
+
+    CompletableFuture<Integer> none = flights.run("a", () -> null);
+    thrown = assertThrows(ExecutionException.class, none::get);
+    assertTrue(thrown.getCause() instanceof NullPointerException);
+    assertEquals(0, flights.getInFlightCount());
+
+    assertEquals(3, flights.run("a", () -> CompletableFuture.completedFuture(3)).get());
+  }
+
+  /**
+   * Tests that lookups of a county that arrive while a blocking lookup of it is running share that
+   * lookup, and that a lookup after it completes reaches the wrapped source again.
+   *
+   * @throws Exception if a lookup fails
+   */
+  @Test
+  public void testConcurrentLookupsShareOneCall() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CensusSource blocking =
+        (state, county) -> {
+          calls.incrementAndGet();
+          entered.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            throw new DataSourceException("interrupted");
+          }
+          return new CensusData(42.0);
+        };
+    CoalescingCensusSource source = new CoalescingCensusSource(blocking);
+
+    CompletableFuture<CensusData> leader =
+        CompletableFuture.supplyAsync(
+            () -> {
+              try {
+                return source.getBroadbandAccess("North Carolina", "Durham");
+              } catch (DataSourceException e) {
+                throw new IllegalStateException(e);
+              }
+            });
+    entered.await();
+    List<CompletableFuture<CensusData>> followers = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      followers.add(source.getBroadbandAccessAsync("North Carolina", "Durham"));
+    }
+    release.countDown();
+
+    assertEquals(new CensusData(42.0), leader.get());
+    for (CompletableFuture<CensusData> follower : followers) {
+      assertEquals(new CensusData(42.0), follower.get());
+    }
+    assertEquals(1, calls.get());
+
+    source.getBroadbandAccess("North Carolina", "Durham");
+    assertEquals(2, calls.get());
+  }
+
+  /**
+   * Tests that failures of the wrapped source keep their messages, and that a wrapped source that
+   * cannot look up whole states makes state lookups fail.
+   */
+  @Test
+  public void testFailuresPassThrough() {
+    CoalescingCensusSource source = new CoalescingCensusSource(new StaleMockCensusSource());
+    DataSourceException thrown =
+        assertThrows(DataSourceException.class, () -> source.getBroadbandAccess("North", "Durham"));
+    assertEquals("County Durham in state North was not found.", thrown.getMessage());
+    assertThrows(DataSourceException.class, () -> source.getStateBroadbandAccess("North Carolina"));
+  }
+
+  /**
+   * Tests that many lookups of counties in a state started at once on a fresh AcsCensusSource
+   * send the state list, the county list and each county's broadband query only once.
+   *
+   * @throws Exception if a lookup fails
+   */
+  @Test
+  public void testAcsQueriesAreCoalesced() throws Exception {
+    try (StubCensusServer stub = new StubCensusServer()) {
+      stub.setDelayMillis(100);
+      AcsCensusSource source = new AcsCensusSource(stub.getUri());
+      List<CompletableFuture<CensusData>> lookups = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        String county = i % 2 == 0 ? "Durham" : "Wake";
+        lookups.add(source.getBroadbandAccessAsync("North Carolina", county));
+      }
+      for (int i = 0; i < 10; i++) {
+        assertEquals(i % 2 == 0 ? 90.0 : 94.1, lookups.get(i).get().data());
+      }
+      assertEquals(1, stub.countQueries("for=state:*"));
+      assertEquals(1, stub.countQueries("get=NAME&for=county:*"));
+      assertEquals(1, stub.countQueries("for=county:063"));
+      assertEquals(1, stub.countQueries("for=county:183"));
+
+      ExecutionException failed =
+          assertThrows(
+              ExecutionException.class,
+              () -> source.getBroadbandAccessAsync("North", "Wake").get());
+      assertTrue(failed.getCause() instanceof DataSourceException);
+    }
+  }
+}
@@ -0,0 +1,246 @@
+package edu.brown.cs.student.sources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.brown.cs.student.main.sources.AcsCensusSource;
+import edu.brown.cs.student.main.sources.CensusData;
+import edu.brown.cs.student.main.sources.CensusSource;
+import edu.brown.cs.student.main.sources.DataSourceException;
+import edu.brown.cs.student.main.sources.PersistentCensusSource;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import kotlin.Pair;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This is a testing class that tests the PersistentCensusSource class, by looking values up with
+ * one source and reading them back with a new source on the same log, as a restarted server would.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TestPersistentCensusSource {
+  private static final Duration TIME_TO_LIVE = Duration.ofHours(1);
+  private static final CensusSource DOWN =
+      (state, county) -> {
+        throw new DataSourceException("source is down");
+      };
+
+  @TempDir Path directory;
+  private Path logPath;
+  private AtomicLong millis;
+  private Clock clock;
+  private AtomicInteger calls;
+  private CensusSource counting;
+
+  /** Sets up a log path, a clock that the tests move, and a source that counts its lookups. */
+  @BeforeEach
+  public void setup() {
+    logPath = directory.resolve("census").resolve("broadband.censuslog");
+    millis = new AtomicLong(1_700_000_000_000L);
+    clock =
+        new Clock() {
+          @Override
+          public ZoneId getZone() {
+            return ZoneOffset.UTC;
+          }
+
+          @Override
+          public Clock withZone(ZoneId zone) {
+            return this;
+          }
+
+          @Override
+          public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+          }
+        };
+    calls = new AtomicInteger();
+    counting = (state, county) -> countCall(county);
+  }
+
+  /**
+   * Helper that counts a lookup of the counting source.
+   *
+   * @param county the county looked up
+   * @return the broadband access of the county, 90.0 for Durham and 80.0 otherwise
+   */
+  private CensusData countCall(String county) {
+    calls.incrementAndGet();
+    return new CensusData(county.equals("Durham") ? 90.0 : 80.0);
+  }
+
+  /**
+   * Tests that a looked up value is answered from memory, and from the log after a restart.
+   *
+   * @throws DataSourceException if a lookup fails
+   */
+  @Test
+  public void testLookupsSurviveRestart() throws DataSourceException {
+    try (PersistentCensusSource source =
+        new PersistentCensusSource(counting, logPath, TIME_TO_LIVE, clock)) {
+      assertEquals(90.0, source.getBroadbandAccess("North Carolina", "Durham").data());
+      assertEquals(90.0, source.getBroadbandAccess("North Carolina", "Durham").data());
+      assertEquals(80.0, source.getBroadbandAccess("North Carolina", "Wake").data());
+      assertEquals(2, calls.get());
+    }
+
+    millis.addAndGet(Duration.ofMinutes(30).toMillis());
+    try (PersistentCensusSource restarted =
+        new PersistentCensusSource(DOWN, logPath, TIME_TO_LIVE, clock)) {
+      assertEquals(2, restarted.getLiveEntryCount());
+      assertEquals(90.0, restarted.getBroadbandAccess("North Carolina", "Durham").data());
+      assertEquals(80.0, restarted.getBroadbandAccess("North Carolina", "Wake").data());
+      DataSourceException thrown =
+          assertThrows(
+              DataSourceException.class,
+              () -> restarted.getBroadbandAccess("North Carolina", "Orange"));
+      assertEquals("source is down", thrown.getMessage());
+    }
+  }
+
+  /**
+   * Tests that the time to live is measured from the original lookup, across restarts.
+   *
+   * @throws DataSourceException if a lookup fails
+   */
+  @Test
+  public void testExpiredEntriesAreLookedUpAgain() throws DataSourceException {
+    try (PersistentCensusSource source =
+        new PersistentCensusSource(counting, logPath, TIME_TO_LIVE, clock)) {
+      source.getBroadbandAccess("North Carolina", "Durham");
+    }
+    millis.addAndGet(Duration.ofMinutes(61).toMillis());
+    try (PersistentCensusSource restarted =
+        new PersistentCensusSource(counting, logPath, TIME_TO_LIVE, clock)) {
+      assertEquals(0, restarted.getLiveEntryCount());
+      restarted.getBroadbandAccess("North Carolina", "Durham");
+      assertEquals(2, calls.get());
+      assertEquals(1, restarted.getLiveEntryCount());
+    }
+  }
+
+  /**
+   * Tests that a record cut off at the end of the log is dropped, and that records appended after
+   * reading such a log can be read back.
+   *
+   * @throws IOException if the log cannot be truncated
+   * @throws DataSourceException if a lookup fails
+   */
+  @Test
+  public void testCutOffRecordIsDropped() throws IOException, DataSourceException {
+    try (PersistentCensusSource source =
+        new PersistentCensusSource(counting, logPath, TIME_TO_LIVE, clock)) {
+      source.getBroadbandAccess("North Carolina", "Durham");
+      source.getBroadbandAccess("North Carolina", "Wake");
+    }
+    try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 3);
+    }
+
+    try (PersistentCensusSource restarted =
+        new PersistentCensusSource(counting, logPath, TIME_TO_LIVE, clock)) {
+      assertEquals(1, restarted.getLiveEntryCount());
+      restarted.getBroadbandAccess("North Carolina", "Orange");
+    }
+    try (PersistentCensusSource restarted =
+        new PersistentCensusSource(DOWN, logPath, TIME_TO_LIVE, clock)) {
+      assertEquals(2, restarted.getLiveEntryCount());
+      assertEquals(80.0, restarted.getBroadbandAccess("North Carolina", "Orange").data());
+    }
+  }
+
+  /**
+   * Tests that every county of a state lookup is kept, so a restarted server answers each of them.
+   *
+   * @throws IOException if the stub server cannot be started
+   * @throws DataSourceException if a lookup fails
+   */
+  @Test
+  public void testStateLookupsAreKept() throws IOException, DataSourceException {
+    try (StubCensusServer stub = new StubCensusServer();
+        PersistentCensusSource source =
+            new PersistentCensusSource(
+                new AcsCensusSource(stub.getUri()), logPath, TIME_TO_LIVE, clock)) {
+      assertEquals(3, source.getStateBroadbandAccess("North Carolina").size());
+    }
+    try (PersistentCensusSource restarted =
+        new PersistentCensusSource(DOWN, logPath, TIME_TO_LIVE, clock)) {
+      assertEquals(3, restarted.getLiveEntryCount());
+      assertEquals(94.1, restarted.getBroadbandAccess("North Carolina", "Wake").data());
+    }
+  }
+
+  /**
+   * Tests that a value answered from the log carries the time of its original lookup, and that a
+   * refresh looks the value up again instead of answering from the log.
+   *
+   * @throws DataSourceException if a lookup fails
+   */
+  @Test
+  public void testRefreshBypassesLog() throws DataSourceException {
+    long lookedUpAt = millis.get();
+    try (PersistentCensusSource source =
+        new PersistentCensusSource(counting, logPath, TIME_TO_LIVE, clock)) {
+      assertNull(source.getBroadbandAccess("North Carolina", "Durham").lookedUpAt());
+      millis.addAndGet(Duration.ofMinutes(10).toMillis());
+      assertEquals(
+          lookedUpAt, source.getBroadbandAccess("North Carolina", "Durham").lookedUpAt());
+      assertEquals(1, calls.get());
+
+      CensusData refreshed = source.refreshBroadbandAccess("North Carolina", "Durham");
+      assertEquals(90.0, refreshed.data());
+      assertNull(refreshed.lookedUpAt());
+      assertEquals(2, calls.get());
+      assertEquals(
+          millis.get(), source.getBroadbandAccess("North Carolina", "Durham").lookedUpAt());
+      assertEquals(
+          Map.of(new Pair<>("North Carolina", "Durham"), new CensusData(90.0, millis.get())),
+          source.getLiveEntries());
+    }
+  }
+
+  /**
+   * Tests that the log is rewritten while the source runs, so refreshing the same entries over and
+   * over does not grow it, and that the rewritten log is read back after a restart.
+   *
+   * @throws IOException if the size of the log cannot be read
+   * @throws DataSourceException if a lookup fails
+   */
+  @Test
+  public void testLogIsCompactedWhileRunning() throws IOException, DataSourceException {
+    try (PersistentCensusSource source =
+        new PersistentCensusSource(counting, logPath, TIME_TO_LIVE, clock)) {
+      for (int i = 0; i < 5000; i++) {
+        millis.incrementAndGet();
+        source.refreshBroadbandAccess("North Carolina", i % 2 == 0 ? "Durham" : "Wake");
+      }
+      assertEquals(5000, calls.get());
+      // 5000 records of about 56 bytes each would be about 280 KB without compaction
+      assertTrue(Files.size(logPath) < 100_000);
+    }
+    try (PersistentCensusSource restarted =
+        new PersistentCensusSource(DOWN, logPath, TIME_TO_LIVE, clock)) {
+      assertEquals(2, restarted.getLiveEntryCount());
+      CensusData wake = restarted.getBroadbandAccess("North Carolina", "Wake");
+      assertEquals(80.0, wake.data());
+      assertEquals(millis.get(), wake.lookedUpAt());
+    }
+  }
+}
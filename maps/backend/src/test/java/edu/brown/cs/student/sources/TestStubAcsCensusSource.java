@@ -0,0 +1,198 @@
+package edu.brown.cs.student.sources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.brown.cs.student.main.sources.AcsCensusSource;
+import edu.brown.cs.student.main.sources.CensusData;
+import edu.brown.cs.student.main.sources.DataSourceException;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This is a testing class that tests the AcsCensusSource class against a StubCensusServer, a local
+ * server that answers like the census API, so that lookups, failures and the number of upstream
+ * calls and connections can be checked without sending requests to the real census API.
+ *
+ * @author sarahridley juliazdzilowska prlakshm
+ * @version 3.0
+ */
+public class TestStubAcsCensusSource {
+  private StubCensusServer stub;
+  private AcsCensusSource source;
+
+  /**
+   * Starts a stub server and a source that queries it before each test.
+   *
+   * @throws IOException if the stub server cannot be started
+   */
+  @BeforeEach
+  public void setup() throws IOException {
+    stub = new StubCensusServer();
+    source = new AcsCensusSource(stub.getUri());
+  }
+
+  /** Stops the stub server after each test. */
+  @AfterEach
+  public void teardown() {
+    stub.close();
+  }
+
+  /**
+   * Tests that a blocking lookup finds the broadband access of a county with the three queries, and
+   * that the state list is only loaded once.
+   *
+   * @throws DataSourceException if the lookup fails
+   */
+  @Test
+  public void testLookupAgainstStub() throws DataSourceException {
+    assertEquals(new CensusData(90.0), source.getBroadbandAccess("North Carolina", "Durham"));
+    assertEquals(new CensusData(85.4), source.getBroadbandAccess("Rhode Island", "Providence"));
+    assertEquals(1, stub.countQueries("for=state:*"));
+    assertEquals(2, stub.countQueries("for=county:*"));
+    assertEquals(2, stub.countQueries("S2802_C03_022E"));
+  }
+
+  /**
+   * Tests that unknown states and counties fail with the same messages as the real census API
+   * gives, both from the blocking and the async lookup.
+   */
+  @Test
+  public void testLookupFailuresAgainstStub() {
+    DataSourceException badState =
+        assertThrows(DataSourceException.class, () -> source.getBroadbandAccess("North", "Durham"));
+    assertEquals("State North is not a valid state name.", badState.getMessage());
+    DataSourceException badCounty =
+        assertThrows(
+            DataSourceException.class, () -> source.getBroadbandAccess("North Carolina", "Dur"));
+    assertEquals("County Dur not found in state North Carolina.", badCounty.getMessage());
+
+    ExecutionException async =
+        assertThrows(
+            ExecutionException.class,
+            () -> source.getBroadbandAccessAsync("Rhode Island", "Dur").get());
+    assertTrue(async.getCause() instanceof DataSourceException);
+    assertEquals("County Dur not found in state Rhode Island.", async.getCause().getMessage());
+  }
+
+  /**
+   * Tests that many lookups started at once all complete with the right data, without a thread per
+   * lookup waiting on the server.
+   *
+   * @throws Exception if a lookup fails
+   */
+  @Test
+  public void testConcurrentAsyncLookups() throws Exception {
+    String[] counties = {"Durham", "Orange", "Wake"};
+    double[] expected = {90.0, 91.9, 94.1};
+    List<CompletableFuture<CensusData>> lookups = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      lookups.add(source.getBroadbandAccessAsync("North Carolina", counties[i % 3]));
+    }
+    for (int i = 0; i < 30; i++) {
+      assertEquals(expected[i % 3], lookups.get(i).get().data());
+    }
+  }
+
+  /**
+   * Tests that lookups one after another, even from different sources, reuse the pooled
+   * connection to the server instead of opening one per request.
+   *
+   * @throws DataSourceException if a lookup fails
+   */
+  @Test
+  public void testConnectionsArePooled() throws DataSourceException {
+    source.getBroadbandAccess("North Carolina", "Durham");
+    source.getBroadbandAccess("North Carolina", "Wake");
+    new AcsCensusSource(stub.getUri()).getBroadbandAccess("Rhode Island", "Kent");
+    assertEquals(7, stub.countQueries("="));
+    assertEquals(1, stub.countConnections());
+  }
+
+  /**
+   * Tests that the county list of a state is loaded once and kept for later lookups in that state,
+   * including lookups of counties that it does not have.
+   *
+   * @throws DataSourceException if a lookup fails
+   */
+  @Test
+  public void testCountyTableIsKept() throws DataSourceException {
+    assertEquals(new CensusData(90.0), source.getBroadbandAccess("North Carolina", "Durham"));
+    assertEquals(new CensusData(91.9), source.getBroadbandAccess("North Carolina", "Orange"));
+    assertThrows(
+        DataSourceException.class, () -> source.getBroadbandAccess("North Carolina", "Dur"));
+    assertEquals("063", source.getCountyCode("North Carolina", "37", "Durham"));
+    assertEquals(1, stub.countQueries("for=county:*&in=state:37"));
+
+    assertEquals(new CensusData(89.5), source.getBroadbandAccess("Rhode Island", "Kent"));
+    assertEquals(1, stub.countQueries("for=county:*&in=state:44"));
+  }
+
+  /**
+   * Tests that the county list of a state is loaded again once it is older than the refresh
+   * interval, which is always with an interval of zero.
+   *
+   * @throws DataSourceException if a lookup fails
+   */
+  @Test
+  public void testCountyTableRefreshes() throws DataSourceException {
+    AcsCensusSource refreshing =
+        new AcsCensusSource(HttpClient.newHttpClient(), stub.getUri(), Duration.ZERO);
+    refreshing.getBroadbandAccess("North Carolina", "Durham");
+    refreshing.getBroadbandAccess("North Carolina", "Durham");
+    assertEquals(2, stub.countQueries("for=county:*&in=state:37"));
+    assertEquals(1, stub.countQueries("for=state:*"));
+  }
+
+  /**
+   * Tests that the broadband access of every county in a state is found with the state list and one
+   * broadband query, without loading the county list.
+   *
+   * @throws DataSourceException if the lookup fails
+   */
+  @Test
+  public void testStateBroadbandAccess() throws DataSourceException {
+    Map<String, CensusData> counties = source.getStateBroadbandAccess("North Carolina");
+    assertEquals(
+        Map.of(
+            "Durham", new CensusData(90.0),
+            "Orange", new CensusData(91.9),
+            "Wake", new CensusData(94.1)),
+        counties);
+    assertEquals(1, stub.countQueries("S2802_C03_022E&for=county:*&in=state:37"));
+    assertEquals(0, stub.countQueries("get=NAME&for=county:*"));
+
+    DataSourceException badState =
+        assertThrows(DataSourceException.class, () -> source.getStateBroadbandAccess("North"));
+    assertEquals("State North is not a valid state name.", badState.getMessage());
+  }
+
+  /**
+   * Tests that a query the census API does not answer with success fails with the reason phrase
+   * of its status, as the connection's response message used to give.
+   */
+  @Test
+  public void testFailureStatus() {
+    stub.setFailureStatus(404);
+    DataSourceException notFound =
+        assertThrows(
+            DataSourceException.class, () -> source.getBroadbandAccess("North Carolina", "Durham"));
+    assertEquals("unexpected: API connection not success status Not Found", notFound.getMessage());
+
+    stub.setFailureStatus(418);
+    DataSourceException unknown =
+        assertThrows(
+            DataSourceException.class, () -> source.getBroadbandAccess("North Carolina", "Durham"));
+    assertEquals("unexpected: API connection not success status 418", unknown.getMessage());
+  }
+}